@@ -2,8 +2,10 @@ package com.abhinand.bookmymatch;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class BookmymatchApplication {
 
 	public static void main(String[] args) {
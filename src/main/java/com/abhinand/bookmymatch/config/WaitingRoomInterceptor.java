@@ -0,0 +1,73 @@
+package com.abhinand.bookmymatch.config;
+
+import com.abhinand.bookmymatch.service.WaitingRoomService;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sends visitors of a match with an active waiting room to the queue page
+ * until their queue token has been admitted.
+ */
+@Component
+@RequiredArgsConstructor
+public class WaitingRoomInterceptor implements HandlerInterceptor {
+
+    private final WaitingRoomService waitingRoomService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        // A cart may span several matches; each active room has to have admitted the visitor
+        for (Long matchId : resolveMatchIds(request)) {
+            if (waitingRoomService.isActive(matchId)
+                    && !waitingRoomService.isAdmitted(matchId, readToken(request, matchId))) {
+                response.sendRedirect(request.getContextPath() + "/queue/" + matchId);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static String readToken(HttpServletRequest request, Long matchId) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        String name = WaitingRoomService.TOKEN_COOKIE_PREFIX + matchId;
+        for (Cookie cookie : cookies) {
+            if (name.equals(cookie.getName())) {
+                return cookie.getValue();
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<Long> resolveMatchIds(HttpServletRequest request) {
+        Map<String, String> pathVariables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String[] values = pathVariables != null && pathVariables.containsKey("id")
+                ? new String[]{pathVariables.get("id")}
+                : request.getParameterValues("matchId");
+
+        Set<Long> matchIds = new LinkedHashSet<>();
+        if (values != null) {
+            for (String value : values) {
+                try {
+                    matchIds.add(Long.valueOf(value));
+                } catch (NumberFormatException e) {
+                    // Not a match page; nothing to gate
+                }
+            }
+        }
+        return matchIds;
+    }
+}
@@ -1,13 +1,25 @@
 package com.abhinand.bookmymatch.config;
 
+import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import java.nio.file.Paths;
 
 @Configuration
+@RequiredArgsConstructor
 public class WebMvcConfig implements WebMvcConfigurer {
 
+    private final WaitingRoomInterceptor waitingRoomInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Match page and booking are gated while a waiting room is active for the match
+        registry.addInterceptor(waitingRoomInterceptor)
+                .addPathPatterns("/matches/*", "/booking/create", "/booking/cart");
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         // Get absolute path to uploads directory
@@ -1,6 +1,8 @@
 package com.abhinand.bookmymatch.controller;
 
+import com.abhinand.bookmymatch.entity.Booking;
 import com.abhinand.bookmymatch.entity.Match;
+import com.abhinand.bookmymatch.entity.SalesBucket;
 import com.abhinand.bookmymatch.entity.Stadium;
 import com.abhinand.bookmymatch.entity.Team;
 import com.abhinand.bookmymatch.entity.TicketSection;
@@ -9,13 +11,21 @@ import com.abhinand.bookmymatch.service.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @Controller
@@ -28,21 +38,26 @@ public class AdminController {
     private final TeamService teamService;
     private final MatchService matchService;
     private final BookingService bookingService;
+    private final WaitingRoomService waitingRoomService;
+    private final MatchCancellationService matchCancellationService;
+    private final DashboardStatsService dashboardStatsService;
+    private final BookingExportService bookingExportService;
+    private final SalesRollupService salesRollupService;
+    private final CatalogImportService catalogImportService;
     
     @GetMapping
     public String dashboard(Model model) {
-        model.addAttribute("totalMatches", matchService.getAllMatches().size());
-        model.addAttribute("totalBookings", bookingService.getAllBookings().size());
-        model.addAttribute("totalStadiums", stadiumService.getAllStadiums().size());
-        model.addAttribute("totalTeams", teamService.getAllTeams().size());
+        model.addAttribute("stats", dashboardStatsService.getStats());
         return "admin/dashboard";
     }
     
     // STADIUM MANAGEMENT
     
     @GetMapping("/stadiums")
-    public String listStadiums(Model model) {
-        model.addAttribute("stadiums", stadiumService.getAllStadiums());
+    public String listStadiums(@RequestParam(required = false) Long after, Model model) {
+        KeysetPage<Stadium> page = stadiumService.getStadiums(after);
+        model.addAttribute("stadiums", page.items());
+        model.addAttribute("page", page);
         return "admin/stadiums";
     }
     
@@ -109,8 +124,10 @@ public class AdminController {
     //TEAM MANAGEMENT
     
     @GetMapping("/teams")
-    public String listTeams(Model model) {
-        model.addAttribute("teams", teamService.getAllTeams());
+    public String listTeams(@RequestParam(required = false) Long after, Model model) {
+        KeysetPage<Team> page = teamService.getTeams(after);
+        model.addAttribute("teams", page.items());
+        model.addAttribute("page", page);
         return "admin/teams";
     }
     
@@ -175,8 +192,14 @@ public class AdminController {
     //MATCH MANAGEMENT
     
     @GetMapping("/matches")
-    public String listMatches(Model model) {
-        model.addAttribute("matches", matchService.getAllMatches());
+    public String listMatches(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+                              @RequestParam(required = false) Long beforeId,
+                              Model model) {
+        KeysetPage<Match> page = matchService.getAllMatches(before, beforeId);
+        model.addAttribute("matches", page.items());
+        model.addAttribute("page", page);
+        model.addAttribute("waitingRooms", waitingRoomService.getRooms());
+        model.addAttribute("cancellations", matchCancellationService.getAllProgress());
         return "admin/matches";
     }
     
@@ -223,9 +246,10 @@ public class AdminController {
                                   @RequestParam Integer totalSeats,
                                   @RequestParam BigDecimal pricePerTicket,
                                   @RequestParam(required = false) String description,
+                                  @RequestParam(required = false) Integer rowCount,
                                   RedirectAttributes redirectAttributes) {
         try {
-            matchService.addTicketSection(matchId, sectionName, totalSeats, pricePerTicket, description);
+            matchService.addTicketSection(matchId, sectionName, totalSeats, pricePerTicket, description, rowCount);
             redirectAttributes.addFlashAttribute("message", "Ticket section added successfully");
         } catch (Exception e) {
             log.error("Failed to add ticket section", e);
@@ -234,6 +258,109 @@ public class AdminController {
         return "redirect:/admin/matches/" + matchId + "/sections";
     }
     
+    @PostMapping("/matches/{matchId}/sections/bulk")
+    public String addTicketSections(@PathVariable Long matchId,
+                                    @RequestParam String sections,
+                                    RedirectAttributes redirectAttributes) {
+        try {
+            List<MatchService.NewTicketSection> newSections = parseSections(sections);
+            matchService.addTicketSections(matchId, newSections);
+            redirectAttributes.addFlashAttribute("message", newSections.size() + " ticket sections added successfully");
+        } catch (Exception e) {
+            log.error("Failed to add ticket sections", e);
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
+        }
+        return "redirect:/admin/matches/" + matchId + "/sections";
+    }
+    
+    // "name, seats, price[, rows[, description]]" per line; the description may contain commas
+    private List<MatchService.NewTicketSection> parseSections(String sections) {
+        List<MatchService.NewTicketSection> newSections = new ArrayList<>();
+        String[] lines = sections.split("\\R");
+        for (int i = 0; i < lines.length; i++) {
+            if (lines[i].isBlank()) {
+                continue;
+            }
+            String[] fields = lines[i].split(",", 5);
+            if (fields.length < 3) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": expected name, seats and price");
+            }
+            try {
+                String rows = fields.length > 3 ? fields[3].trim() : "";
+                String description = fields.length > 4 ? fields[4].trim() : "";
+                newSections.add(new MatchService.NewTicketSection(
+                        fields[0].trim(),
+                        Integer.valueOf(fields[1].trim()),
+                        new BigDecimal(fields[2].trim()),
+                        description.isEmpty() ? null : description,
+                        rows.isEmpty() ? null : Integer.valueOf(rows)));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": invalid number");
+            }
+        }
+        if (newSections.isEmpty()) {
+            throw new IllegalArgumentException("No sections to add");
+        }
+        return newSections;
+    }
+    
+    @PostMapping("/matches/{id}/cancel")
+    public String cancelMatch(@PathVariable Long id, RedirectAttributes redirectAttributes) {
+        try {
+            matchService.updateMatchStatus(id, Match.MatchStatus.CANCELLED);
+            redirectAttributes.addFlashAttribute("message", "Match cancellation started; bookings are being cancelled and refunded");
+        } catch (Exception e) {
+            log.error("Failed to cancel match", e);
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
+        }
+        return "redirect:/admin/matches";
+    }
+    
+    @GetMapping("/matches/{id}/cancellation")
+    @ResponseBody
+    public ResponseEntity<MatchCancellationService.ProgressView> cancellationProgress(@PathVariable Long id) {
+        MatchCancellationService.ProgressView progress = matchCancellationService.getProgress(id);
+        return progress == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(progress);
+    }
+    
+    @GetMapping("/sales")
+    public String sales(Model model) {
+        model.addAttribute("summaries", salesRollupService.getUpcomingSales());
+        return "admin/sales";
+    }
+    
+    @GetMapping("/matches/{id}/sales")
+    public String matchSales(@PathVariable Long id,
+                             @RequestParam(defaultValue = "HOUR") SalesBucket.Resolution resolution,
+                             Model model) {
+        model.addAttribute("match", matchService.getMatchById(id));
+        model.addAttribute("sales", salesRollupService.getMatchSales(id, resolution));
+        model.addAttribute("resolutions", SalesBucket.Resolution.values());
+        return "admin/match-sales";
+    }
+    
+    @PostMapping("/matches/{id}/waiting-room")
+    public String updateWaitingRoom(@PathVariable Long id,
+                                    @RequestParam boolean enabled,
+                                    @RequestParam(defaultValue = "50") Integer admitPerSecond,
+                                    @RequestParam(required = false) Integer burst,
+                                    RedirectAttributes redirectAttributes) {
+        try {
+            if (enabled) {
+                matchService.getMatchById(id);
+                waitingRoomService.enable(id, admitPerSecond, burst != null ? burst : admitPerSecond);
+                redirectAttributes.addFlashAttribute("message", "Waiting room enabled");
+            } else {
+                waitingRoomService.disable(id);
+                redirectAttributes.addFlashAttribute("message", "Waiting room disabled");
+            }
+        } catch (Exception e) {
+            log.error("Failed to update waiting room", e);
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
+        }
+        return "redirect:/admin/matches";
+    }
+    
     @PostMapping("/matches/delete/{id}")
     public String deleteMatch(@PathVariable Long id, RedirectAttributes redirectAttributes) {
         try {
@@ -246,11 +373,67 @@ public class AdminController {
         return "redirect:/admin/matches";
     }
     
+    // CATALOG IMPORT
+    
+    @GetMapping("/import")
+    public String importForm(@RequestParam(defaultValue = "MATCHES") CatalogImportService.Kind kind, Model model) {
+        model.addAttribute("kind", kind);
+        model.addAttribute("kinds", CatalogImportService.Kind.values());
+        return "admin/import";
+    }
+    
+    @PostMapping("/import")
+    public String importCatalog(@RequestParam CatalogImportService.Kind kind,
+                                @RequestParam MultipartFile file,
+                                RedirectAttributes redirectAttributes) {
+        try {
+            if (file.isEmpty()) {
+                throw new IllegalArgumentException("Choose a CSV file to import");
+            }
+            CatalogImportService.ImportResult result = catalogImportService.importCsv(kind, file.getInputStream());
+            redirectAttributes.addFlashAttribute("result", result);
+            if (result.imported()) {
+                redirectAttributes.addFlashAttribute("message", "Imported " + result.rows() + " rows");
+            } else {
+                redirectAttributes.addFlashAttribute("error", result.errorCount() + " row(s) failed; nothing was imported");
+            }
+        } catch (Exception e) {
+            log.error("Failed to import {}", kind, e);
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
+        }
+        return "redirect:/admin/import?kind=" + kind;
+    }
+    
     //BOOKING MANAGEMENT
     
     @GetMapping("/bookings")
-    public String listBookings(Model model) {
-        model.addAttribute("bookings", bookingService.getAllBookings());
+    public String listBookings(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+                               @RequestParam(required = false) Long beforeId,
+                               Model model) {
+        KeysetPage<Booking> page = bookingService.getAllBookings(before, beforeId);
+        model.addAttribute("bookings", page.items());
+        model.addAttribute("page", page);
         return "admin/bookings";
     }
+    
+    // Streamed from a database cursor, so any number of bookings can be exported
+    @GetMapping("/bookings/export")
+    public ResponseEntity<StreamingResponseBody> exportBookings(@RequestParam(defaultValue = "CSV") BookingExportService.Format format,
+                                                                @RequestParam(required = false) Long matchId,
+                                                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        BookingExportService.Filter filter;
+        try {
+            filter = new BookingExportService.Filter(matchId, from, to);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body(out -> out.write(e.getMessage().getBytes(StandardCharsets.UTF_8)));
+        }
+        String fileName = "bookings-" + LocalDate.now() + (matchId != null ? "-match-" + matchId : "") + "." + format.extension();
+        return ResponseEntity.ok()
+                .contentType(format.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(out -> bookingExportService.export(format, filter, out));
+    }
 }
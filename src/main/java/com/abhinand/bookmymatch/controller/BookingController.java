@@ -2,12 +2,16 @@ package com.abhinand.bookmymatch.controller;
 
 import com.abhinand.bookmymatch.entity.Booking;
 import com.abhinand.bookmymatch.service.BookingService;
+import com.abhinand.bookmymatch.service.KeysetPage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @Controller
@@ -31,7 +35,37 @@ public class BookingController {
         } catch (Exception e) {
             log.error("Booking failed", e);
             redirectAttributes.addFlashAttribute("error", e.getMessage());
-            return "redirect:/matches/" + matchId;
+            // Off the shared-cacheable URL so a proxy cannot answer in place of the page with the error
+            return "redirect:/matches/" + matchId + "?booking=failed";
+        }
+    }
+    
+    // Parallel lists: one entry per cart line, lines with 0 tickets are skipped
+    @PostMapping("/cart")
+    public String createCartBooking(@RequestParam("matchId") List<Long> matchIds,
+                                    @RequestParam("ticketSectionId") List<Long> ticketSectionIds,
+                                    @RequestParam("numberOfTickets") List<Integer> ticketCounts,
+                                    RedirectAttributes redirectAttributes) {
+        try {
+            if (matchIds.size() != ticketSectionIds.size() || ticketSectionIds.size() != ticketCounts.size()) {
+                throw new IllegalArgumentException("Invalid cart");
+            }
+            List<BookingService.CartItem> items = new ArrayList<>();
+            for (int i = 0; i < ticketSectionIds.size(); i++) {
+                Integer count = ticketCounts.get(i);
+                if (count != null && count > 0) {
+                    items.add(new BookingService.CartItem(matchIds.get(i), ticketSectionIds.get(i), count));
+                }
+            }
+
+            List<Booking> bookings = bookingService.createCartBookings(items);
+            redirectAttributes.addFlashAttribute("message", "Booking created! Please complete payment.");
+            return "redirect:/payment/cart/" + bookings.get(0).getCartCode();
+        } catch (Exception e) {
+            log.error("Cart booking failed", e);
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
+            return matchIds.isEmpty() ? "redirect:/matches?booking=failed"
+                    : "redirect:/matches/" + matchIds.get(0) + "?booking=failed";
         }
     }
     
@@ -43,9 +77,12 @@ public class BookingController {
     }
     
     @GetMapping("/my-tickets")
-    public String myTickets(Model model) {
-        List<Booking> bookings = bookingService.getUserBookings();
-        model.addAttribute("bookings", bookings);
+    public String myTickets(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+                            @RequestParam(required = false) Long beforeId,
+                            Model model) {
+        KeysetPage<Booking> page = bookingService.getUserBookings(before, beforeId);
+        model.addAttribute("bookings", page.items());
+        model.addAttribute("page", page);
         return "booking/my-tickets";
     }
     
@@ -15,4 +15,10 @@ public class HomeController {
     public String homePage() {
         return "index";
     }
+    
+    // The visitor's part of the navigation on pages that are shared by everyone
+    @GetMapping("/session/menu")
+    public String sessionMenu() {
+        return "fragments/header :: sessionMenu";
+    }
 }
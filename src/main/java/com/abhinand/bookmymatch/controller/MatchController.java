@@ -1,38 +1,166 @@
 package com.abhinand.bookmymatch.controller;
 
-import com.abhinand.bookmymatch.entity.Match;
-import com.abhinand.bookmymatch.entity.TicketSection;
-import com.abhinand.bookmymatch.service.MatchService;
-import lombok.RequiredArgsConstructor;
+import com.abhinand.bookmymatch.service.AvailabilityBroadcaster;
+import com.abhinand.bookmymatch.service.MatchAvailability;
+import com.abhinand.bookmymatch.service.MatchCard;
+import com.abhinand.bookmymatch.service.MatchCatalog;
+import com.abhinand.bookmymatch.service.MatchSearchService;
+import com.abhinand.bookmymatch.service.WaitingRoomService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
 
+/**
+ * Match catalog pages. The list, search and match pages are public and identical for every visitor,
+ * so shared caches may hold them briefly while browsers revalidate; the visitor's menu and booking
+ * forms are loaded separately. Pages that carry a flash message, or belong to a match with an active
+ * waiting room, are never stored.
+ */
 @Controller
 @RequestMapping("/matches")
-@RequiredArgsConstructor
 public class MatchController {
     
-    private final MatchService matchService;
+    private final MatchCatalog matchCatalog;
+    private final MatchSearchService matchSearchService;
+    private final AvailabilityBroadcaster availabilityBroadcaster;
+    private final WaitingRoomService waitingRoomService;
+    private final CacheControl sharedCacheControl;
+    
+    public MatchController(MatchCatalog matchCatalog,
+                           MatchSearchService matchSearchService,
+                           AvailabilityBroadcaster availabilityBroadcaster,
+                           WaitingRoomService waitingRoomService,
+                           @Value("${catalog.http.shared-max-age-seconds:10}") long sharedMaxAgeSeconds) {
+        this.matchCatalog = matchCatalog;
+        this.matchSearchService = matchSearchService;
+        this.availabilityBroadcaster = availabilityBroadcaster;
+        this.waitingRoomService = waitingRoomService;
+        this.sharedCacheControl = CacheControl.maxAge(Duration.ZERO)
+                .sMaxAge(Duration.ofSeconds(sharedMaxAgeSeconds))
+                .cachePublic();
+    }
     
     @GetMapping
-    public String listMatches(Model model) {
-        List<Match> matches = matchService.getUpcomingMatches();
+    public String listMatches(Model model, WebRequest request, HttpServletResponse response) {
+        // Read before rendering, so the validators are never newer than the page
+        String version = matchCatalog.getListingVersion();
+        long lastModified = matchCatalog.getListingLastModified();
+        if (cacheable(model, null, response) && request.checkNotModified(tag(version), lastModified)) {
+            return null;
+        }
+        
+        List<MatchCard> matches = matchCatalog.getUpcomingMatches();
         model.addAttribute("matches", matches);
         return "matches/list";
     }
     
+    @GetMapping("/search")
+    public String searchMatches(@RequestParam(required = false) String q,
+                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                Model model,
+                                HttpServletResponse response) {
+        // No validators: the search index is patched apart from the catalog
+        cacheable(model, null, response);
+        List<MatchCard> matches = matchSearchService.search(q, from, to);
+        model.addAttribute("matches", matches);
+        model.addAttribute("searching", true);
+        return "matches/list";
+    }
+    
     @GetMapping("/{id}")
-    public String matchDetails(@PathVariable Long id, Model model) {
-        Match match = matchService.getMatchById(id);
-        List<TicketSection> ticketSections = matchService.getTicketSectionsByMatch(id);
+    public String matchDetails(@PathVariable Long id, Model model, WebRequest request, HttpServletResponse response) {
+        MatchCard match = matchCatalog.getMatch(id);
+        if (cacheable(model, id, response)
+                && request.checkNotModified(tag(matchCatalog.getVersion(match)), match.modifiedAt())) {
+            return null;
+        }
         
         model.addAttribute("match", match);
-        model.addAttribute("ticketSections", ticketSections);
+        model.addAttribute("ticketSections", match.ticketSections());
         
         return "matches/details";
     }
+    
+    // The booking forms of a match page: they carry the visitor's CSRF token, so they are never shared
+    @GetMapping("/{id}/booking")
+    public String bookingForms(@PathVariable Long id, Model model) {
+        MatchCard match = matchCatalog.getMatch(id);
+        model.addAttribute("match", match);
+        model.addAttribute("ticketSections", match.ticketSections());
+        return "matches/booking :: forms";
+    }
+    
+    // Signed-in only: sends a visitor through the login page and back to the match
+    @GetMapping("/{id}/sign-in")
+    public String signIn(@PathVariable Long id) {
+        return "redirect:/matches/" + id;
+    }
+    
+    // Polled during on-sales: answered from memory, and a 304 without a body while nothing has moved
+    @GetMapping("/{id}/availability")
+    @ResponseBody
+    public ResponseEntity<MatchAvailability> availability(@PathVariable Long id, WebRequest request) {
+        MatchAvailability availability;
+        try {
+            availability = matchCatalog.getAvailability(id);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        String etag = tag(availability.version());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        // Public: the counts are the same for every visitor and carry nothing about them, so a shared cache
+        // may keep the body; no-cache still makes it revalidate the tag here before each reuse
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePublic())
+                .eTag(etag)
+                .body(availability);
+    }
+    
+    // Server-sent events: a snapshot first, then coalesced changes; the request thread is released at once
+    @GetMapping(path = "/{id}/availability/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> availabilityStream(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noStore())
+                    .body(availabilityBroadcaster.subscribe(id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+    
+    // A flash message is for this visitor only; a match behind a waiting room must not be served past it
+    private boolean cacheable(Model model, Long matchId, HttpServletResponse response) {
+        if (model.containsAttribute("error") || model.containsAttribute("message") || waitingRoomService.isActive(matchId)) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+            return false;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, sharedCacheControl.getHeaderValue());
+        // Dates are formatted in the visitor's locale
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_LANGUAGE);
+        return true;
+    }
+    
+    private static String tag(String version) {
+        return "\"" + version + "\"";
+    }
 }
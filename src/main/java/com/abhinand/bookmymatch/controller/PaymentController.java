@@ -1,18 +1,22 @@
 package com.abhinand.bookmymatch.controller;
 
 import com.abhinand.bookmymatch.entity.Booking;
-import com.abhinand.bookmymatch.repository.BookingRepository;
+import com.abhinand.bookmymatch.service.BookingService;
 import com.abhinand.bookmymatch.service.PaymentService;
-import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentIntent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
-import java.time.LocalDateTime;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Objects;
 
 @Controller
 @RequestMapping("/payment")
@@ -21,7 +25,7 @@ import java.time.LocalDateTime;
 public class PaymentController {
 
     private final PaymentService paymentService;
-    private final BookingRepository bookingRepository;
+    private final BookingService bookingService;
 
     @Value("${stripe.publishable.key:pk_test_demo}")
     private String stripePublishableKey;
@@ -29,8 +33,7 @@ public class PaymentController {
     @GetMapping("/{bookingId}")
     public String paymentPage(@PathVariable Long bookingId, Model model, RedirectAttributes redirectAttributes) {
         try {
-            Booking booking = bookingRepository.findById(bookingId)
-                    .orElseThrow(() -> new IllegalArgumentException("Booking not found"));
+            Booking booking = bookingService.getOwnBookingById(bookingId);
 
             // Check if already paid
             if (booking.getPaymentStatus() == Booking.PaymentStatus.COMPLETED) {
@@ -38,13 +41,19 @@ public class PaymentController {
                 return "redirect:/booking/ticket/" + booking.getBookingCode();
             }
 
-            // Create Payment Intent
-            PaymentIntent paymentIntent = paymentService.createPaymentIntent(booking);
+            // Seats are no longer held for this booking
+            if (booking.getStatus() != Booking.BookingStatus.PENDING_PAYMENT) {
+                redirectAttributes.addFlashAttribute("error", "Your seat hold has expired, please book again");
+                return "redirect:/booking/my-tickets";
+            }
+
+            // Reuse the intent already attached: it is the one hold expiry checks with Stripe before releasing seats
+            PaymentIntent paymentIntent = booking.getPaymentIntentId() != null
+                    ? paymentService.retrievePaymentIntent(booking.getPaymentIntentId())
+                    : paymentService.createPaymentIntent(booking);
 
             // Update booking with payment intent ID
-            booking.setPaymentIntentId(paymentIntent.getId());
-            booking.setPaymentStatus(Booking.PaymentStatus.PROCESSING);
-            bookingRepository.save(booking);
+            bookingService.attachPaymentIntent(bookingId, paymentIntent.getId());
 
             // Add attributes to model
             model.addAttribute("booking", booking);
@@ -54,78 +63,145 @@ public class PaymentController {
 
             return "payment/checkout";
 
-        } catch (StripeException e) {
-            log.error("Stripe error: {}", e.getMessage());
-            // Just log error, don't show to user - redirect to success anyway
-            Booking booking = bookingRepository.findById(bookingId).orElse(null);
-            if (booking != null) {
-                booking.setPaymentStatus(Booking.PaymentStatus.COMPLETED);
-                booking.setStatus(Booking.BookingStatus.CONFIRMED);
-                booking.setPaidAt(LocalDateTime.now());
-                bookingRepository.save(booking);
-            }
-            return "redirect:/payment/success/" + bookingId;
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
+            return "redirect:/booking/my-tickets";
         } catch (Exception e) {
+            // Never confirmed without a payment: the hold expires as usual if it isn't paid
             log.error("Payment page error: {}", e.getMessage());
-            // Just log error, don't show to user - redirect to success anyway
-            Booking booking = bookingRepository.findById(bookingId).orElse(null);
-            if (booking != null) {
-                booking.setPaymentStatus(Booking.PaymentStatus.COMPLETED);
-                booking.setStatus(Booking.BookingStatus.CONFIRMED);
-                booking.setPaidAt(LocalDateTime.now());
-                bookingRepository.save(booking);
-            }
-            return "redirect:/payment/success/" + bookingId;
+            redirectAttributes.addFlashAttribute("error", "Payment could not be started, please try again");
+            return "redirect:/booking/my-tickets";
         }
     }
 
     @PostMapping("/confirm")
     @ResponseBody
-    public String confirmPayment(@RequestParam Long bookingId,
-                                 @RequestParam String paymentIntentId) {
+    public ResponseEntity<String> confirmPayment(@RequestParam Long bookingId,
+                                                 @RequestParam String paymentIntentId) {
         try {
-            Booking booking = bookingRepository.findById(bookingId)
-                    .orElseThrow(() -> new IllegalArgumentException("Booking not found"));
-
-            // Always mark as successful in demo mode
-            booking.setPaymentStatus(Booking.PaymentStatus.COMPLETED);
-            booking.setStatus(Booking.BookingStatus.CONFIRMED);
-            booking.setPaidAt(LocalDateTime.now());
-            booking.setPaymentMethod("card");
-            bookingRepository.save(booking);
+            Booking booking = bookingService.getOwnBookingById(bookingId);
+            if (!paymentIntentId.equals(booking.getPaymentIntentId()) || !paymentService.isPaymentSuccessful(paymentIntentId)) {
+                return ResponseEntity.status(HttpStatus.PAYMENT_REQUIRED).body("This booking has not been paid for yet");
+            }
+            // This also makes the seat hold permanent
+            bookingService.confirmPayment(bookingId, "card");
 
             log.info("Payment confirmed for booking: {}", booking.getBookingCode());
-            return "success";
+            return ResponseEntity.ok("success");
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } catch (Exception e) {
             log.error("Payment confirmation error", e);
-            return "success"; // Return success anyway
+            return ResponseEntity.internalServerError().body("Payment could not be confirmed, please try again");
         }
     }
 
     @GetMapping("/success/{bookingId}")
     public String paymentSuccess(@PathVariable Long bookingId, Model model, RedirectAttributes redirectAttributes) {
         try {
-            Booking booking = bookingRepository.findById(bookingId)
-                    .orElseThrow(() -> new IllegalArgumentException("Booking not found"));
-
-            // Make sure it's marked as completed
-            if (booking.getPaymentStatus() != Booking.PaymentStatus.COMPLETED) {
-                booking.setPaymentStatus(Booking.PaymentStatus.COMPLETED);
-                booking.setStatus(Booking.BookingStatus.CONFIRMED);
-                booking.setPaidAt(LocalDateTime.now());
-                bookingRepository.save(booking);
+            // Stripe has to have taken the payment; this URL alone confirms nothing
+            Booking booking = bookingService.getOwnBookingById(bookingId);
+            if (booking.getPaymentIntentId() == null || !paymentService.isPaymentSuccessful(booking.getPaymentIntentId())) {
+                redirectAttributes.addFlashAttribute("error", "This booking has not been paid for yet");
+                return "redirect:/booking/my-tickets";
             }
 
-            model.addAttribute("booking", booking);
+            model.addAttribute("booking", bookingService.confirmPayment(bookingId, null));
             return "payment/success";
 
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
+            return "redirect:/booking/my-tickets";
         } catch (Exception e) {
             log.error("Payment success page error", e);
             return "redirect:/booking/my-tickets";
         }
     }
 
+    @GetMapping("/cart/{cartCode}")
+    public String cartPaymentPage(@PathVariable String cartCode, Model model, RedirectAttributes redirectAttributes) {
+        try {
+            // Bookings cancelled on their own are simply left out of the cart's payment
+            List<Booking> cartBookings = bookingService.getCartBookings(cartCode);
+            List<Booking> bookings = cartBookings.stream()
+                    .filter(booking -> booking.getStatus() == Booking.BookingStatus.PENDING_PAYMENT)
+                    .toList();
+
+            if (bookings.isEmpty()) {
+                if (cartBookings.stream().anyMatch(booking -> booking.getPaymentStatus() == Booking.PaymentStatus.COMPLETED)) {
+                    redirectAttributes.addFlashAttribute("message", "This booking is already paid!");
+                } else {
+                    redirectAttributes.addFlashAttribute("error", "Your seat hold has expired, please book again");
+                }
+                return "redirect:/booking/my-tickets";
+            }
+
+            // One intent for the whole cart, reused like a single booking's
+            String paymentIntentId = bookings.get(0).getPaymentIntentId();
+            PaymentIntent paymentIntent = paymentIntentId != null
+                    ? paymentService.retrievePaymentIntent(paymentIntentId)
+                    : paymentService.createPaymentIntent(cartCode, bookings);
+            bookingService.attachCartPaymentIntent(cartCode, bookings.size(), paymentIntent.getId());
+
+            model.addAttribute("cartCode", cartCode);
+            model.addAttribute("bookings", bookings);
+            model.addAttribute("totalPrice", bookings.stream()
+                    .map(Booking::getTotalPrice)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add));
+            model.addAttribute("clientSecret", paymentIntent.getClientSecret());
+            model.addAttribute("publishableKey", stripePublishableKey);
+            model.addAttribute("testCards", paymentService.getTestCards());
+
+            return "payment/cart-checkout";
+
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
+            return "redirect:/booking/my-tickets";
+        } catch (Exception e) {
+            // Never confirmed without a payment: a cart can hold many bookings
+            log.error("Cart payment page error: {}", e.getMessage());
+            redirectAttributes.addFlashAttribute("error", "Payment could not be started, please try again");
+            return "redirect:/booking/my-tickets";
+        }
+    }
+
+    @GetMapping("/cart/success/{cartCode}")
+    public String cartPaymentSuccess(@PathVariable String cartCode, RedirectAttributes redirectAttributes) {
+        try {
+            // Stripe has to have taken the payment; this URL alone confirms nothing
+            String paymentIntentId = bookingService.getCartBookings(cartCode).stream()
+                    .map(Booking::getPaymentIntentId)
+                    .filter(Objects::nonNull)
+                    .findFirst()
+                    .orElse(null);
+            if (paymentIntentId == null || !paymentService.isPaymentSuccessful(paymentIntentId)) {
+                redirectAttributes.addFlashAttribute("error", "This cart has not been paid for yet");
+                return "redirect:/booking/my-tickets";
+            }
+
+            List<Booking> bookings = bookingService.confirmCartPayment(cartCode, null);
+            long confirmed = bookings.stream()
+                    .filter(booking -> booking.getStatus() == Booking.BookingStatus.CONFIRMED)
+                    .count();
+            long refunding = bookings.stream()
+                    .filter(booking -> booking.getStatus() == Booking.BookingStatus.CANCELLED
+                            && booking.getPaymentStatus() == Booking.PaymentStatus.PROCESSING)
+                    .count();
+            redirectAttributes.addFlashAttribute("message",
+                    "Payment successful! " + confirmed + " booking(s) confirmed."
+                            + (refunding > 0 ? " " + refunding + " booking(s) could no longer be held; "
+                            + "their share of the payment will be refunded." : ""));
+        } catch (IllegalStateException e) {
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
+        } catch (Exception e) {
+            log.error("Cart payment success page error", e);
+        }
+        return "redirect:/booking/my-tickets";
+    }
+
     @GetMapping("/cancel/{bookingId}")
     public String paymentCancel(@PathVariable Long bookingId, RedirectAttributes redirectAttributes) {
         // User cancelled - just redirect to matches
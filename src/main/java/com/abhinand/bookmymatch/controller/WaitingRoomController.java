@@ -0,0 +1,76 @@
+package com.abhinand.bookmymatch.controller;
+
+import com.abhinand.bookmymatch.config.WaitingRoomInterceptor;
+import com.abhinand.bookmymatch.service.WaitingRoomService;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import java.util.Map;
+
+@Controller
+@RequestMapping("/queue")
+@RequiredArgsConstructor
+public class WaitingRoomController {
+
+    private final WaitingRoomService waitingRoomService;
+
+    @GetMapping("/{matchId}")
+    public String waitingRoom(@PathVariable Long matchId, Model model, HttpServletRequest request,
+                              HttpServletResponse response, RedirectAttributes redirectAttributes) {
+        WaitingRoomService.QueueStatus status =
+                waitingRoomService.status(matchId, WaitingRoomInterceptor.readToken(request, matchId));
+        if (status == null) {
+            try {
+                // The client's address, taken from X-Forwarded-For when the request comes through the proxy
+                status = waitingRoomService.join(matchId, request.getRemoteAddr());
+            } catch (IllegalStateException e) {
+                redirectAttributes.addFlashAttribute("error", e.getMessage());
+                return "redirect:/matches";
+            }
+            if (status == null) {
+                // No waiting room (any more) for this match
+                return "redirect:/matches/" + matchId;
+            }
+            Cookie cookie = new Cookie(WaitingRoomService.TOKEN_COOKIE_PREFIX + matchId, status.token());
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+        }
+
+        if (status.admitted()) {
+            return "redirect:/matches/" + matchId;
+        }
+
+        model.addAttribute("matchId", matchId);
+        model.addAttribute("queueStatus", status);
+        return "queue/waiting";
+    }
+
+    // Polled by waiting clients: memory lookups only, no session and no database
+    @GetMapping("/{matchId}/status")
+    public ResponseEntity<Map<String, Object>> queueStatus(@PathVariable Long matchId, HttpServletRequest request) {
+        WaitingRoomService.QueueStatus status =
+                waitingRoomService.status(matchId, WaitingRoomInterceptor.readToken(request, matchId));
+        if (status == null) {
+            // Room closed or token unknown: let the page decide where to go next
+            return ResponseEntity.ok(Map.of("admitted", !waitingRoomService.isActive(matchId), "position", 0));
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(status.retryAfterSeconds()))
+                .body(Map.of(
+                        "admitted", status.admitted(),
+                        "position", status.position(),
+                        "retryAfterSeconds", status.retryAfterSeconds()));
+    }
+}
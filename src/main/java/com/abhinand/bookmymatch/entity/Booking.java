@@ -7,7 +7,10 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "bookings")
+@Table(name = "bookings", indexes = {
+        @Index(name = "idx_bookings_booked_at_id", columnList = "booked_at, id"),
+        @Index(name = "idx_bookings_user_booked_at_id", columnList = "user_id, booked_at, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -16,12 +19,17 @@ import java.util.UUID;
 public class Booking {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bookings_seq")
+    @SequenceGenerator(name = "bookings_seq", sequenceName = "bookings_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false, unique = true, updatable = false)
     private String bookingCode;
     
+    // Shared by bookings created and paid together from one cart
+    @Column(updatable = false)
+    private String cartCode;
+    
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
@@ -37,6 +45,10 @@ public class Booking {
     @Column(nullable = false)
     private Integer numberOfTickets;
     
+    // Comma-separated seat labels (e.g. "C14,C15") for sections with a seat map
+    @Column(length = 2000)
+    private String seatNumbers;
+    
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal totalPrice;
     
@@ -62,8 +74,13 @@ public class Booking {
     @Column
     private LocalDateTime paidAt;
     
+    // Seats are only held until this time unless the booking is paid
+    @Column
+    private LocalDateTime holdExpiresAt;
+    
     @PrePersist
     protected void onCreate() {
+        // Services assign time-ordered codes; this only covers bookings created elsewhere
         if (bookingCode == null) {
             bookingCode = UUID.randomUUID().toString().toUpperCase();
         }
@@ -7,7 +7,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "matches")
+// Partial and other access-path indexes are in db/migration/V2__access_path_indexes.sql
+@Table(name = "matches", indexes = @Index(name = "idx_matches_date_time_id", columnList = "match_date_time, id"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -16,18 +17,19 @@ import java.util.List;
 public class Match {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "matches_seq")
+    @SequenceGenerator(name = "matches_seq", sequenceName = "matches_seq", allocationSize = 50)
     private Long id;
     
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "home_team_id", nullable = false)
     private Team homeTeam;
     
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "away_team_id", nullable = false)
     private Team awayTeam;
     
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "stadium_id", nullable = false)
     private Stadium stadium;
     
@@ -39,6 +41,11 @@ public class Match {
     @Builder.Default
     private MatchStatus status = MatchStatus.UPCOMING;
     
+    // Closed by the lifecycle scheduler at the booking cutoff before kick-off
+    @Column(nullable = false, columnDefinition = "boolean default false")
+    @Builder.Default
+    private boolean bookingClosed = false;
+    
     private String competition; // e.g., "Premier League", "Champions League"
     
     @Column(length = 1000)
@@ -67,9 +74,8 @@ public class Match {
         CANCELLED
     }
     
-    // Helper method to check if match is bookable
+    // Kept current by MatchLifecycleScheduler, so no clock is read here
     public boolean isBookable() {
-        return status == MatchStatus.UPCOMING && 
-               matchDateTime.isAfter(LocalDateTime.now());
+        return status == MatchStatus.UPCOMING && !bookingClosed;
     }
 }
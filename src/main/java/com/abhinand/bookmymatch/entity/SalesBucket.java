@@ -0,0 +1,73 @@
+package com.abhinand.bookmymatch.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * A ticket section's sales during one minute, hour or day, for sales curves. Written only by
+ * SalesRollupService; figures are net, so a bucket where cancellations outweigh sales goes negative.
+ */
+@Entity
+@Table(name = "sales_buckets")
+@IdClass(SalesBucket.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesBucket {
+
+    @Id
+    private Long ticketSectionId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 6)
+    private Resolution resolution;
+
+    @Id
+    private LocalDateTime bucketStart;
+
+    @Column(nullable = false)
+    private Long matchId;
+
+    @Column(nullable = false)
+    private int bookingsCreated;
+
+    @Column(nullable = false)
+    private int bookingsCancelled;
+
+    @Column(nullable = false)
+    private int ticketsSold;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue;
+
+    public enum Resolution {
+        MINUTE(ChronoUnit.MINUTES),
+        HOUR(ChronoUnit.HOURS),
+        DAY(ChronoUnit.DAYS);
+
+        private final ChronoUnit unit;
+
+        Resolution(ChronoUnit unit) {
+            this.unit = unit;
+        }
+
+        public LocalDateTime bucketOf(LocalDateTime time) {
+            return time.truncatedTo(unit);
+        }
+
+        public ChronoUnit unit() {
+            return unit;
+        }
+    }
+
+    public record Key(Long ticketSectionId, Resolution resolution, LocalDateTime bucketStart) implements Serializable {
+    }
+}
@@ -0,0 +1,49 @@
+package com.abhinand.bookmymatch.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Running sales totals of a ticket section. Written only by SalesRollupService with additive upserts,
+ * so the ids are plain columns rather than associations; read here for the admin sales pages.
+ */
+@Entity
+@Table(name = "section_sales")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SectionSales {
+
+    @Id
+    private Long ticketSectionId;
+
+    @Column(nullable = false)
+    private Long matchId;
+
+    @Column(nullable = false)
+    private long bookingsCreated;
+
+    @Column(nullable = false)
+    private long bookingsPaid;
+
+    @Column(nullable = false)
+    private long bookingsCancelled;
+
+    // Net of tickets taken back after payment
+    @Column(nullable = false)
+    private long ticketsSold;
+
+    @Column(nullable = false)
+    private long ticketsRefunded;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
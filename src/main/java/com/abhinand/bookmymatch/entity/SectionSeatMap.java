@@ -0,0 +1,41 @@
+package com.abhinand.bookmymatch.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+
+/**
+ * Seat-level layout of a ticket section: one bit per seat, row-major, set when the seat is taken.
+ * Kept out of ticket_sections so section listings don't drag the bitmap along.
+ */
+@Entity
+@Table(name = "section_seat_maps")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SectionSeatMap {
+    
+    @Id
+    private Long id;
+    
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "ticket_section_id")
+    private TicketSection ticketSection;
+    
+    @Column(nullable = false)
+    private Integer rowCount;
+    
+    @Column(nullable = false)
+    private Integer seatsPerRow;
+    
+    @Column(nullable = false, length = 1 << 20)
+    private byte[] takenSeats;
+    
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version; // null until persisted, so Spring Data persists instead of merging
+}
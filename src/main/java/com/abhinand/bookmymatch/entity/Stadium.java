@@ -16,7 +16,8 @@ import java.util.List;
 public class Stadium {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stadiums_seq")
+    @SequenceGenerator(name = "stadiums_seq", sequenceName = "stadiums_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false, unique = true)
@@ -2,6 +2,7 @@ package com.abhinand.bookmymatch.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 import java.math.BigDecimal;
 
 @Entity
@@ -14,7 +15,8 @@ import java.math.BigDecimal;
 public class TicketSection {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ticket_sections_seq")
+    @SequenceGenerator(name = "ticket_sections_seq", sequenceName = "ticket_sections_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -36,6 +38,12 @@ public class TicketSection {
     @Column(length = 500)
     private String description;
     
+    // Also bumped by the conditional seat updates in TicketSectionRepository
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version; // null until persisted, so Spring Data persists instead of merging
+    
     // Helper methods
     public boolean isSoldOut() {
         return availableSeats <= 0;
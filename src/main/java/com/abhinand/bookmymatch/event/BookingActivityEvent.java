@@ -0,0 +1,29 @@
+package com.abhinand.bookmymatch.event;
+
+import com.abhinand.bookmymatch.entity.Booking;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Published when bookings of a ticket section are created, paid for or cancelled, with how many bookings,
+ * tickets and how much money moved. Sales figures are kept up to date from these rather than by re-reading
+ * bookings; one event may stand for several bookings of the same section and activity.
+ */
+public record BookingActivityEvent(Long matchId, Long ticketSectionId, Activity activity,
+                                   int bookings, int tickets, BigDecimal amount, LocalDateTime occurredAt) {
+
+    public static BookingActivityEvent of(Booking booking, Activity activity) {
+        return new BookingActivityEvent(booking.getMatch().getId(), booking.getTicketSection().getId(), activity,
+                1, booking.getNumberOfTickets(), booking.getTotalPrice(), LocalDateTime.now());
+    }
+
+    public enum Activity {
+        CREATED,
+        PAID,
+        // Cancelled before payment, by the user or with the match; nothing had been sold
+        CANCELLED,
+        // Cancelled after payment, by the user or with the match; the tickets and revenue are taken back
+        CANCELLED_AFTER_PAYMENT
+    }
+}
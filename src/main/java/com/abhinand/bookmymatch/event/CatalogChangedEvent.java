@@ -0,0 +1,29 @@
+package com.abhinand.bookmymatch.event;
+
+/**
+ * Published when anything shown in the match catalog changes. matchId is null when the change
+ * can touch many matches (a team or stadium edit); teamId or stadiumId then says which one changed.
+ * All three are null after a bulk change such as an import: listeners reload rather than go match by match.
+ */
+public record CatalogChangedEvent(Long matchId, Long teamId, Long stadiumId) {
+
+    public CatalogChangedEvent(Long matchId) {
+        this(matchId, null, null);
+    }
+
+    public static CatalogChangedEvent team(Long teamId) {
+        return new CatalogChangedEvent(null, teamId, null);
+    }
+
+    public static CatalogChangedEvent stadium(Long stadiumId) {
+        return new CatalogChangedEvent(null, null, stadiumId);
+    }
+
+    public static CatalogChangedEvent everything() {
+        return new CatalogChangedEvent(null, null, null);
+    }
+
+    public boolean isEverything() {
+        return matchId == null && teamId == null && stadiumId == null;
+    }
+}
@@ -0,0 +1,8 @@
+package com.abhinand.bookmymatch.event;
+
+/**
+ * Published whenever seats of a ticket section are taken or given back. Listeners read the new
+ * count themselves, so the event only says which section to look at.
+ */
+public record SeatInventoryChangedEvent(Long ticketSectionId) {
+}
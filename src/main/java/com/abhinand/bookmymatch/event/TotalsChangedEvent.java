@@ -0,0 +1,20 @@
+package com.abhinand.bookmymatch.event;
+
+/**
+ * Published by write paths with how many matches, teams or stadiums they added (negative: removed) for the
+ * site-wide totals on the admin dashboard. Booking figures come from {@link BookingActivityEvent}s instead.
+ */
+public record TotalsChangedEvent(long matches, long teams, long stadiums) {
+
+    public static TotalsChangedEvent matches(long count) {
+        return new TotalsChangedEvent(count, 0, 0);
+    }
+
+    public static TotalsChangedEvent teams(long count) {
+        return new TotalsChangedEvent(0, count, 0);
+    }
+
+    public static TotalsChangedEvent stadiums(long count) {
+        return new TotalsChangedEvent(0, 0, count);
+    }
+}
@@ -1,19 +1,174 @@
 package com.abhinand.bookmymatch.repository;
 
 import com.abhinand.bookmymatch.entity.Booking;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, Long> {
     
+    // Ticket, checkout and payment pages
+    @EntityGraph(attributePaths = {"match.homeTeam", "match.awayTeam", "match.stadium", "ticketSection", "user"})
     Optional<Booking> findByBookingCode(String bookingCode);
     
-    List<Booking> findByUserIdOrderByBookedAtDesc(Long userId);
+    @EntityGraph(attributePaths = {"match.homeTeam", "match.awayTeam", "match.stadium", "ticketSection", "user"})
+    Optional<Booking> findWithDetailsById(Long id);
+    
+    // My tickets, newest first; later pages seek past the last (bookedAt, id) shown
+    @EntityGraph(attributePaths = {"match.homeTeam", "match.awayTeam", "match.stadium", "ticketSection"})
+    List<Booking> findByUserIdOrderByBookedAtDescIdDesc(Long userId, Limit limit);
+    
+    @EntityGraph(attributePaths = {"match.homeTeam", "match.awayTeam", "match.stadium", "ticketSection"})
+    @Query("SELECT b FROM Booking b WHERE b.user.id = :userId " +
+           "AND (b.bookedAt, b.id) < (:bookedAt, :id) " +
+           "ORDER BY b.bookedAt DESC, b.id DESC")
+    List<Booking> findByUserIdBefore(Long userId, LocalDateTime bookedAt, Long id, Limit limit);
+    
+    // Cart checkout
+    @EntityGraph(attributePaths = {"match.homeTeam", "match.awayTeam", "match.stadium", "ticketSection"})
+    List<Booking> findByCartCodeOrderByIdAsc(String cartCode);
     
     List<Booking> findByMatchIdOrderByBookedAtDesc(Long matchId);
     
-    List<Booking> findAllByOrderByBookedAtDesc();
+    // Admin bookings, same ordering and seek as my tickets
+    @EntityGraph(attributePaths = {"match.homeTeam", "match.awayTeam", "ticketSection", "user"})
+    List<Booking> findByOrderByBookedAtDescIdDesc(Limit limit);
+    
+    @EntityGraph(attributePaths = {"match.homeTeam", "match.awayTeam", "ticketSection", "user"})
+    @Query("SELECT b FROM Booking b WHERE (b.bookedAt, b.id) < (:bookedAt, :id) " +
+           "ORDER BY b.bookedAt DESC, b.id DESC")
+    List<Booking> findBefore(LocalDateTime bookedAt, Long id, Limit limit);
+    
+    List<SeatHoldView> findByStatusAndHoldExpiresAtIsNotNull(Booking.BookingStatus status);
+    
+    // Cancelled while a PaymentIntent was open: Stripe still has to say whether it was charged
+    List<SeatHoldView> findByStatusAndPaymentStatus(Booking.BookingStatus status, Booking.PaymentStatus paymentStatus);
+    
+    @Query("SELECT b.holdExpiresAt FROM Booking b WHERE b.id = :bookingId")
+    LocalDateTime findHoldExpiresAtById(Long bookingId);
+    
+    boolean existsByCartCodeAndStatus(String cartCode, Booking.BookingStatus status);
+    
+    // Status transitions are conditional so payment, expiry and cancellation can't overwrite each other
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Booking b SET b.status = 'CANCELLED', b.holdExpiresAt = null " +
+           "WHERE b.id = :bookingId AND b.status = 'PENDING_PAYMENT' AND b.holdExpiresAt <= :now")
+    int expireHold(Long bookingId, LocalDateTime now);
+    
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Booking b SET b.status = 'CONFIRMED', b.paymentStatus = 'COMPLETED', b.paidAt = :paidAt, " +
+           "b.paymentMethod = coalesce(:paymentMethod, b.paymentMethod), b.holdExpiresAt = null " +
+           "WHERE b.id = :bookingId AND b.status = 'PENDING_PAYMENT'")
+    int confirmPayment(Long bookingId, String paymentMethod, LocalDateTime paidAt);
+    
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Booking b SET b.status = 'CANCELLED', b.holdExpiresAt = null " +
+           "WHERE b.id = :bookingId AND b.status IN :statuses")
+    int cancel(Long bookingId, Collection<Booking.BookingStatus> statuses);
+    
+    // The first intent extends the hold to the payment window; a booking never gets a second intent,
+    // so the one hold expiry settles with Stripe is the only one that can be charged
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Booking b SET b.paymentIntentId = :paymentIntentId, b.paymentStatus = 'PROCESSING', " +
+           "b.holdExpiresAt = CASE WHEN b.paymentIntentId IS NULL THEN :holdExpiresAt ELSE b.holdExpiresAt END " +
+           "WHERE b.id = :bookingId AND b.status = 'PENDING_PAYMENT' AND b.holdExpiresAt > :now " +
+           "AND (b.paymentIntentId IS NULL OR b.paymentIntentId = :paymentIntentId)")
+    int attachPaymentIntent(Long bookingId, String paymentIntentId, LocalDateTime holdExpiresAt, LocalDateTime now);
+    
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Booking b SET b.status = 'CONFIRMED', b.paymentStatus = 'COMPLETED', b.paidAt = :paidAt, " +
+           "b.paymentMethod = coalesce(:paymentMethod, b.paymentMethod), b.holdExpiresAt = null " +
+           "WHERE b.cartCode = :cartCode AND b.status = 'PENDING_PAYMENT'")
+    int confirmCartPayment(String cartCode, String paymentMethod, LocalDateTime paidAt);
+    
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Booking b SET b.paymentIntentId = :paymentIntentId, b.paymentStatus = 'PROCESSING', " +
+           "b.holdExpiresAt = CASE WHEN b.paymentIntentId IS NULL THEN :holdExpiresAt ELSE b.holdExpiresAt END " +
+           "WHERE b.cartCode = :cartCode AND b.status = 'PENDING_PAYMENT' AND b.holdExpiresAt > :now " +
+           "AND (b.paymentIntentId IS NULL OR b.paymentIntentId = :paymentIntentId)")
+    int attachCartPaymentIntent(String cartCode, String paymentIntentId, LocalDateTime holdExpiresAt, LocalDateTime now);
+    
+    // Settling the intent of cancelled bookings: either it was called off before anyone paid, or it was refunded
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Booking b SET b.paymentStatus = 'FAILED' " +
+           "WHERE b.paymentIntentId = :paymentIntentId AND b.status = 'CANCELLED' AND b.paymentStatus = 'PROCESSING'")
+    int markPaymentVoided(String paymentIntentId);
+    
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Booking b SET b.paymentStatus = 'REFUNDED' " +
+           "WHERE b.id = :bookingId AND b.status = 'CANCELLED' AND b.paymentStatus = 'PROCESSING'")
+    int markCancelledPaymentRefunded(Long bookingId);
+    
+    // Keyset pages of a match's bookings, so a sold-out stadium is never loaded at once. The rows stay locked
+    // until the caller's transaction ends, so what it reports about them is what its updates changed
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b.id AS id, b.match.id AS matchId, b.ticketSection.id AS ticketSectionId, b.status AS status, " +
+           "b.numberOfTickets AS numberOfTickets, b.totalPrice AS totalPrice FROM Booking b " +
+           "WHERE b.match.id = :matchId AND b.status IN :statuses AND b.id > :afterId ORDER BY b.id")
+    List<ActivityView> lockByMatchAndStatus(Long matchId, Collection<Booking.BookingStatus> statuses, Long afterId, Limit limit);
+    
+    @Query("SELECT b.id AS id, b.paymentIntentId AS paymentIntentId, b.totalPrice AS totalPrice FROM Booking b " +
+           "WHERE b.match.id = :matchId AND b.status = 'REFUNDED' AND b.paymentStatus = 'COMPLETED' AND b.id > :afterId " +
+           "ORDER BY b.id")
+    List<RefundView> findRefundsDue(Long matchId, Long afterId, Limit limit);
+    
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Booking b SET b.status = 'CANCELLED', b.holdExpiresAt = null " +
+           "WHERE b.id IN :bookingIds AND b.status = 'PENDING_PAYMENT'")
+    int cancelPending(Collection<Long> bookingIds);
+    
+    // Paid bookings of a cancelled match owe a refund until paymentStatus is REFUNDED too
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Booking b SET b.status = 'REFUNDED' WHERE b.id IN :bookingIds AND b.status = 'CONFIRMED'")
+    int markRefundDue(Collection<Long> bookingIds);
+    
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Booking b SET b.paymentStatus = 'REFUNDED' " +
+           "WHERE b.id = :bookingId AND b.status = 'REFUNDED' AND b.paymentStatus = 'COMPLETED'")
+    int markRefunded(Long bookingId);
+    
+    // Dashboard totals in one pass: every booking is counted, seats and revenue only once paid
+    @Query("SELECT count(b) AS bookings, sum(b.numberOfTickets) FILTER (WHERE b.status = 'CONFIRMED') AS seats, " +
+           "sum(b.totalPrice) FILTER (WHERE b.status = 'CONFIRMED') AS revenue FROM Booking b")
+    SalesView sumSales();
+    
+    long countByBookedAtGreaterThanEqual(LocalDateTime bookedAt);
+    
+    // Sums are null when nothing matched
+    interface SalesView {
+        long getBookings();
+        Long getSeats();
+        BigDecimal getRevenue();
+    }
+    
+    interface ActivityView {
+        Long getId();
+        Long getMatchId();
+        Long getTicketSectionId();
+        Booking.BookingStatus getStatus();
+        Integer getNumberOfTickets();
+        BigDecimal getTotalPrice();
+    }
+    
+    interface RefundView {
+        Long getId();
+        String getPaymentIntentId();
+        BigDecimal getTotalPrice();
+    }
+    
+    interface SeatHoldView {
+        Long getId();
+        LocalDateTime getHoldExpiresAt();
+    }
 }
@@ -1,21 +1,95 @@
 package com.abhinand.bookmymatch.repository;
 
 import com.abhinand.bookmymatch.entity.Match;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface MatchRepository extends JpaRepository<Match, Long> {
 
-    @Query("SELECT m FROM Match m WHERE m.status = 'UPCOMING' AND m.matchDateTime > :now ORDER BY m.matchDateTime ASC")
-    List<Match> findUpcomingMatches(LocalDateTime now);
+    // Teams and stadium are fetched with the match: every match view shows them.
+    // Matches leave UPCOMING at kick-off (MatchLifecycleScheduler), so the status alone decides
+    @Query("SELECT m FROM Match m JOIN FETCH m.homeTeam JOIN FETCH m.awayTeam JOIN FETCH m.stadium " +
+           "WHERE m.status = 'UPCOMING' ORDER BY m.matchDateTime ASC")
+    List<Match> findUpcomingMatches();
+
+    @EntityGraph(attributePaths = {"homeTeam", "awayTeam", "stadium"})
+    Optional<Match> findWithDetailsById(Long id);
+
+    // Admin listing, latest kick-off first; later pages seek past the last (matchDateTime, id) shown
+    @EntityGraph(attributePaths = {"homeTeam", "awayTeam", "stadium"})
+    List<Match> findByOrderByMatchDateTimeDescIdDesc(Limit limit);
+
+    // Row-value comparison, so the seek is a single range scan of idx_matches_date_time_id
+    @EntityGraph(attributePaths = {"homeTeam", "awayTeam", "stadium"})
+    @Query("SELECT m FROM Match m WHERE (m.matchDateTime, m.id) < (:matchDateTime, :id) " +
+           "ORDER BY m.matchDateTime DESC, m.id DESC")
+    List<Match> findBefore(LocalDateTime matchDateTime, Long id, Limit limit);
+
+    @EntityGraph(attributePaths = {"homeTeam", "awayTeam", "stadium"})
+    List<Match> findWithDetailsByIdIn(Collection<Long> ids);
+
+    // Just the ids and fields the search index keeps
+    @Query("SELECT m.id AS id, m.homeTeam.id AS homeTeamId, m.awayTeam.id AS awayTeamId, m.stadium.id AS stadiumId, " +
+           "m.competition AS competition, m.matchDateTime AS matchDateTime, m.status AS status " +
+           "FROM Match m WHERE m.status = 'UPCOMING'")
+    List<SearchView> findUpcomingSearchViews();
+
+    @Query("SELECT m.id AS id, m.homeTeam.id AS homeTeamId, m.awayTeam.id AS awayTeamId, m.stadium.id AS stadiumId, " +
+           "m.competition AS competition, m.matchDateTime AS matchDateTime, m.status AS status " +
+           "FROM Match m WHERE m.id = :id")
+    Optional<SearchView> findSearchViewById(Long id);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Match m SET m.status = :status WHERE m.id = :matchId")
+    int updateStatus(Long matchId, Match.MatchStatus status);
+
+    // Matches that still have a lifecycle transition ahead; served by idx_matches_unfinished_date_time
+    @Query("SELECT m.id AS id, m.matchDateTime AS matchDateTime, m.status AS status, m.bookingClosed AS bookingClosed " +
+           "FROM Match m WHERE m.status IN ('UPCOMING', 'LIVE')")
+    List<LifecycleView> findUnfinishedLifecycles();
+
+    @Query("SELECT m.id AS id, m.matchDateTime AS matchDateTime, m.status AS status, m.bookingClosed AS bookingClosed " +
+           "FROM Match m WHERE m.id = :id")
+    Optional<LifecycleView> findLifecycleById(Long id);
+
+    // Conditional, so a transition that was already applied (or overtaken by an admin) is a no-op
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Match m SET m.bookingClosed = true WHERE m.id = :matchId AND m.status = 'UPCOMING' AND m.bookingClosed = false")
+    int closeBooking(Long matchId);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Match m SET m.status = :to, m.bookingClosed = true WHERE m.id = :matchId AND m.status = :from")
+    int transition(Long matchId, Match.MatchStatus from, Match.MatchStatus to);
 
     List<Match> findByStadiumIdOrderByMatchDateTimeDesc(Long stadiumId);
 
     @Query("SELECT m FROM Match m WHERE m.homeTeam.id = :teamId OR m.awayTeam.id = :teamId ORDER BY m.matchDateTime DESC")
     List<Match> findByTeamId(Long teamId);
+
+    interface LifecycleView {
+        Long getId();
+        LocalDateTime getMatchDateTime();
+        Match.MatchStatus getStatus();
+        boolean isBookingClosed();
+    }
+
+    interface SearchView {
+        Long getId();
+        Long getHomeTeamId();
+        Long getAwayTeamId();
+        Long getStadiumId();
+        String getCompetition();
+        LocalDateTime getMatchDateTime();
+        Match.MatchStatus getStatus();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package com.abhinand.bookmymatch.repository;
+
+import com.abhinand.bookmymatch.entity.SalesBucket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SalesBucketRepository extends JpaRepository<SalesBucket, SalesBucket.Key> {
+    
+    // A match's curve, its sections added together per bucket
+    @Query("SELECT b.bucketStart AS bucketStart, sum(b.bookingsCreated) AS bookingsCreated, " +
+           "sum(b.bookingsCancelled) AS bookingsCancelled, sum(b.ticketsSold) AS ticketsSold, sum(b.revenue) AS revenue " +
+           "FROM SalesBucket b WHERE b.matchId = :matchId AND b.resolution = :resolution AND b.bucketStart >= :since " +
+           "GROUP BY b.bucketStart ORDER BY b.bucketStart")
+    List<CurvePointView> findCurve(Long matchId, SalesBucket.Resolution resolution, LocalDateTime since);
+    
+    // Tickets sold since a point in time, per section of a match
+    @Query("SELECT b.ticketSectionId AS ticketSectionId, sum(b.ticketsSold) AS ticketsSold FROM SalesBucket b " +
+           "WHERE b.matchId = :matchId AND b.resolution = :resolution AND b.bucketStart >= :since " +
+           "GROUP BY b.ticketSectionId")
+    List<SectionTicketsView> sumTicketsBySection(Long matchId, SalesBucket.Resolution resolution, LocalDateTime since);
+    
+    @Query("SELECT b.matchId AS matchId, sum(b.ticketsSold) AS ticketsSold FROM SalesBucket b " +
+           "WHERE b.matchId IN :matchIds AND b.resolution = :resolution AND b.bucketStart >= :since " +
+           "GROUP BY b.matchId")
+    List<MatchTicketsView> sumTicketsByMatch(Collection<Long> matchIds, SalesBucket.Resolution resolution, LocalDateTime since);
+    
+    @Modifying
+    @Query("DELETE FROM SalesBucket b WHERE b.resolution = :resolution AND b.bucketStart < :before")
+    int deleteOlderThan(SalesBucket.Resolution resolution, LocalDateTime before);
+    
+    interface CurvePointView {
+        LocalDateTime getBucketStart();
+        long getBookingsCreated();
+        long getBookingsCancelled();
+        long getTicketsSold();
+        BigDecimal getRevenue();
+    }
+    
+    interface SectionTicketsView {
+        Long getTicketSectionId();
+        long getTicketsSold();
+    }
+    
+    interface MatchTicketsView {
+        Long getMatchId();
+        long getTicketsSold();
+    }
+}
@@ -0,0 +1,32 @@
+package com.abhinand.bookmymatch.repository;
+
+import com.abhinand.bookmymatch.entity.SectionSales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SectionSalesRepository extends JpaRepository<SectionSales, Long> {
+    
+    List<SectionSales> findByMatchId(Long matchId);
+    
+    // Match rollups are the sum of their sections' rows, a handful per match
+    @Query("SELECT s.matchId AS matchId, sum(s.bookingsCreated) AS bookingsCreated, sum(s.bookingsPaid) AS bookingsPaid, " +
+           "sum(s.bookingsCancelled) AS bookingsCancelled, sum(s.ticketsSold) AS ticketsSold, " +
+           "sum(s.ticketsRefunded) AS ticketsRefunded, sum(s.revenue) AS revenue " +
+           "FROM SectionSales s WHERE s.matchId IN :matchIds GROUP BY s.matchId")
+    List<MatchSalesView> sumByMatchIds(Collection<Long> matchIds);
+    
+    interface MatchSalesView {
+        Long getMatchId();
+        long getBookingsCreated();
+        long getBookingsPaid();
+        long getBookingsCancelled();
+        long getTicketsSold();
+        long getTicketsRefunded();
+        BigDecimal getRevenue();
+    }
+}
@@ -0,0 +1,12 @@
+package com.abhinand.bookmymatch.repository;
+
+import com.abhinand.bookmymatch.entity.SectionSeatMap;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface SectionSeatMapRepository extends JpaRepository<SectionSeatMap, Long> {
+
+    List<SectionSeatMap> findByTicketSectionMatchId(Long matchId);
+}
@@ -1,8 +1,10 @@
 package com.abhinand.bookmymatch.repository;
 
 import com.abhinand.bookmymatch.entity.Stadium;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +13,7 @@ public interface StadiumRepository extends JpaRepository<Stadium, Long> {
     Optional<Stadium> findByName(String name);
     
     boolean existsByName(String name);
+    
+    // Admin listing in id order; later pages seek past the last id shown
+    List<Stadium> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
 }
@@ -2,13 +2,56 @@ package com.abhinand.bookmymatch.repository;
 
 import com.abhinand.bookmymatch.entity.TicketSection;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface TicketSectionRepository extends JpaRepository<TicketSection, Long> {
-    
+
     List<TicketSection> findByMatchId(Long matchId);
-    
+
     List<TicketSection> findByMatchIdOrderByPricePerTicketAsc(Long matchId);
+
+    List<TicketSection> findByMatchIdInOrderByPricePerTicketAsc(Collection<Long> matchIds);
+
+    // Decrements only when enough seats are left and the match is still upcoming; returns 0 otherwise.
+    // The match row is share-locked until commit, so cancelling a match waits for bookings already past this
+    // point and every later one sees the new status
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE ticket_sections t SET available_seats = t.available_seats - :seats, version = t.version + 1 " +
+                   "WHERE t.id = :sectionId AND t.available_seats >= :seats AND EXISTS (" +
+                   "SELECT 1 FROM matches m WHERE m.id = t.match_id AND m.status = 'UPCOMING' FOR SHARE)",
+           nativeQuery = true)
+    int reserveSeats(Long sectionId, int seats);
+
+    // Never lets availableSeats climb above totalSeats
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE TicketSection t SET t.availableSeats = least(t.availableSeats + :seats, t.totalSeats), " +
+           "t.version = t.version + 1 " +
+           "WHERE t.id = :sectionId")
+    int releaseSeats(Long sectionId, int seats);
+
+    // Gives every seat of the match back in one statement
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE TicketSection t SET t.availableSeats = t.totalSeats, t.version = t.version + 1 " +
+           "WHERE t.match.id = :matchId")
+    int resetSeatsForMatch(Long matchId);
+
+    @Query("SELECT t.availableSeats FROM TicketSection t WHERE t.id = :sectionId")
+    Integer findAvailableSeatsById(Long sectionId);
+
+    // The version tells readers which of two counts they saw is the newer one
+    @Query("SELECT t.id AS id, t.availableSeats AS availableSeats, t.version AS version " +
+           "FROM TicketSection t WHERE t.id = :sectionId")
+    Optional<InventoryView> findInventoryById(Long sectionId);
+
+    interface InventoryView {
+        Long getId();
+        Integer getAvailableSeats();
+        Long getVersion();
+    }
 }
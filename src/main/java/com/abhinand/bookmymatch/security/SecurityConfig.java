@@ -3,6 +3,7 @@ package com.abhinand.bookmymatch.security;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -46,10 +47,17 @@ public class SecurityConfig {
                         .requestMatchers("/", "/home", "/register", "/login",
                                 "/css/**", "/js/**", "/images/**",
                                 "/uploads/**", "/uploads/stadiums/**", "/uploads/teams/**").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        // Waiting room polling stays session-free
+                        .requestMatchers("/queue/*/status").permitAll()
+                        // Public catalog: rendered the same for everyone so shared caches can serve it
+                        .requestMatchers(HttpMethod.GET, "/matches", "/matches/search", "/matches/*",
+                                "/matches/*/availability", "/matches/*/availability/stream",
+                                "/matches/*/booking", "/session/menu").permitAll()
                         // Authenticated
                         .requestMatchers("/change-password").authenticated()
                         // Admin only
-                        .requestMatchers("/admin/**").hasRole("ADMIN")
+                        .requestMatchers("/admin/**", "/actuator/**").hasRole("ADMIN")
                         // User and Admin
                         .requestMatchers("/matches/**", "/booking/**", "/tickets/**", "/payment/**").hasAnyRole("USER", "ADMIN")
                         // All other requests need authentication
@@ -0,0 +1,347 @@
+package com.abhinand.bookmymatch.service;
+
+import com.abhinand.bookmymatch.event.CatalogChangedEvent;
+import com.abhinand.bookmymatch.event.SeatInventoryChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes seat availability to match pages over server-sent events. Seat changes only mark their match
+ * dirty; a single flusher turns each dirty match into at most one delta per interval, serialises it once
+ * and hands the same message to every subscriber. Subscribers hold no request thread: each has a small
+ * bounded queue drained by a shared sender pool, and one that lets its queue fill up is disconnected.
+ * So is one whose write has been blocked for longer than the send timeout; the pool gets an extra thread
+ * until the container's write timeout frees the stuck one, so a slow client never holds up other matches.
+ */
+@Service
+@Slf4j
+public class AvailabilityBroadcaster {
+
+    private static final long RECONNECT_MILLIS = 5000;
+    private static final long STALLED = -1;
+
+    private final MatchCatalog matchCatalog;
+    private final ObjectMapper objectMapper;
+    private final int queueCapacity;
+    private final long timeoutMillis;
+    private final int senderThreads;
+    private final long sendTimeoutNanos;
+
+    private final Map<Long, Channel> channels = new ConcurrentHashMap<>();
+    private final Set<Long> dirtyMatches = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final Counter slowDisconnects;
+    private final ScheduledExecutorService flusher;
+    private final ThreadPoolExecutor senders;
+    private int stalledSenders;
+
+    public AvailabilityBroadcaster(MatchCatalog matchCatalog,
+                                   ObjectMapper objectMapper,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${booking.availability.stream.flush-interval-ms:500}") long flushIntervalMillis,
+                                   @Value("${booking.availability.stream.heartbeat-seconds:20}") long heartbeatSeconds,
+                                   @Value("${booking.availability.stream.queue-capacity:8}") int queueCapacity,
+                                   @Value("${booking.availability.stream.sender-threads:4}") int senderThreads,
+                                   @Value("${booking.availability.stream.send-timeout-ms:2000}") long sendTimeoutMillis,
+                                   @Value("${booking.availability.stream.timeout-minutes:30}") long timeoutMinutes) {
+        this.matchCatalog = matchCatalog;
+        this.objectMapper = objectMapper;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.timeoutMillis = TimeUnit.MINUTES.toMillis(timeoutMinutes);
+        this.senderThreads = Math.max(1, senderThreads);
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(100, sendTimeoutMillis));
+
+        Gauge.builder("availability.stream.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open availability streams")
+                .register(meterRegistry);
+        this.slowDisconnects = Counter.builder("availability.stream.slow.disconnects")
+                .description("Availability streams closed because the client could not keep up")
+                .register(meterRegistry);
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(daemonThreads("availability-flush"));
+        this.senders = new ThreadPoolExecutor(this.senderThreads, this.senderThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), daemonThreads("availability-send"));
+        long interval = Math.max(10, flushIntervalMillis);
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        flusher.scheduleWithFixedDelay(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        long watchInterval = TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos) / 2;
+        flusher.scheduleWithFixedDelay(this::dropStalledSubscribers, watchInterval, watchInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**Opens a stream for the match; the first event carries every section, later ones only what changed*/
+
+    public SseEmitter subscribe(Long matchId) {
+        // Unknown matches fail here, before a stream is opened
+        matchCatalog.getMatch(matchId);
+        Subscriber subscriber = new Subscriber(matchId, new SseEmitter(timeoutMillis));
+        subscriber.emitter.onCompletion(() -> unsubscribe(subscriber));
+        subscriber.emitter.onTimeout(() -> unsubscribe(subscriber));
+        subscriber.emitter.onError(e -> unsubscribe(subscriber));
+
+        subscriberCount.incrementAndGet();
+        // Joined on the flusher thread, so no delta is broadcast between joining and queueing the snapshot
+        flusher.execute(() -> join(subscriber));
+        return subscriber.emitter;
+    }
+
+    // Ordered after MatchCatalog's listeners so the flusher never reads the card before the change is in
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSeatInventoryChanged(SeatInventoryChangedEvent event) {
+        Long matchId = matchCatalog.findMatchIdBySection(event.ticketSectionId());
+        if (matchId != null && channels.containsKey(matchId)) {
+            dirtyMatches.add(matchId);
+        }
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.matchId() != null && channels.containsKey(event.matchId())) {
+            dirtyMatches.add(event.matchId());
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    private void join(Subscriber subscriber) {
+        try {
+            channels.compute(subscriber.matchId, (id, channel) -> {
+                if (subscriber.closed.get()) {
+                    return channel;
+                }
+                Channel joined = channel != null ? channel : new Channel();
+                joined.subscribers.add(subscriber);
+                return joined;
+            });
+            // Taken after joining: a change the snapshot misses has already marked the match dirty
+            MatchAvailability snapshot = matchCatalog.getAvailability(subscriber.matchId);
+            Channel channel = channels.get(subscriber.matchId);
+            if (channel != null && channel.lastSent == null) {
+                channel.lastSent = snapshot;
+            }
+            subscriber.offer(message(snapshot, RECONNECT_MILLIS));
+        } catch (RuntimeException e) {
+            log.debug("Could not open availability stream for match {}", subscriber.matchId, e);
+            subscriber.close();
+        }
+    }
+
+    private void flush() {
+        for (Long matchId : dirtyMatches) {
+            dirtyMatches.remove(matchId);
+            Channel channel = channels.get(matchId);
+            if (channel == null) {
+                continue;
+            }
+            try {
+                MatchAvailability current = matchCatalog.getAvailability(matchId);
+                if (current.sameAs(channel.lastSent)) {
+                    continue;
+                }
+                Set<ResponseBodyEmitter.DataWithMediaType> delta = message(current.changesSince(channel.lastSent), null);
+                channel.lastSent = current;
+                channel.subscribers.forEach(subscriber -> subscriber.offer(delta));
+            } catch (IllegalArgumentException e) {
+                // Match deleted: nothing more will be sent
+                channel.subscribers.forEach(Subscriber::close);
+            } catch (RuntimeException e) {
+                log.warn("Could not broadcast availability of match {}", matchId, e);
+            }
+        }
+    }
+
+    // Keeps proxies from dropping idle streams and finds clients that went away
+    private void heartbeat() {
+        try {
+            Set<ResponseBodyEmitter.DataWithMediaType> ping = SseEmitter.event().comment("ping").build();
+            channels.values().forEach(channel -> channel.subscribers.forEach(subscriber -> subscriber.offer(ping)));
+        } catch (RuntimeException e) {
+            log.warn("Availability heartbeat failed", e);
+        }
+    }
+
+    // A write blocked past the timeout means the client stopped reading; its thread is replaced meanwhile
+    private void dropStalledSubscribers() {
+        long now = System.nanoTime();
+        channels.values().forEach(channel -> channel.subscribers.forEach(subscriber -> {
+            long started = subscriber.sendStartedAt.get();
+            if (started > 0 && now - started > sendTimeoutNanos && subscriber.sendStartedAt.compareAndSet(started, STALLED)) {
+                slowDisconnects.increment();
+                resizeSenders(1);
+                subscriber.close();
+            }
+        }));
+    }
+
+    private synchronized void resizeSenders(int stalledDelta) {
+        stalledSenders += stalledDelta;
+        int size = senderThreads + stalledSenders;
+        // The core size may never exceed the maximum, so the order depends on the direction
+        if (stalledDelta > 0) {
+            senders.setMaximumPoolSize(size);
+            senders.setCorePoolSize(size);
+        } else {
+            senders.setCorePoolSize(size);
+            senders.setMaximumPoolSize(size);
+        }
+    }
+
+    // Built and serialised once, then shared by every subscriber of the match
+    private Set<ResponseBodyEmitter.DataWithMediaType> message(MatchAvailability availability, Long reconnectMillis) {
+        try {
+            SseEmitter.SseEventBuilder event = SseEmitter.event()
+                    .name("availability")
+                    .id(availability.version())
+                    .data(objectMapper.writeValueAsString(availability), MediaType.APPLICATION_JSON);
+            if (reconnectMillis != null) {
+                event.reconnectTime(reconnectMillis);
+            }
+            return event.build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialise availability", e);
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscriber.closed.set(true);
+        if (subscriber.registered.getAndSet(false)) {
+            subscriberCount.decrementAndGet();
+            channels.computeIfPresent(subscriber.matchId, (id, channel) -> {
+                channel.subscribers.remove(subscriber);
+                return channel.subscribers.isEmpty() ? null : channel;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        senders.shutdownNow();
+        channels.values().forEach(channel -> channel.subscribers.forEach(Subscriber::close));
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class Channel {
+        private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        // Only touched by the flusher, which sets it as the first subscriber joins
+        private volatile MatchAvailability lastSent;
+    }
+
+    private final class Subscriber {
+        private final Long matchId;
+        private final SseEmitter emitter;
+        private final Queue<Set<ResponseBodyEmitter.DataWithMediaType>> pending = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicBoolean registered = new AtomicBoolean(true);
+        // System.nanoTime() when the current write began, 0 between writes, STALLED once given up on
+        private final AtomicLong sendStartedAt = new AtomicLong();
+        // Only touched by the one sender draining this subscriber
+        private volatile boolean completed;
+
+        private Subscriber(Long matchId, SseEmitter emitter) {
+            this.matchId = matchId;
+            this.emitter = emitter;
+        }
+
+        private void offer(Set<ResponseBodyEmitter.DataWithMediaType> message) {
+            if (closed.get()) {
+                return;
+            }
+            if (!pending.offer(message)) {
+                // Still stuck on older messages: drop the client rather than buffer for it
+                slowDisconnects.increment();
+                close();
+                return;
+            }
+            schedule();
+        }
+
+        // Completing is left to a sender: the emitter's methods block while a write to this client is stuck
+        private void close() {
+            unsubscribe(this);
+            pending.clear();
+            schedule();
+        }
+
+        private void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RuntimeException e) {
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                Set<ResponseBodyEmitter.DataWithMediaType> message;
+                while (!closed.get() && (message = pending.poll()) != null) {
+                    sendStartedAt.set(System.nanoTime());
+                    try {
+                        emitter.send(message);
+                    } finally {
+                        if (sendStartedAt.getAndSet(0) == STALLED) {
+                            resizeSenders(-1);
+                        }
+                    }
+                }
+                if (closed.get() && !completed) {
+                    completed = true;
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client gone or stream already finished; the container completes the emitter itself
+                completed = true;
+                unsubscribe(this);
+            } finally {
+                draining.set(false);
+            }
+            // Work that arrived while this drain was finishing
+            if (closed.get() ? !completed : !pending.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
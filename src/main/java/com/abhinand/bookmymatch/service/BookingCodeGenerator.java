@@ -0,0 +1,9 @@
+package com.abhinand.bookmymatch.service;
+
+/**
+ * Source of booking (and cart) codes. Codes must be unique across every running instance.
+ */
+public interface BookingCodeGenerator {
+
+    String nextCode();
+}
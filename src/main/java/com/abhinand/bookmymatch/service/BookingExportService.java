@@ -0,0 +1,283 @@
+package com.abhinand.bookmymatch.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams bookings for finance as CSV or NDJSON. A single forward-only query joins in the match, teams,
+ * stadium, section and user, and each row is written as soon as it is fetched, fetch-size rows at a time,
+ * so memory stays flat however many bookings are exported. The query runs in a read-only transaction
+ * because PostgreSQL only reads through a cursor when autocommit is off.
+ */
+@Service
+@Slf4j
+public class BookingExportService {
+
+    private static final Column[] COLUMNS = {
+            new Column("booking_id", "b.id", Type.NUMBER),
+            new Column("booking_code", "b.booking_code", Type.TEXT),
+            new Column("cart_code", "b.cart_code", Type.TEXT),
+            new Column("booked_at", "b.booked_at", Type.TIMESTAMP),
+            new Column("status", "b.status", Type.TEXT),
+            new Column("payment_status", "b.payment_status", Type.TEXT),
+            new Column("payment_method", "b.payment_method", Type.TEXT),
+            new Column("paid_at", "b.paid_at", Type.TIMESTAMP),
+            new Column("number_of_tickets", "b.number_of_tickets", Type.NUMBER),
+            new Column("seat_numbers", "b.seat_numbers", Type.TEXT),
+            new Column("total_price", "b.total_price", Type.NUMBER),
+            new Column("match_id", "m.id", Type.NUMBER),
+            new Column("match_date_time", "m.match_date_time", Type.TIMESTAMP),
+            new Column("home_team", "home.name", Type.TEXT),
+            new Column("away_team", "away.name", Type.TEXT),
+            new Column("stadium", "s.name", Type.TEXT),
+            new Column("section", "t.section_name", Type.TEXT),
+            new Column("price_per_ticket", "t.price_per_ticket", Type.NUMBER),
+            new Column("username", "u.username", Type.TEXT),
+            new Column("full_name", "u.full_name", Type.TEXT),
+            new Column("email", "u.email", Type.TEXT)
+    };
+
+    private static final String FROM = " FROM bookings b" +
+            " JOIN matches m ON m.id = b.match_id" +
+            " JOIN teams home ON home.id = m.home_team_id" +
+            " JOIN teams away ON away.id = m.away_team_id" +
+            " JOIN stadiums s ON s.id = m.stadium_id" +
+            " JOIN ticket_sections t ON t.id = b.ticket_section_id" +
+            " JOIN users u ON u.id = b.user_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+
+    public BookingExportService(DataSource dataSource,
+                                PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper,
+                                @Value("${booking.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(Math.max(1, fetchSize));
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    /**Writes every booking the filter matches, oldest first; returns how many were written*/
+
+    public long export(Format format, Filter filter, OutputStream out) throws IOException {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (int i = 0; i < COLUMNS.length; i++) {
+            sql.append(i == 0 ? "" : ", ").append(COLUMNS[i].expression());
+        }
+        sql.append(FROM);
+        List<Object> args = new ArrayList<>();
+        List<String> conditions = new ArrayList<>();
+        if (filter.matchId() != null) {
+            conditions.add("b.match_id = ?");
+            args.add(filter.matchId());
+        }
+        if (filter.from() != null) {
+            conditions.add("b.booked_at >= ?");
+            args.add(filter.from().atStartOfDay());
+        }
+        if (filter.to() != null) {
+            conditions.add("b.booked_at < ?");
+            args.add(filter.to().plusDays(1).atStartOfDay());
+        }
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        sql.append(" ORDER BY b.booked_at, b.id");
+
+        long started = System.currentTimeMillis();
+        RowWriter writer = format == Format.NDJSON ? new NdjsonWriter(out) : new CsvWriter(out);
+        long[] rows = {0};
+        try {
+            readOnlyTransaction.executeWithoutResult(status ->
+                    jdbcTemplate.query(sql.toString(), (RowCallbackHandler) rs -> {
+                        try {
+                            writer.row(rs);
+                            rows[0]++;
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, args.toArray()));
+        } catch (UncheckedIOException e) {
+            // Usually the client went away; the transaction and cursor are already closed
+            throw e.getCause();
+        }
+        writer.finish();
+        log.info("Exported {} bookings as {} in {} ms", rows[0], format, System.currentTimeMillis() - started);
+        return rows[0];
+    }
+
+    public enum Format {
+        CSV(new MediaType("text", "csv", StandardCharsets.UTF_8), "csv"),
+        NDJSON(MediaType.APPLICATION_NDJSON, "ndjson");
+
+        private final MediaType mediaType;
+        private final String extension;
+
+        Format(MediaType mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        public MediaType mediaType() {
+            return mediaType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+    }
+
+    /**Optional match and booking dates, both ends inclusive*/
+
+    public record Filter(Long matchId, LocalDate from, LocalDate to) {
+
+        public Filter {
+            if (from != null && to != null && to.isBefore(from)) {
+                throw new IllegalArgumentException("The end date must not be before the start date");
+            }
+        }
+    }
+
+    private enum Type {
+        TEXT,
+        NUMBER,
+        TIMESTAMP
+    }
+
+    private record Column(String name, String expression, Type type) {
+
+        // Numbers keep the database's scale; timestamps are ISO local date-times
+        private String read(ResultSet rs, int index) throws SQLException {
+            if (type == Type.TIMESTAMP) {
+                LocalDateTime value = rs.getObject(index, LocalDateTime.class);
+                return value == null ? null : DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value);
+            }
+            if (type == Type.NUMBER) {
+                BigDecimal value = rs.getBigDecimal(index);
+                return value == null ? null : value.toPlainString();
+            }
+            return rs.getString(index);
+        }
+    }
+
+    private interface RowWriter {
+
+        void row(ResultSet rs) throws SQLException, IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class CsvWriter implements RowWriter {
+
+        private final Writer writer;
+
+        private CsvWriter(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            for (int i = 0; i < COLUMNS.length; i++) {
+                writer.write(i == 0 ? "" : ",");
+                writer.write(COLUMNS[i].name());
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void row(ResultSet rs) throws SQLException, IOException {
+            for (int i = 0; i < COLUMNS.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                String value = COLUMNS[i].read(rs, i + 1);
+                if (value != null) {
+                    writer.write(COLUMNS[i].type() == Type.TEXT ? escape(value) : value);
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        // RFC 4180 quoting; text that a spreadsheet would run as a formula is prefixed with a quote
+        private static String escape(String value) {
+            if (!value.isEmpty() && "=+-@".indexOf(value.charAt(0)) >= 0) {
+                value = "'" + value;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    private final class NdjsonWriter implements RowWriter {
+
+        private final JsonGenerator generator;
+        private boolean empty = true;
+
+        private NdjsonWriter(OutputStream out) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out);
+            // One object per line: the root separator is the newline and nothing else is indented
+            generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        }
+
+        @Override
+        public void row(ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < COLUMNS.length; i++) {
+                Column column = COLUMNS[i];
+                if (column.type() == Type.NUMBER) {
+                    generator.writeFieldName(column.name());
+                    BigDecimal value = rs.getBigDecimal(i + 1);
+                    if (value == null) {
+                        generator.writeNull();
+                    } else {
+                        generator.writeNumber(value);
+                    }
+                } else {
+                    generator.writeStringField(column.name(), column.read(rs, i + 1));
+                }
+            }
+            generator.writeEndObject();
+            empty = false;
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (!empty) {
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+        }
+    }
+}
@@ -4,14 +4,24 @@ import com.abhinand.bookmymatch.entity.Booking;
 import com.abhinand.bookmymatch.entity.Match;
 import com.abhinand.bookmymatch.entity.TicketSection;
 import com.abhinand.bookmymatch.entity.User;
+import com.abhinand.bookmymatch.event.BookingActivityEvent;
+import com.abhinand.bookmymatch.event.SeatInventoryChangedEvent;
 import com.abhinand.bookmymatch.repository.BookingRepository;
 import com.abhinand.bookmymatch.repository.TicketSectionRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 @Service
 @RequiredArgsConstructor
@@ -22,16 +32,45 @@ public class BookingService {
     private final TicketSectionRepository ticketSectionRepository;
     private final MatchService matchService;
     private final UserService userService;
+    private final GroupCommitBookingEngine groupCommitBookingEngine;
+    private final SeatHoldManager seatHoldManager;
+    private final SectionRetryPolicy sectionRetryPolicy;
+    private final SeatAllocationService seatAllocationService;
+    private final BookingCodeGenerator bookingCodeGenerator;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
 
-    @Transactional
     public Booking createBooking(Long matchId, Long ticketSectionId, Integer numberOfTickets) {
         User currentUser = userService.getCurrentUser();
         if (currentUser == null) {
             throw new IllegalStateException("User must be authenticated to book tickets");
         }
 
+        if (numberOfTickets == null || numberOfTickets <= 0) {
+            throw new IllegalArgumentException("Number of tickets must be greater than 0");
+        }
+
+        if (groupCommitBookingEngine.isEnabled()) {
+            // Validate outside the queue so the section writer only deals with seats
+            if (!matchService.getMatchById(matchId).isBookable()) {
+                throw new IllegalStateException("This match is not available for booking");
+            }
+            return groupCommitBookingEngine.submit(currentUser.getId(), matchId, ticketSectionId, numberOfTickets);
+        }
+
+        // Each attempt is a fresh transaction; only lost optimistic-lock races are retried
+        Booking booking = sectionRetryPolicy.execute(matchId, ticketSectionId, () ->
+                transactionTemplate.execute(status -> bookSeats(currentUser, matchId, ticketSectionId, numberOfTickets)));
+        // Start the payment clock only once the hold is committed
+        seatHoldManager.track(booking.getId(), booking.getHoldExpiresAt());
+        return booking;
+    }
+
+    private Booking bookSeats(User currentUser, Long matchId, Long ticketSectionId, int numberOfTickets) {
         Match match = matchService.getMatchById(matchId);
+        // The waiting room admitted the visitor for matchId, so the section has to belong to it
         TicketSection ticketSection = ticketSectionRepository.findById(ticketSectionId)
+                .filter(section -> section.getMatch().getId().equals(match.getId()))
                 .orElseThrow(() -> new IllegalArgumentException("Ticket section not found"));
 
         // Validate booking
@@ -39,82 +78,285 @@ public class BookingService {
             throw new IllegalStateException("This match is not available for booking");
         }
 
-        if (ticketSection.isSoldOut()) {
-            throw new IllegalStateException("This section is sold out");
-        }
-
-        if (!ticketSection.hasAvailableSeats(numberOfTickets)) {
-            throw new IllegalStateException(
-                    String.format("Only %d seats available in this section", ticketSection.getAvailableSeats()));
-        }
-
-        if (numberOfTickets <= 0) {
-            throw new IllegalArgumentException("Number of tickets must be greater than 0");
-        }
+        // Reserve seats with a single conditional UPDATE so concurrent bookings can never oversell
+        reserveSeats(ticketSectionId, numberOfTickets);
+        String seatNumbers = seatAllocationService.allocate(ticketSectionId, numberOfTickets);
 
         // Calculate total price
         BigDecimal totalPrice = ticketSection.getPricePerTicket()
                 .multiply(BigDecimal.valueOf(numberOfTickets));
 
-        // Update available seats
-        ticketSection.bookSeats(numberOfTickets);
-        ticketSectionRepository.save(ticketSection);
-
         // Create booking
         Booking booking = Booking.builder()
+                .bookingCode(bookingCodeGenerator.nextCode())
                 .user(currentUser)
                 .match(match)
                 .ticketSection(ticketSection)
                 .numberOfTickets(numberOfTickets)
+                .seatNumbers(seatNumbers)
                 .totalPrice(totalPrice)
-                .status(Booking.BookingStatus.CONFIRMED)
+                .status(Booking.BookingStatus.PENDING_PAYMENT)
+                .holdExpiresAt(seatHoldManager.newHoldExpiry())
                 .build();
 
         Booking savedBooking = bookingRepository.save(booking);
+        eventPublisher.publishEvent(BookingActivityEvent.of(savedBooking, BookingActivityEvent.Activity.CREATED));
         log.info("Booking created successfully: {} for user: {}", savedBooking.getBookingCode(), currentUser.getUsername());
 
         return savedBooking;
     }
 
+    /**
+     * Books every cart item in one all-or-nothing transaction. Sections are reserved in ascending id order,
+     * so two carts sharing sections always take the row locks in the same order and cannot deadlock.
+     */
+    public List<Booking> createCartBookings(List<CartItem> items) {
+        User currentUser = userService.getCurrentUser();
+        if (currentUser == null) {
+            throw new IllegalStateException("User must be authenticated to book tickets");
+        }
+
+        // Merge repeated sections and fix the lock order in one go
+        Map<Long, CartItem> itemsBySection = new TreeMap<>();
+        for (CartItem item : items) {
+            if (item.numberOfTickets() <= 0) {
+                throw new IllegalArgumentException("Number of tickets must be greater than 0");
+            }
+            itemsBySection.merge(item.ticketSectionId(), item, (existing, added) -> new CartItem(
+                    existing.matchId(), existing.ticketSectionId(), existing.numberOfTickets() + added.numberOfTickets()));
+        }
+        if (itemsBySection.isEmpty()) {
+            throw new IllegalArgumentException("Please select at least one ticket");
+        }
+
+        CartItem first = itemsBySection.values().iterator().next();
+        List<Booking> bookings = sectionRetryPolicy.execute(first.matchId(), first.ticketSectionId(), () ->
+                transactionTemplate.execute(status -> bookCart(currentUser, itemsBySection.values())));
+        bookings.forEach(booking -> seatHoldManager.track(booking.getId(), booking.getHoldExpiresAt()));
+        return bookings;
+    }
+
+    private List<Booking> bookCart(User currentUser, Iterable<CartItem> items) {
+        String cartCode = bookingCodeGenerator.nextCode();
+        // Every booking in the cart expires together, so the combined payment never covers released seats
+        LocalDateTime holdExpiresAt = seatHoldManager.newHoldExpiry();
+        Map<Long, Match> matches = new HashMap<>();
+        List<Booking> bookings = new ArrayList<>();
+
+        for (CartItem item : items) {
+            Match match = matches.computeIfAbsent(item.matchId(), matchService::getMatchById);
+            if (!match.isBookable()) {
+                throw new IllegalStateException("This match is not available for booking");
+            }
+            TicketSection ticketSection = ticketSectionRepository.findById(item.ticketSectionId())
+                    .filter(section -> section.getMatch().getId().equals(match.getId()))
+                    .orElseThrow(() -> new IllegalArgumentException("Ticket section not found"));
+
+            try {
+                reserveSeats(ticketSection.getId(), item.numberOfTickets());
+            } catch (IllegalStateException e) {
+                throw new IllegalStateException(ticketSection.getSectionName() + ": " + e.getMessage());
+            }
+
+            bookings.add(Booking.builder()
+                    .bookingCode(bookingCodeGenerator.nextCode())
+                    .cartCode(cartCode)
+                    .user(currentUser)
+                    .match(match)
+                    .ticketSection(ticketSection)
+                    .numberOfTickets(item.numberOfTickets())
+                    .seatNumbers(seatAllocationService.allocate(ticketSection.getId(), item.numberOfTickets()))
+                    .totalPrice(ticketSection.getPricePerTicket().multiply(BigDecimal.valueOf(item.numberOfTickets())))
+                    .status(Booking.BookingStatus.PENDING_PAYMENT)
+                    .holdExpiresAt(holdExpiresAt)
+                    .build());
+        }
+
+        List<Booking> saved = bookingRepository.saveAll(bookings);
+        saved.forEach(booking -> eventPublisher.publishEvent(
+                BookingActivityEvent.of(booking, BookingActivityEvent.Activity.CREATED)));
+        log.info("Cart {} created with {} bookings for user: {}", cartCode, saved.size(), currentUser.getUsername());
+        return saved;
+    }
+
     public Booking getBookingByCode(String bookingCode) {
         return bookingRepository.findByBookingCode(bookingCode)
                 .orElseThrow(() -> new IllegalArgumentException("Booking not found"));
     }
 
     public Booking getBookingById(Long id) {
-        return bookingRepository.findById(id)
+        return bookingRepository.findWithDetailsById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Booking not found"));
     }
 
-    public List<Booking> getUserBookings() {
+    // Someone else's booking is reported as missing rather than forbidden, so ids can't be probed
+    public Booking getOwnBookingById(Long id) {
         User currentUser = userService.getCurrentUser();
         if (currentUser == null) {
             throw new IllegalStateException("User must be authenticated");
         }
-        return bookingRepository.findByUserIdOrderByBookedAtDesc(currentUser.getId());
+        Booking booking = getBookingById(id);
+        if (!booking.getUser().getId().equals(currentUser.getId())) {
+            throw new IllegalArgumentException("Booking not found");
+        }
+        return booking;
     }
 
-    public List<Booking> getAllBookings() {
-        return bookingRepository.findAllByOrderByBookedAtDesc();
+    public List<Booking> getCartBookings(String cartCode) {
+        List<Booking> bookings = bookingRepository.findByCartCodeOrderByIdAsc(cartCode);
+        if (bookings.isEmpty()) {
+            throw new IllegalArgumentException("Cart not found");
+        }
+        return bookings;
+    }
+
+    // before/beforeId are the bookedAt and id of the last booking on the previous page, null for the first page
+    public KeysetPage<Booking> getUserBookings(LocalDateTime before, Long beforeId) {
+        User currentUser = userService.getCurrentUser();
+        if (currentUser == null) {
+            throw new IllegalStateException("User must be authenticated");
+        }
+        return KeysetPage.of(before == null || beforeId == null
+                ? bookingRepository.findByUserIdOrderByBookedAtDescIdDesc(currentUser.getId(), KeysetPage.limit())
+                : bookingRepository.findByUserIdBefore(currentUser.getId(), before, beforeId, KeysetPage.limit()));
+    }
+
+    public KeysetPage<Booking> getAllBookings(LocalDateTime before, Long beforeId) {
+        return KeysetPage.of(before == null || beforeId == null
+                ? bookingRepository.findByOrderByBookedAtDescIdDesc(KeysetPage.limit())
+                : bookingRepository.findBefore(before, beforeId, KeysetPage.limit()));
     }
 
     @Transactional
-    public void cancelBooking(Long bookingId) {
-        Booking booking = getBookingById(bookingId);
+    public void attachPaymentIntent(Long bookingId, String paymentIntentId) {
+        if (bookingRepository.attachPaymentIntent(bookingId, paymentIntentId,
+                seatHoldManager.newPaymentHoldExpiry(), LocalDateTime.now()) == 0) {
+            throw new IllegalStateException("Your seat hold has expired, please book again");
+        }
+        seatHoldManager.track(bookingId, bookingRepository.findHoldExpiresAtById(bookingId));
+    }
 
+    @Transactional
+    public Booking confirmPayment(Long bookingId, String paymentMethod) {
+        boolean confirmed = bookingRepository.confirmPayment(bookingId, paymentMethod, LocalDateTime.now()) == 1;
+        if (confirmed) {
+            seatHoldManager.release(bookingId);
+            log.info("Payment confirmed for booking: {}", bookingId);
+        }
+
+        Booking booking = getBookingById(bookingId);
         if (booking.getStatus() != Booking.BookingStatus.CONFIRMED) {
-            throw new IllegalStateException("Only confirmed bookings can be cancelled");
+            // Paid after the seats went back: whatever Stripe took is refunded
+            if (booking.getPaymentStatus() == Booking.PaymentStatus.PROCESSING) {
+                seatHoldManager.settlePayment(bookingId);
+                throw new IllegalStateException("Your seat hold has expired, please book again. " +
+                        "Any payment taken for it will be refunded");
+            }
+            throw new IllegalStateException("Your seat hold has expired, please book again");
+        }
+        if (confirmed) {
+            eventPublisher.publishEvent(BookingActivityEvent.of(booking, BookingActivityEvent.Activity.PAID));
+        }
+        return booking;
+    }
+
+    // The intent covers every pending booking of the cart, so none of them may have expired in between
+    @Transactional
+    public void attachCartPaymentIntent(String cartCode, int bookingCount, String paymentIntentId) {
+        if (bookingRepository.attachCartPaymentIntent(cartCode, paymentIntentId,
+                seatHoldManager.newPaymentHoldExpiry(), LocalDateTime.now()) != bookingCount) {
+            throw new IllegalStateException("Your seat hold has expired, please book again");
+        }
+        getCartBookings(cartCode).stream()
+                .filter(booking -> booking.getStatus() == Booking.BookingStatus.PENDING_PAYMENT)
+                .forEach(booking -> seatHoldManager.track(booking.getId(), booking.getHoldExpiresAt()));
+    }
+
+    public List<Booking> confirmCartPayment(String cartCode, String paymentMethod) {
+        List<Booking> bookings = transactionTemplate.execute(status -> {
+            boolean confirmed = bookingRepository.confirmCartPayment(cartCode, paymentMethod, LocalDateTime.now()) > 0;
+            List<Booking> cart = getCartBookings(cartCode);
+            // The whole cart is paid in one update, so every confirmed booking was confirmed just now
+            if (confirmed) {
+                log.info("Payment confirmed for cart: {}", cartCode);
+                cart.stream()
+                        .filter(booking -> booking.getStatus() == Booking.BookingStatus.CONFIRMED)
+                        .forEach(booking -> eventPublisher.publishEvent(
+                                BookingActivityEvent.of(booking, BookingActivityEvent.Activity.PAID)));
+            }
+            return cart;
+        });
+
+        // The intent was for the whole cart: bookings it no longer holds seats for get their share back
+        List<Booking> refunding = bookings.stream()
+                .filter(booking -> booking.getStatus() == Booking.BookingStatus.CANCELLED
+                        && booking.getPaymentStatus() == Booking.PaymentStatus.PROCESSING)
+                .toList();
+        bookings.forEach(booking -> seatHoldManager.release(booking.getId()));
+        refunding.forEach(booking -> seatHoldManager.settlePayment(booking.getId()));
+
+        if (bookings.stream().noneMatch(booking -> booking.getStatus() == Booking.BookingStatus.CONFIRMED)) {
+            throw new IllegalStateException(refunding.isEmpty()
+                    ? "Your seat hold has expired, please book again"
+                    : "Your seat hold has expired, please book again. Any payment taken for it will be refunded");
+        }
+        return bookings;
+    }
+
+    public void cancelBooking(Long bookingId) {
+        Booking booking = getBookingById(bookingId);
+        Long ticketSectionId = booking.getTicketSection().getId();
+        // Cancelling one booking can't call off the intent the rest of its cart is being paid with
+        if (booking.getCartCode() != null && booking.getStatus() == Booking.BookingStatus.PENDING_PAYMENT
+                && booking.getPaymentStatus() == Booking.PaymentStatus.PROCESSING) {
+            throw new IllegalStateException("This booking's cart is being paid for; it can be cancelled once paid");
         }
 
-        // seats back to ticket section
-        TicketSection ticketSection = booking.getTicketSection();
-        ticketSection.releaseSeats(booking.getNumberOfTickets());
-        ticketSectionRepository.save(ticketSection);
+        sectionRetryPolicy.execute(booking.getMatch().getId(), ticketSectionId, () ->
+                transactionTemplate.execute(status -> {
+                    // Paid bookings first, so sales figures know whether tickets and revenue go back
+                    if (bookingRepository.cancel(bookingId, EnumSet.of(Booking.BookingStatus.CONFIRMED)) == 1) {
+                        eventPublisher.publishEvent(
+                                BookingActivityEvent.of(booking, BookingActivityEvent.Activity.CANCELLED_AFTER_PAYMENT));
+                    } else if (bookingRepository.cancel(bookingId, EnumSet.of(Booking.BookingStatus.PENDING_PAYMENT)) == 1) {
+                        eventPublisher.publishEvent(BookingActivityEvent.of(booking, BookingActivityEvent.Activity.CANCELLED));
+                    } else {
+                        throw new IllegalStateException("Only confirmed or pending bookings can be cancelled");
+                    }
 
-        // Update booking status
-        booking.setStatus(Booking.BookingStatus.CANCELLED);
-        bookingRepository.save(booking);
+                    // seats back to ticket section
+                    ticketSectionRepository.releaseSeats(ticketSectionId, booking.getNumberOfTickets());
+                    seatAllocationService.release(ticketSectionId, booking.getSeatNumbers());
+                    eventPublisher.publishEvent(new SeatInventoryChangedEvent(ticketSectionId));
+                    return null;
+                }));
+        if (booking.getPaymentStatus() == Booking.PaymentStatus.PROCESSING) {
+            seatHoldManager.settlePayment(bookingId);
+        } else {
+            seatHoldManager.release(bookingId);
+        }
 
         log.info("Booking cancelled: {}", booking.getBookingCode());
     }
+
+    private void reserveSeats(Long ticketSectionId, int numberOfTickets) {
+        if (ticketSectionRepository.reserveSeats(ticketSectionId, numberOfTickets) == 1) {
+            eventPublisher.publishEvent(new SeatInventoryChangedEvent(ticketSectionId));
+            return;
+        }
+
+        Integer availableSeats = ticketSectionRepository.findAvailableSeatsById(ticketSectionId);
+        if (availableSeats == null || availableSeats <= 0) {
+            throw new IllegalStateException("This section is sold out");
+        }
+        // The seats were there, so the match stopped taking bookings after it was loaded
+        if (availableSeats >= numberOfTickets) {
+            throw new IllegalStateException("This match is not available for booking");
+        }
+        throw new IllegalStateException(
+                String.format("Only %d seats available in this section", availableSeats));
+    }
+
+    public record CartItem(Long matchId, Long ticketSectionId, int numberOfTickets) {
+    }
 }
@@ -0,0 +1,165 @@
+package com.abhinand.bookmymatch.service;
+
+import com.abhinand.bookmymatch.event.CatalogChangedEvent;
+import com.abhinand.bookmymatch.event.SeatInventoryChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.context.IExpressionContext;
+import org.thymeleaf.linkbuilder.StandardLinkBuilder;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.ITemplateResolver;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Rendered HTML of the catalog fragments in matches/fragments.html, keyed by match and data version so
+ * a stale fragment can never be served: the list card by the card version, the page header and section
+ * details by the content version plus the section's inventory version. Catalog and seat changes drop
+ * the match's entries once the change is applied. Templates use it through @catalogFragmentCache;
+ * anything that depends on the visitor (navigation, booking forms with their CSRF token) stays outside.
+ * Size and hit ratio are published as catalog.fragments.* and cache.* metrics.
+ */
+@Service
+public class CatalogFragmentCache {
+
+    private static final String TEMPLATE = "matches/fragments";
+
+    private final MatchCatalog matchCatalog;
+    private final SpringTemplateEngine templateEngine;
+    private final Cache<Key, String> cache;
+    private final Map<Long, Set<Key>> keysByMatch = new ConcurrentHashMap<>();
+
+    public CatalogFragmentCache(MatchCatalog matchCatalog,
+                                ITemplateResolver templateResolver,
+                                MeterRegistry meterRegistry,
+                                @Value("${server.servlet.context-path:}") String contextPath,
+                                @Value("${catalog.fragments.max-size-mb:16}") long maxSizeMb) {
+        this.matchCatalog = matchCatalog;
+
+        // Separate engine: links must not pick up the visitor's session id when the markup is shared
+        this.templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(templateResolver);
+        templateEngine.setEnableSpringELCompiler(true);
+        templateEngine.setLinkBuilder(new SharedLinkBuilder(contextPath));
+
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSizeMb * 1024 * 1024)
+                .weigher((Key key, String html) -> 64 + 2 * html.length())
+                .evictionListener((Key key, String html, RemovalCause cause) -> forget(key))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "catalogFragments");
+        Gauge.builder("catalog.fragments.bytes", cache,
+                        c -> c.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L))
+                .description("Approximate memory held by cached catalog fragments")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("catalog.fragments.hit.ratio", cache, c -> c.stats().hitRate())
+                .description("Share of catalog fragment lookups served from the cache")
+                .register(meterRegistry);
+    }
+
+    public String matchCard(MatchCard match) {
+        return fragment(new Key("card", match.id(), null, match.version(), 0, LocaleContextHolder.getLocale()),
+                Map.of("match", match));
+    }
+
+    public String matchHeader(MatchCard match) {
+        return fragment(new Key("header", match.id(), null, match.contentVersion(), 0,
+                LocaleContextHolder.getLocale()), Map.of("match", match));
+    }
+
+    public String sectionInfo(MatchCard match, MatchCard.SectionView section) {
+        return fragment(new Key("section", match.id(), section.id(), match.contentVersion(),
+                section.inventoryVersion(), LocaleContextHolder.getLocale()), Map.of("section", section));
+    }
+
+    // Ordered after MatchCatalog's listeners so a new render can only pick up the changed card
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.matchId() == null) {
+            // Team or stadium edit: any card may show it
+            keysByMatch.clear();
+            cache.invalidateAll();
+        } else {
+            evict(event.matchId(), key -> true);
+        }
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSeatInventoryChanged(SeatInventoryChangedEvent event) {
+        Long matchId = matchCatalog.findMatchIdBySection(event.ticketSectionId());
+        if (matchId != null) {
+            // Only the list card and that section show its seat count
+            evict(matchId, key -> key.fragment().equals("card") || event.ticketSectionId().equals(key.sectionId()));
+        }
+    }
+
+    private String fragment(Key key, Map<String, Object> variables) {
+        return cache.get(key, k -> {
+            keysByMatch.computeIfAbsent(k.matchId(), id -> ConcurrentHashMap.newKeySet()).add(k);
+            return templateEngine.process(TEMPLATE, Set.of(k.fragment()), new Context(k.locale(), variables));
+        });
+    }
+
+    private void evict(Long matchId, Predicate<Key> affected) {
+        Set<Key> keys = keysByMatch.get(matchId);
+        if (keys == null) {
+            return;
+        }
+        for (Key key : keys) {
+            if (affected.test(key)) {
+                keys.remove(key);
+                cache.invalidate(key);
+            }
+        }
+    }
+
+    private void forget(Key key) {
+        Set<Key> keys = keysByMatch.get(key.matchId());
+        if (keys != null) {
+            keys.remove(key);
+        }
+    }
+
+    private record Key(String fragment, Long matchId, Long sectionId, long version, long inventoryVersion,
+                       Locale locale) {
+    }
+
+    // Context-relative links without the servlet's URL rewriting
+    private static final class SharedLinkBuilder extends StandardLinkBuilder {
+
+        private final String contextPath;
+
+        private SharedLinkBuilder(String contextPath) {
+            this.contextPath = contextPath;
+        }
+
+        @Override
+        protected String computeContextPath(IExpressionContext context, String base, Map<String, Object> parameters) {
+            return contextPath;
+        }
+
+        @Override
+        protected String processLink(IExpressionContext context, String link) {
+            return link;
+        }
+    }
+}
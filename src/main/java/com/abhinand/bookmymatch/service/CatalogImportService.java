@@ -0,0 +1,610 @@
+package com.abhinand.bookmymatch.service;
+
+import com.abhinand.bookmymatch.entity.Match;
+import com.abhinand.bookmymatch.entity.Stadium;
+import com.abhinand.bookmymatch.entity.Team;
+import com.abhinand.bookmymatch.entity.TicketSection;
+import com.abhinand.bookmymatch.event.CatalogChangedEvent;
+import com.abhinand.bookmymatch.event.TotalsChangedEvent;
+import com.abhinand.bookmymatch.repository.StadiumRepository;
+import com.abhinand.bookmymatch.repository.TeamRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Imports teams, stadiums, or matches with their ticket sections from CSV. The upload is read one record
+ * at a time and never held whole, and team and stadium names are resolved from maps loaded once. Matches,
+ * sections and seat maps, the bulk of a season, are inserted as plain JDBC batches with ids from the
+ * entities' own sequence generators; teams and stadiums, a few hundred at most, are saved as entities. An
+ * import is all-or-nothing: every row is checked, and if any fails nothing is kept and the errors are
+ * returned by line, so the corrected file can simply be uploaded again. Matches already in the database
+ * and section names repeated within a match are errors too.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogImportService {
+
+    private static final String INSERT_MATCH = "INSERT INTO matches (id, home_team_id, away_team_id, stadium_id, " +
+            "match_date_time, status, booking_closed, competition, description, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, false, ?, ?, ?)";
+
+    private static final String INSERT_SECTION = "INSERT INTO ticket_sections (id, match_id, section_name, " +
+            "total_seats, available_seats, price_per_ticket, description, version) VALUES (?, ?, ?, ?, ?, ?, ?, 0)";
+
+    private static final String INSERT_SEAT_MAP = "INSERT INTO section_seat_maps (ticket_section_id, row_count, " +
+            "seats_per_row, taken_seats, version) VALUES (?, ?, ?, ?, 0)";
+
+    private static final int FLUSH_SIZE = 500;
+    private static final int MAX_REPORTED_ERRORS = 100;
+    // Guards against an unterminated quote swallowing the rest of the file
+    private static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+    // 2025-08-16T19:30, 2025-08-16 19:30 or either with seconds
+    private static final DateTimeFormatter DATE_TIME = new DateTimeFormatterBuilder()
+            .appendPattern("yyyy-MM-dd[' ']['T']HH:mm[:ss]")
+            .toFormatter(Locale.ROOT);
+
+    private final TeamRepository teamRepository;
+    private final StadiumRepository stadiumRepository;
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    public ImportResult importCsv(Kind kind, InputStream in) throws IOException {
+        CsvReader csv = new CsvReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<String> header = csv.next();
+        if (header == null) {
+            throw new IllegalArgumentException("The file is empty");
+        }
+        Map<String, Integer> columns = columns(kind, header);
+
+        long started = System.currentTimeMillis();
+        try {
+            ImportResult result = transactionTemplate.execute(status -> {
+                Import running = new Import(kind, columns);
+                try {
+                    for (List<String> record = csv.next(); record != null; record = csv.next()) {
+                        running.row(record, csv.recordLine());
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (running.errorCount > 0) {
+                    status.setRollbackOnly();
+                } else {
+                    running.flush();
+                    running.publishChanges();
+                }
+                return running.result();
+            });
+            log.info("{} import of {} rows {} in {} ms", kind, result.rows(),
+                    result.imported() ? "committed" : "rejected with " + result.errorCount() + " errors",
+                    System.currentTimeMillis() - started);
+            return result;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Header names in any order and case; missing required columns and unknown ones fail the whole file
+    private static Map<String, Integer> columns(Kind kind, List<String> header) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim().toLowerCase(Locale.ROOT);
+            if (!kind.columns().contains(name)) {
+                throw new IllegalArgumentException("Unknown column '" + header.get(i).trim() + "'; expected "
+                        + String.join(", ", kind.columns()));
+            }
+            if (columns.put(name, i) != null) {
+                throw new IllegalArgumentException("Column '" + name + "' appears twice");
+            }
+        }
+        for (String required : kind.requiredColumns()) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("Missing column '" + required + "'");
+            }
+        }
+        return columns;
+    }
+
+    public enum Kind {
+        TEAMS(List.of("name", "short_name", "city", "description"),
+              List.of("name", "short_name", "city")),
+        STADIUMS(List.of("name", "city", "country", "capacity", "description"),
+                 List.of("name", "city", "country", "capacity")),
+        // One row per section; rows with the same teams, stadium and kick-off belong to one match
+        MATCHES(List.of("home_team", "away_team", "stadium", "match_date_time", "competition", "description",
+                        "section_name", "total_seats", "price_per_ticket", "row_count", "section_description"),
+                List.of("home_team", "away_team", "stadium", "match_date_time"));
+
+        private final List<String> columns;
+        private final List<String> requiredColumns;
+
+        Kind(List<String> columns, List<String> requiredColumns) {
+            this.columns = columns;
+            this.requiredColumns = requiredColumns;
+        }
+
+        public List<String> columns() {
+            return columns;
+        }
+
+        public List<String> requiredColumns() {
+            return requiredColumns;
+        }
+    }
+
+    /**What was imported, or why nothing was; only the first errors are listed, errorCount has them all*/
+
+    public record ImportResult(Kind kind, long rows, int teams, int stadiums, int matches, int sections,
+                               List<RowError> errors, long errorCount) {
+
+        public boolean imported() {
+            return errorCount == 0;
+        }
+    }
+
+    public record RowError(long line, String message) {
+    }
+
+    private record MatchKey(Long homeTeamId, Long awayTeamId, Long stadiumId, LocalDateTime matchDateTime) {
+    }
+
+    private record NewMatch(Long id, MatchKey key, String competition, String description) {
+    }
+
+    private record NewSection(Long id, Long matchId, String sectionName, int totalSeats, BigDecimal pricePerTicket,
+                              String description, SeatMap seatMap) {
+    }
+
+    /**State of one import, inside its transaction*/
+
+    private final class Import {
+
+        private final Kind kind;
+        private final Map<String, Integer> columns;
+        private final Map<String, Long> teamIds = new HashMap<>();
+        private final Map<String, Long> stadiumIds = new HashMap<>();
+        // Team or stadium names added by this file, with the line that added them
+        private final Map<String, Long> addedNames = new HashMap<>();
+        // Matches added by this file, so their further rows only add sections, and the sections each one has
+        private final Map<MatchKey, Long> matchIds = new HashMap<>();
+        private final Map<MatchKey, Map<String, Long>> sectionLines = new HashMap<>();
+        // Matches already in the database, loaded per home team the first time a row names it
+        private final Map<Long, Set<MatchKey>> existingMatches = new HashMap<>();
+        private final List<RowError> errors = new ArrayList<>();
+        private final List<NewMatch> newMatches = new ArrayList<>();
+        private final List<NewSection> newSections = new ArrayList<>();
+        private final Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        private final SharedSessionContractImplementor session;
+        private final BeforeExecutionGenerator matchIdGenerator;
+        private final BeforeExecutionGenerator sectionIdGenerator;
+        private long rows;
+        private long errorCount;
+        private int teams;
+        private int stadiums;
+        private int matches;
+        private int sections;
+        private int unflushed;
+
+        private Import(Kind kind, Map<String, Integer> columns) {
+            this.kind = kind;
+            this.columns = columns;
+            teamRepository.findAll().forEach(team -> teamIds.put(team.getName(), team.getId()));
+            stadiumRepository.findAll().forEach(stadium -> stadiumIds.put(stadium.getName(), stadium.getId()));
+            session = entityManager.unwrap(SharedSessionContractImplementor.class);
+            matchIdGenerator = idGenerator(Match.class);
+            sectionIdGenerator = idGenerator(TicketSection.class);
+        }
+
+        private void row(List<String> record, long line) {
+            rows++;
+            if (record.size() > columns.size()) {
+                error(line, "Expected at most " + columns.size() + " fields, found " + record.size());
+                return;
+            }
+            Row row = new Row(record, columns);
+            try {
+                switch (kind) {
+                    case TEAMS -> teamRow(row, line);
+                    case STADIUMS -> stadiumRow(row, line);
+                    case MATCHES -> matchRow(row, line);
+                }
+            } catch (IllegalArgumentException e) {
+                error(line, e.getMessage());
+                return;
+            }
+            if (++unflushed >= FLUSH_SIZE) {
+                flush();
+            }
+        }
+
+        // Keeps the persistence context and the pending batches small however long the file is
+        private void flush() {
+            unflushed = 0;
+            if (errorCount > 0) {
+                return;
+            }
+            entityManager.flush();
+            entityManager.clear();
+            jdbcTemplate.batchUpdate(INSERT_MATCH, newMatches, newMatches.size(), (ps, match) -> {
+                ps.setLong(1, match.id());
+                ps.setLong(2, match.key().homeTeamId());
+                ps.setLong(3, match.key().awayTeamId());
+                ps.setLong(4, match.key().stadiumId());
+                ps.setTimestamp(5, Timestamp.valueOf(match.key().matchDateTime()));
+                ps.setString(6, Match.MatchStatus.UPCOMING.name());
+                ps.setString(7, match.competition());
+                ps.setString(8, match.description());
+                ps.setTimestamp(9, createdAt);
+            });
+            jdbcTemplate.batchUpdate(INSERT_SECTION, newSections, newSections.size(), (ps, section) -> {
+                ps.setLong(1, section.id());
+                ps.setLong(2, section.matchId());
+                ps.setString(3, section.sectionName());
+                ps.setInt(4, section.totalSeats());
+                ps.setInt(5, section.totalSeats());
+                ps.setBigDecimal(6, section.pricePerTicket());
+                ps.setString(7, section.description());
+            });
+            List<NewSection> seated = newSections.stream().filter(section -> section.seatMap() != null).toList();
+            jdbcTemplate.batchUpdate(INSERT_SEAT_MAP, seated, seated.size(), (ps, section) -> {
+                ps.setLong(1, section.id());
+                ps.setInt(2, section.seatMap().getRowCount());
+                ps.setInt(3, section.seatMap().getSeatsPerRow());
+                ps.setBytes(4, section.seatMap().toBytes());
+            });
+            newMatches.clear();
+            newSections.clear();
+        }
+
+        private void teamRow(Row row, long line) {
+            String name = row.required("name");
+            checkNew("Team", name, teamIds, line);
+            Team team = Team.builder()
+                    .name(name)
+                    .shortName(row.required("short_name"))
+                    .city(row.required("city"))
+                    .description(row.optional("description"))
+                    .build();
+            // Once a row has failed nothing will be kept, so the rest are only checked
+            if (errorCount == 0) {
+                teamRepository.save(team);
+            }
+            teams++;
+        }
+
+        private void stadiumRow(Row row, long line) {
+            String name = row.required("name");
+            String city = row.required("city");
+            String country = row.required("country");
+            int capacity = row.positiveInteger("capacity");
+            checkNew("Stadium", name, stadiumIds, line);
+            Stadium stadium = Stadium.builder()
+                    .name(name)
+                    .city(city)
+                    .country(country)
+                    .capacity(capacity)
+                    .description(row.optional("description"))
+                    .build();
+            if (errorCount == 0) {
+                stadiumRepository.save(stadium);
+            }
+            stadiums++;
+        }
+
+        private void matchRow(Row row, long line) {
+            Long homeTeamId = lookUp("Home team", row.required("home_team"), teamIds);
+            Long awayTeamId = lookUp("Away team", row.required("away_team"), teamIds);
+            Long stadiumId = lookUp("Stadium", row.required("stadium"), stadiumIds);
+            if (homeTeamId.equals(awayTeamId)) {
+                throw new IllegalArgumentException("Home team and away team cannot be the same");
+            }
+            MatchKey key = new MatchKey(homeTeamId, awayTeamId, stadiumId, row.dateTime("match_date_time"));
+            if (existingMatches.computeIfAbsent(homeTeamId, this::loadHomeMatches).contains(key)) {
+                throw new IllegalArgumentException("A match between these teams at this stadium and kick-off already exists");
+            }
+
+            String sectionName = row.optional("section_name");
+            int totalSeats = 0;
+            BigDecimal pricePerTicket = null;
+            SeatMap seatMap = null;
+            if (sectionName != null) {
+                totalSeats = row.positiveInteger("total_seats");
+                pricePerTicket = row.price("price_per_ticket");
+                // Sections with a row count sell numbered seats; the others stay count-only
+                if (row.optional("row_count") != null) {
+                    int rowCount = row.positiveInteger("row_count");
+                    if (rowCount > totalSeats) {
+                        throw new IllegalArgumentException("row_count: a section needs at least one seat per row");
+                    }
+                    seatMap = SeatMap.create(totalSeats, rowCount);
+                }
+                Long sectionLine = sectionLines.computeIfAbsent(key, k -> new HashMap<>())
+                        .putIfAbsent(sectionName.toLowerCase(Locale.ROOT), line);
+                if (sectionLine != null) {
+                    throw new IllegalArgumentException("Section '" + sectionName + "' of this match is already on line "
+                            + sectionLine);
+                }
+            }
+
+            // Once a row has failed nothing will be kept, so the rest are only checked
+            boolean saving = errorCount == 0;
+            if (!matchIds.containsKey(key)) {
+                Long matchId = null;
+                if (saving) {
+                    matchId = nextId(matchIdGenerator);
+                    newMatches.add(new NewMatch(matchId, key, row.optional("competition"), row.optional("description")));
+                }
+                matchIds.put(key, matchId);
+                matches++;
+            }
+            if (sectionName == null) {
+                return;
+            }
+            if (saving) {
+                newSections.add(new NewSection(nextId(sectionIdGenerator), matchIds.get(key), sectionName, totalSeats,
+                        pricePerTicket, row.optional("section_description"), seatMap));
+            }
+            sections++;
+        }
+
+        // Cancelled matches don't count, so a called-off fixture can be imported again
+        private Set<MatchKey> loadHomeMatches(Long homeTeamId) {
+            return new HashSet<>(jdbcTemplate.query("SELECT away_team_id, stadium_id, match_date_time FROM matches "
+                            + "WHERE home_team_id = ? AND status <> 'CANCELLED'",
+                    (rs, rowNum) -> new MatchKey(homeTeamId, rs.getLong(1), rs.getLong(2),
+                            rs.getTimestamp(3).toLocalDateTime()),
+                    homeTeamId));
+        }
+
+        private Long nextId(BeforeExecutionGenerator generator) {
+            return (Long) generator.generate(session, null, null, EventType.INSERT);
+        }
+
+        // The entity's own sequence generator, so ids come from the same pooled blocks as entities saved elsewhere
+        private BeforeExecutionGenerator idGenerator(Class<?> entityClass) {
+            return (BeforeExecutionGenerator) session.getFactory().getMappingMetamodel()
+                    .getEntityDescriptor(entityClass).getGenerator();
+        }
+
+        private void checkNew(String what, String name, Map<String, Long> existing, long line) {
+            if (existing.containsKey(name)) {
+                Long addedAt = addedNames.get(name);
+                throw new IllegalArgumentException(addedAt == null
+                        ? what + " '" + name + "' already exists"
+                        : what + " '" + name + "' is already on line " + addedAt);
+            }
+            // Later rows and match rows of the same file can't refer to it, so no id is needed
+            existing.put(name, null);
+            addedNames.put(name, line);
+        }
+
+        private Long lookUp(String what, String name, Map<String, Long> ids) {
+            Long id = ids.get(name);
+            if (id == null) {
+                throw new IllegalArgumentException(what + " '" + name + "' not found");
+            }
+            return id;
+        }
+
+        private void error(long line, String message) {
+            errorCount++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new RowError(line, message));
+            }
+        }
+
+        private void publishChanges() {
+            if (teams > 0) {
+                eventPublisher.publishEvent(TotalsChangedEvent.teams(teams));
+            }
+            if (stadiums > 0) {
+                eventPublisher.publishEvent(TotalsChangedEvent.stadiums(stadiums));
+            }
+            if (matches > 0) {
+                eventPublisher.publishEvent(TotalsChangedEvent.matches(matches));
+                // One reload for the catalog, search and lifecycle instead of one per match
+                eventPublisher.publishEvent(CatalogChangedEvent.everything());
+            }
+        }
+
+        private ImportResult result() {
+            return errorCount > 0
+                    ? new ImportResult(kind, rows, 0, 0, 0, 0, List.copyOf(errors), errorCount)
+                    : new ImportResult(kind, rows, teams, stadiums, matches, sections, List.of(), 0);
+        }
+    }
+
+    /**One record's fields by column name; blank fields count as missing*/
+
+    private record Row(List<String> fields, Map<String, Integer> columns) {
+
+        private String optional(String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= fields.size()) {
+                return null;
+            }
+            String value = fields.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        private String required(String column) {
+            String value = optional(column);
+            if (value == null) {
+                throw new IllegalArgumentException(column + " is required");
+            }
+            return value;
+        }
+
+        private int positiveInteger(String column) {
+            try {
+                int value = Integer.parseInt(required(column));
+                if (value <= 0) {
+                    throw new IllegalArgumentException(column + " must be greater than 0");
+                }
+                return value;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(column + ": '" + optional(column) + "' is not a whole number");
+            }
+        }
+
+        private BigDecimal price(String column) {
+            try {
+                BigDecimal value = new BigDecimal(required(column));
+                if (value.signum() < 0 || value.scale() > 2) {
+                    throw new IllegalArgumentException(column + " must be a positive amount with at most 2 decimals");
+                }
+                return value;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(column + ": '" + optional(column) + "' is not a number");
+            }
+        }
+
+        private LocalDateTime dateTime(String column) {
+            try {
+                return LocalDateTime.parse(required(column), DATE_TIME);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException(column + ": '" + optional(column) + "' is not a date and time "
+                        + "like 2025-08-16 19:30");
+            }
+        }
+    }
+
+    /**
+     * RFC 4180 records, read one at a time; quoted fields may hold commas, doubled quotes and line breaks.
+     * Blank lines are skipped and a leading byte order mark is ignored.
+     */
+    static final class CsvReader {
+
+        private final Reader reader;
+        private int line = 1;
+        private int recordLine;
+        private int pending = -1;
+        private boolean started;
+
+        CsvReader(Reader reader) {
+            this.reader = new BufferedReader(reader, 64 * 1024);
+        }
+
+        // Line the last record started on, for error messages
+        long recordLine() {
+            return recordLine;
+        }
+
+        List<String> next() throws IOException {
+            int c = read();
+            if (!started) {
+                started = true;
+                if (c == '\uFEFF') {
+                    c = read();
+                }
+            }
+            while (c == '\r' || c == '\n') {
+                c = newLine(c);
+            }
+            if (c == -1) {
+                return null;
+            }
+            recordLine = line;
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            int length = 0;
+            boolean quoted = false;
+            boolean wasQuoted = false;
+            while (true) {
+                if (++length > MAX_RECORD_LENGTH) {
+                    throw new IllegalArgumentException("Line " + recordLine + ": record longer than "
+                            + MAX_RECORD_LENGTH + " characters, is a closing quote missing?");
+                }
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IllegalArgumentException("Line " + recordLine + ": closing quote missing");
+                    }
+                    if (c == '"') {
+                        c = read();
+                        if (c != '"') {
+                            quoted = false;
+                            continue;
+                        }
+                    } else if (c == '\n' || (c == '\r' && peekNotNewLine())) {
+                        line++;
+                    }
+                    field.append((char) c);
+                } else if (c == '"' && field.isEmpty() && !wasQuoted) {
+                    quoted = true;
+                    wasQuoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                    wasQuoted = false;
+                } else if (c == '\r' || c == '\n' || c == -1) {
+                    fields.add(field.toString());
+                    if (c != -1) {
+                        pending = newLine(c);
+                    }
+                    return fields;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+        }
+
+        private int read() throws IOException {
+            if (pending >= 0) {
+                int c = pending;
+                pending = -1;
+                return c;
+            }
+            return reader.read();
+        }
+
+        // Consumes one line break (\r\n counts once) and returns the character after it
+        private int newLine(int c) throws IOException {
+            line++;
+            int next = read();
+            return c == '\r' && next == '\n' ? read() : next;
+        }
+
+        // A \r inside quotes only ends a line when no \n follows it
+        private boolean peekNotNewLine() throws IOException {
+            reader.mark(1);
+            int next = reader.read();
+            reader.reset();
+            return next != '\n';
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.abhinand.bookmymatch.service;
+
+import com.abhinand.bookmymatch.event.BookingActivityEvent;
+import com.abhinand.bookmymatch.event.TotalsChangedEvent;
+import com.abhinand.bookmymatch.repository.BookingRepository;
+import com.abhinand.bookmymatch.repository.MatchRepository;
+import com.abhinand.bookmymatch.repository.StadiumRepository;
+import com.abhinand.bookmymatch.repository.TeamRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Totals for the admin dashboard, held in memory so the page costs the same whatever the size of the
+ * bookings table. Write paths publish {@link TotalsChangedEvent}s and {@link BookingActivityEvent}s that are
+ * applied once they commit; a periodic reconcile recomputes everything with aggregate queries and corrects whatever the counters
+ * missed (rows written by hand, an event lost to a crash). Corrections are counted as dashboard.stats.drift.
+ */
+@Service
+@Slf4j
+public class DashboardStatsService {
+
+    private final MatchRepository matchRepository;
+    private final TeamRepository teamRepository;
+    private final StadiumRepository stadiumRepository;
+    private final BookingRepository bookingRepository;
+    private final Counter drift;
+
+    // Counters and the changes seen while a reconcile is reading, all guarded by lock
+    private final Object lock = new Object();
+    private Totals totals;
+    private LocalDate today;
+    private long bookingsToday;
+    private List<Object> changesDuringReconcile;
+    private volatile LocalDateTime reconciledAt;
+
+    public DashboardStatsService(MatchRepository matchRepository,
+                                 TeamRepository teamRepository,
+                                 StadiumRepository stadiumRepository,
+                                 BookingRepository bookingRepository,
+                                 MeterRegistry meterRegistry) {
+        this.matchRepository = matchRepository;
+        this.teamRepository = teamRepository;
+        this.stadiumRepository = stadiumRepository;
+        this.bookingRepository = bookingRepository;
+        this.drift = Counter.builder("dashboard.stats.drift")
+                .description("Reconciles that found the dashboard counters out of step with the database")
+                .register(meterRegistry);
+    }
+
+    public Stats getStats() {
+        if (reconciledAt == null) {
+            reconcile();
+        }
+        synchronized (lock) {
+            rollOver(LocalDate.now());
+            return new Stats(totals.matches(), totals.teams(), totals.stadiums(), totals.bookings(),
+                    totals.seatsSold(), totals.revenue(), bookingsToday, reconciledAt);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTotalsChanged(TotalsChangedEvent event) {
+        change(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingActivity(BookingActivityEvent event) {
+        change(event);
+    }
+
+    private void change(Object event) {
+        synchronized (lock) {
+            if (changesDuringReconcile != null) {
+                changesDuringReconcile.add(event);
+            }
+            if (totals != null) {
+                apply(event);
+            }
+        }
+    }
+
+    /**
+     * Recounts from the database. Changes committed while the queries run are replayed on top; one whose
+     * listener runs just after the reconcile started but that the queries already saw is counted twice
+     * until the next reconcile.
+     */
+    @Scheduled(initialDelayString = "${dashboard.stats.reconcile-interval-ms:300000}",
+               fixedDelayString = "${dashboard.stats.reconcile-interval-ms:300000}")
+    public synchronized void reconcile() {
+        synchronized (lock) {
+            changesDuringReconcile = new ArrayList<>();
+        }
+        try {
+            LocalDate day = LocalDate.now();
+            BookingRepository.SalesView sales = bookingRepository.sumSales();
+            Totals counted = new Totals(matchRepository.count(), teamRepository.count(), stadiumRepository.count(),
+                    sales.getBookings(), sales.getSeats() == null ? 0 : sales.getSeats(),
+                    sales.getRevenue() == null ? BigDecimal.ZERO : sales.getRevenue());
+            long countedToday = bookingRepository.countByBookedAtGreaterThanEqual(day.atStartOfDay());
+
+            synchronized (lock) {
+                Totals previous = totals;
+                totals = counted;
+                today = day;
+                bookingsToday = countedToday;
+                changesDuringReconcile.forEach(this::apply);
+                if (previous != null && !previous.sameAs(totals)) {
+                    drift.increment();
+                    log.info("Dashboard totals corrected from {} to {}", previous, totals);
+                }
+                reconciledAt = LocalDateTime.now();
+            }
+        } finally {
+            synchronized (lock) {
+                changesDuringReconcile = null;
+            }
+        }
+    }
+
+    private void apply(Object event) {
+        if (event instanceof TotalsChangedEvent change) {
+            totals = new Totals(totals.matches() + change.matches(), totals.teams() + change.teams(),
+                    totals.stadiums() + change.stadiums(), totals.bookings(), totals.seatsSold(), totals.revenue());
+        } else if (event instanceof BookingActivityEvent activity) {
+            totals = totals.plus(activity);
+            if (activity.activity() == BookingActivityEvent.Activity.CREATED) {
+                // Bookings are created at the time of the event, so they all belong to today
+                rollOver(LocalDate.now());
+                bookingsToday += activity.bookings();
+            }
+        }
+    }
+
+    private void rollOver(LocalDate day) {
+        if (!day.equals(today)) {
+            today = day;
+            bookingsToday = 0;
+        }
+    }
+
+    public record Stats(long totalMatches, long totalTeams, long totalStadiums, long totalBookings,
+                        long seatsSold, BigDecimal revenue, long bookingsToday, LocalDateTime reconciledAt) {
+    }
+
+    private record Totals(long matches, long teams, long stadiums, long bookings, long seatsSold, BigDecimal revenue) {
+
+        // Seats sold and revenue only cover paid bookings, so they move on payment and on cancelling a paid one
+        private Totals plus(BookingActivityEvent event) {
+            return switch (event.activity()) {
+                case CREATED -> new Totals(matches, teams, stadiums, bookings + event.bookings(), seatsSold, revenue);
+                case PAID -> new Totals(matches, teams, stadiums, bookings,
+                        seatsSold + event.tickets(), revenue.add(event.amount()));
+                case CANCELLED_AFTER_PAYMENT -> new Totals(matches, teams, stadiums, bookings,
+                        seatsSold - event.tickets(), revenue.subtract(event.amount()));
+                case CANCELLED -> this;
+            };
+        }
+
+        // Revenue from the database and from the counters can differ in scale only
+        private boolean sameAs(Totals other) {
+            return matches == other.matches && teams == other.teams && stadiums == other.stadiums
+                    && bookings == other.bookings && seatsSold == other.seatsSold
+                    && revenue.compareTo(other.revenue) == 0;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.abhinand.bookmymatch.service;
+
+import com.abhinand.bookmymatch.entity.Booking;
+import com.abhinand.bookmymatch.entity.TicketSection;
+import com.abhinand.bookmymatch.event.BookingActivityEvent;
+import com.abhinand.bookmymatch.event.SeatInventoryChangedEvent;
+import com.abhinand.bookmymatch.repository.BookingRepository;
+import com.abhinand.bookmymatch.repository.MatchRepository;
+import com.abhinand.bookmymatch.repository.TicketSectionRepository;
+import com.abhinand.bookmymatch.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Opt-in booking path for hot ticket sections. Requests for the same section are queued and
+ * a single writer per section turns each batch into one seat decrement plus one batched insert,
+ * instead of every request queueing on the section row lock in its own transaction.
+ */
+@Service
+@Slf4j
+public class GroupCommitBookingEngine {
+
+    private static final long IDLE_WRITER_MILLIS = 1000;
+    private static final int MAX_RESERVE_ATTEMPTS = 3;
+
+    private final BookingRepository bookingRepository;
+    private final TicketSectionRepository ticketSectionRepository;
+    private final MatchRepository matchRepository;
+    private final UserRepository userRepository;
+    private final SeatHoldManager seatHoldManager;
+    private final SeatAllocationService seatAllocationService;
+    private final BookingCodeGenerator bookingCodeGenerator;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final long lingerMillis;
+    private final int queueCapacity;
+    private final long timeoutMillis;
+
+    private final Map<Long, SectionLane> lanes = new ConcurrentHashMap<>();
+    private final ExecutorService writers;
+
+    public GroupCommitBookingEngine(BookingRepository bookingRepository,
+                                    TicketSectionRepository ticketSectionRepository,
+                                    MatchRepository matchRepository,
+                                    UserRepository userRepository,
+                                    SeatHoldManager seatHoldManager,
+                                    SeatAllocationService seatAllocationService,
+                                    BookingCodeGenerator bookingCodeGenerator,
+                                    TransactionTemplate transactionTemplate,
+                                    ApplicationEventPublisher eventPublisher,
+                                    @Value("${booking.group-commit.enabled:false}") boolean enabled,
+                                    @Value("${booking.group-commit.batch-size:50}") int batchSize,
+                                    @Value("${booking.group-commit.linger-ms:5}") long lingerMillis,
+                                    @Value("${booking.group-commit.queue-capacity:1000}") int queueCapacity,
+                                    @Value("${booking.group-commit.timeout-ms:5000}") long timeoutMillis) {
+        this.bookingRepository = bookingRepository;
+        this.ticketSectionRepository = ticketSectionRepository;
+        this.matchRepository = matchRepository;
+        this.userRepository = userRepository;
+        this.seatHoldManager = seatHoldManager;
+        this.seatAllocationService = seatAllocationService;
+        this.bookingCodeGenerator = bookingCodeGenerator;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.lingerMillis = lingerMillis;
+        this.queueCapacity = queueCapacity;
+        this.timeoutMillis = timeoutMillis;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.writers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "booking-writer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (enabled) {
+            log.info("Group-commit booking enabled (batch size {}, linger {} ms, queue capacity {})",
+                    batchSize, lingerMillis, queueCapacity);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getActiveLaneCount() {
+        return lanes.size();
+    }
+
+    /**Queue a booking for the section's writer and wait for its individual outcome*/
+
+    public Booking submit(Long userId, Long matchId, Long ticketSectionId, int numberOfTickets) {
+        PendingBooking pending = new PendingBooking(userId, matchId, numberOfTickets, new CompletableFuture<>());
+        // Offered under the map's lock for the section, so an idle lane can't be retired in between
+        AtomicBoolean queued = new AtomicBoolean();
+        SectionLane lane = lanes.compute(ticketSectionId, (id, existing) -> {
+            SectionLane current = existing != null ? existing : new SectionLane(id);
+            queued.set(current.queue.offer(pending));
+            return current;
+        });
+
+        if (!queued.get()) {
+            throw new IllegalStateException("Too many booking requests for this section right now, please try again");
+        }
+        lane.ensureWriter();
+
+        try {
+            return pending.result().get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Booking failed", e.getCause());
+        } catch (TimeoutException e) {
+            // The writer may still commit it later; the booking then shows up in "My Tickets"
+            throw new IllegalStateException("Booking is taking longer than expected, please check your tickets");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Booking was interrupted");
+        }
+    }
+
+    private void writeBatch(Long ticketSectionId, List<PendingBooking> batch) {
+        List<Runnable> completions = new ArrayList<>(batch.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                completions.clear();
+                TicketSection ticketSection = ticketSectionRepository.findById(ticketSectionId)
+                        .orElseThrow(() -> new IllegalArgumentException("Ticket section not found"));
+
+                // Bookability and the waiting room were checked for the request's match, so it has to be the section's
+                List<PendingBooking> sameMatch = new ArrayList<>(batch.size());
+                List<PendingBooking> otherMatch = new ArrayList<>();
+                for (PendingBooking pending : batch) {
+                    (ticketSection.getMatch().getId().equals(pending.matchId()) ? sameMatch : otherMatch).add(pending);
+                }
+
+                List<PendingBooking> accepted = reserveForBatch(ticketSection, sameMatch, completions);
+                otherMatch.forEach(pending -> completions.add(() -> pending.result().completeExceptionally(
+                        new IllegalArgumentException("Ticket section not found"))));
+                // One seat map write for the whole batch, like the counter
+                List<String> seatNumbers = seatAllocationService.allocateAll(ticketSectionId,
+                        accepted.stream().map(PendingBooking::numberOfTickets).toList());
+
+                List<Booking> bookings = new ArrayList<>(accepted.size());
+                for (int i = 0; i < accepted.size(); i++) {
+                    PendingBooking pending = accepted.get(i);
+                    bookings.add(Booking.builder()
+                            .bookingCode(bookingCodeGenerator.nextCode())
+                            .user(userRepository.getReferenceById(pending.userId()))
+                            .match(matchRepository.getReferenceById(pending.matchId()))
+                            .ticketSection(ticketSection)
+                            .numberOfTickets(pending.numberOfTickets())
+                            .seatNumbers(seatNumbers.get(i))
+                            .totalPrice(ticketSection.getPricePerTicket()
+                                    .multiply(BigDecimal.valueOf(pending.numberOfTickets())))
+                            .status(Booking.BookingStatus.PENDING_PAYMENT)
+                            .holdExpiresAt(seatHoldManager.newHoldExpiry())
+                            .build());
+                }
+
+                List<Booking> saved = bookingRepository.saveAll(bookings);
+                saved.forEach(booking -> eventPublisher.publishEvent(
+                        BookingActivityEvent.of(booking, BookingActivityEvent.Activity.CREATED)));
+                for (int i = 0; i < saved.size(); i++) {
+                    Booking booking = saved.get(i);
+                    CompletableFuture<Booking> result = accepted.get(i).result();
+                    completions.add(() -> {
+                        seatHoldManager.track(booking.getId(), booking.getHoldExpiresAt());
+                        result.complete(booking);
+                    });
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Group-commit batch failed for section {}", ticketSectionId, e);
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+            return;
+        }
+
+        // Only hand results back once the batch is committed
+        completions.forEach(Runnable::run);
+        log.debug("Committed batch of {} booking requests for section {}", batch.size(), ticketSectionId);
+    }
+
+    private List<PendingBooking> reserveForBatch(TicketSection ticketSection, List<PendingBooking> batch,
+                                                 List<Runnable> completions) {
+        Integer availableSeats = ticketSection.getAvailableSeats();
+
+        for (int attempt = 1; attempt <= MAX_RESERVE_ATTEMPTS; attempt++) {
+            completions.clear();
+            List<PendingBooking> accepted = new ArrayList<>(batch.size());
+            int remaining = availableSeats == null ? 0 : availableSeats;
+            int seats = 0;
+
+            for (PendingBooking pending : batch) {
+                if (pending.numberOfTickets() <= remaining) {
+                    accepted.add(pending);
+                    remaining -= pending.numberOfTickets();
+                    seats += pending.numberOfTickets();
+                } else {
+                    IllegalStateException rejection = remaining <= 0
+                            ? new IllegalStateException("This section is sold out")
+                            : new IllegalStateException(String.format("Only %d seats available in this section", remaining));
+                    completions.add(() -> pending.result().completeExceptionally(rejection));
+                }
+            }
+
+            if (seats == 0) {
+                return accepted;
+            }
+            if (ticketSectionRepository.reserveSeats(ticketSection.getId(), seats) == 1) {
+                eventPublisher.publishEvent(new SeatInventoryChangedEvent(ticketSection.getId()));
+                return accepted;
+            }
+
+            // Someone outside the engine moved the counter between our read and the update
+            availableSeats = ticketSectionRepository.findAvailableSeatsById(ticketSection.getId());
+            // The seats were there, so the match stopped taking bookings after the requests were checked
+            if (availableSeats != null && availableSeats >= seats) {
+                IllegalStateException rejection = new IllegalStateException("This match is not available for booking");
+                completions.clear();
+                batch.forEach(pending -> completions.add(() -> pending.result().completeExceptionally(rejection)));
+                return List.of();
+            }
+        }
+        throw new IllegalStateException("Could not reserve seats, please try again");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writers.shutdownNow();
+        lanes.values().forEach(lane -> lane.queue.forEach(pending ->
+                pending.result().completeExceptionally(new IllegalStateException("Booking service is shutting down"))));
+    }
+
+    private record PendingBooking(Long userId, Long matchId, int numberOfTickets,
+                                  CompletableFuture<Booking> result) {
+    }
+
+    // One queue and writer per section while it has traffic; a writer idle for IDLE_WRITER_MILLIS retires its lane
+    private final class SectionLane implements Runnable {
+
+        private final Long ticketSectionId;
+        private final BlockingQueue<PendingBooking> queue;
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        private SectionLane(Long ticketSectionId) {
+            this.ticketSectionId = ticketSectionId;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+
+        private void ensureWriter() {
+            if (running.compareAndSet(false, true)) {
+                writers.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    List<PendingBooking> batch = nextBatch();
+                    if (batch.isEmpty()) {
+                        if (retireIfIdle()) {
+                            return;
+                        }
+                        // A request slipped in after the last poll
+                        continue;
+                    }
+                    writeBatch(ticketSectionId, batch);
+                }
+            } catch (InterruptedException e) {
+                running.set(false);
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Nothing can be queued here once the lane is unmapped; later requests start a fresh lane
+        private boolean retireIfIdle() {
+            AtomicBoolean retired = new AtomicBoolean();
+            lanes.computeIfPresent(ticketSectionId, (id, lane) -> {
+                if (lane == this && queue.isEmpty()) {
+                    retired.set(true);
+                    return null;
+                }
+                return lane;
+            });
+            return retired.get();
+        }
+
+        private List<PendingBooking> nextBatch() throws InterruptedException {
+            List<PendingBooking> batch = new ArrayList<>(batchSize);
+            PendingBooking first = queue.poll(IDLE_WRITER_MILLIS, TimeUnit.MILLISECONDS);
+            if (first == null) {
+                return batch;
+            }
+            batch.add(first);
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+            while (batch.size() < batchSize) {
+                queue.drainTo(batch, batchSize - batch.size());
+                long waitNanos = deadline - System.nanoTime();
+                if (batch.size() >= batchSize || waitNanos <= 0) {
+                    break;
+                }
+                PendingBooking next = queue.poll(waitNanos, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    break;
+                }
+                batch.add(next);
+            }
+            return batch;
+        }
+    }
+}
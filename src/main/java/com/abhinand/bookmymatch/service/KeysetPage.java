@@ -0,0 +1,27 @@
+package com.abhinand.bookmymatch.service;
+
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+
+/**
+ * One page of a keyset (seek) listing. Pages are fetched one row over {@link #SIZE}, so hasMore is known
+ * without a count query; the next page starts after {@link #last()}.
+ */
+public record KeysetPage<T>(List<T> items, boolean hasMore) {
+
+    public static final int SIZE = 50;
+
+    static Limit limit() {
+        return Limit.of(SIZE + 1);
+    }
+
+    static <T> KeysetPage<T> of(List<T> fetched) {
+        boolean hasMore = fetched.size() > SIZE;
+        return new KeysetPage<>(hasMore ? fetched.subList(0, SIZE) : fetched, hasMore);
+    }
+
+    public T last() {
+        return items.isEmpty() ? null : items.get(items.size() - 1);
+    }
+}
@@ -0,0 +1,45 @@
+package com.abhinand.bookmymatch.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Seat counts and prices of one match, as served to polling clients.
+ * version changes whenever any count does and doubles as the response's ETag.
+ */
+public record MatchAvailability(Long matchId,
+                                String version,
+                                boolean bookable,
+                                int seatsLeft,
+                                boolean soldOut,
+                                List<Section> sections) {
+
+    static MatchAvailability of(MatchCard card, String instance) {
+        return new MatchAvailability(card.id(), instance + "-" + card.version(), card.isBookable(),
+                card.seatsLeft(), card.soldOut(),
+                card.ticketSections().stream().map(Section::of).toList());
+    }
+
+    /**Same totals, but only the sections that differ from previous*/
+
+    MatchAvailability changesSince(MatchAvailability previous) {
+        List<Section> changed = sections.stream()
+                .filter(section -> !previous.sections().contains(section))
+                .toList();
+        return new MatchAvailability(matchId, version, bookable, seatsLeft, soldOut, changed);
+    }
+
+    boolean sameAs(MatchAvailability other) {
+        return bookable == other.bookable() && seatsLeft == other.seatsLeft() && soldOut == other.soldOut()
+                && sections.equals(other.sections());
+    }
+
+    public record Section(Long id, String sectionName, int availableSeats, int totalSeats,
+                          BigDecimal pricePerTicket, boolean soldOut) {
+
+        static Section of(MatchCard.SectionView section) {
+            return new Section(section.id(), section.sectionName(), section.availableSeats(), section.totalSeats(),
+                    section.pricePerTicket(), section.isSoldOut());
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.abhinand.bookmymatch.service;
+
+import com.abhinand.bookmymatch.entity.Booking;
+import com.abhinand.bookmymatch.entity.Match;
+import com.abhinand.bookmymatch.event.CatalogChangedEvent;
+import com.abhinand.bookmymatch.event.BookingActivityEvent;
+import com.abhinand.bookmymatch.repository.BookingRepository;
+import com.abhinand.bookmymatch.repository.MatchRepository;
+import com.abhinand.bookmymatch.repository.TicketSectionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cancels a match in the background. Active bookings are walked in id-ordered chunks and cancelled with
+ * set-based updates (unpaid ones become CANCELLED, paid ones REFUNDED with a refund still owed), the match's
+ * inventory is reset in one statement, and refunds are then sent to Stripe by a small fixed pool.
+ * Running it again for the same match retries whatever refunds are still outstanding. Progress of a finished
+ * cancellation is kept for an hour by default.
+ */
+@Service
+@Slf4j
+public class MatchCancellationService {
+
+    private static final Set<Booking.BookingStatus> ACTIVE_STATUSES =
+            EnumSet.of(Booking.BookingStatus.PENDING_PAYMENT, Booking.BookingStatus.CONFIRMED);
+
+    private final MatchRepository matchRepository;
+    private final BookingRepository bookingRepository;
+    private final TicketSectionRepository ticketSectionRepository;
+    private final SeatAllocationService seatAllocationService;
+    private final SeatHoldManager seatHoldManager;
+    private final PaymentService paymentService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+    private final int refundConcurrency;
+    private final long progressRetentionMinutes;
+
+    // Finished entries are kept for the admin page until purgeFinishedCancellations drops them
+    private final Map<Long, Progress> cancellations = new ConcurrentHashMap<>();
+    private final ExecutorService coordinator;
+    private final ExecutorService refunders;
+
+    public MatchCancellationService(MatchRepository matchRepository,
+                                    BookingRepository bookingRepository,
+                                    TicketSectionRepository ticketSectionRepository,
+                                    SeatAllocationService seatAllocationService,
+                                    SeatHoldManager seatHoldManager,
+                                    PaymentService paymentService,
+                                    TransactionTemplate transactionTemplate,
+                                    ApplicationEventPublisher eventPublisher,
+                                    @Value("${booking.cancellation.chunk-size:500}") int chunkSize,
+                                    @Value("${booking.cancellation.refund-concurrency:4}") int refundConcurrency,
+                                    @Value("${booking.cancellation.progress-retention-minutes:60}") long progressRetentionMinutes) {
+        this.matchRepository = matchRepository;
+        this.bookingRepository = bookingRepository;
+        this.ticketSectionRepository = ticketSectionRepository;
+        this.seatAllocationService = seatAllocationService;
+        this.seatHoldManager = seatHoldManager;
+        this.paymentService = paymentService;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.refundConcurrency = Math.max(1, refundConcurrency);
+        this.progressRetentionMinutes = Math.max(0, progressRetentionMinutes);
+
+        this.coordinator = Executors.newSingleThreadExecutor(daemonThreads("match-cancellation"));
+        this.refunders = Executors.newFixedThreadPool(this.refundConcurrency, daemonThreads("match-refund"));
+    }
+
+    /**Starts cancelling the match; returns at once, progress is available from getProgress*/
+
+    public void cancelMatch(Long matchId) {
+        if (!matchRepository.existsById(matchId)) {
+            throw new IllegalArgumentException("Match not found");
+        }
+
+        Progress progress = new Progress();
+        Progress running = cancellations.compute(matchId, (id, existing) ->
+                existing != null && !existing.isFinished() ? existing : progress);
+        if (running != progress) {
+            throw new IllegalStateException("This match is already being cancelled");
+        }
+        coordinator.execute(() -> run(matchId, progress));
+    }
+
+    public ProgressView getProgress(Long matchId) {
+        Progress progress = cancellations.get(matchId);
+        return progress == null ? null : progress.view();
+    }
+
+    public Map<Long, ProgressView> getAllProgress() {
+        Map<Long, ProgressView> views = new ConcurrentHashMap<>();
+        cancellations.forEach((matchId, progress) -> views.put(matchId, progress.view()));
+        return views;
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void purgeFinishedCancellations() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(progressRetentionMinutes);
+        cancellations.values().removeIf(progress -> progress.finishedAt != null && !progress.finishedAt.isAfter(cutoff));
+    }
+
+    private void run(Long matchId, Progress progress) {
+        try {
+            // Stops new bookings before the sweep starts
+            transactionTemplate.executeWithoutResult(status -> {
+                matchRepository.updateStatus(matchId, Match.MatchStatus.CANCELLED);
+                eventPublisher.publishEvent(new CatalogChangedEvent(matchId));
+            });
+
+            // Bookings that were in flight when the status flipped show up in a later pass
+            progress.phase = Phase.CANCELLING_BOOKINGS;
+            while (cancelBookingsPass(matchId, progress) > 0) {
+                log.debug("Match {}: re-scanning for bookings committed during the last pass", matchId);
+            }
+
+            transactionTemplate.executeWithoutResult(status -> {
+                ticketSectionRepository.resetSeatsForMatch(matchId);
+                seatAllocationService.resetSeatMaps(matchId);
+                eventPublisher.publishEvent(new CatalogChangedEvent(matchId));
+            });
+
+            progress.phase = Phase.REFUNDING;
+            refundPayments(matchId, progress);
+
+            progress.phase = Phase.COMPLETED;
+            log.info("Match {} cancelled: {} bookings cancelled, {} refunded, {} refunds failed", matchId,
+                    progress.bookingsCancelled.get(), progress.refundsCompleted.get(), progress.refundsFailed.get());
+        } catch (RuntimeException e) {
+            log.error("Cancellation of match {} failed", matchId, e);
+            progress.error = e.getMessage();
+            progress.phase = Phase.FAILED;
+        } finally {
+            progress.finishedAt = LocalDateTime.now();
+        }
+    }
+
+    private int cancelBookingsPass(Long matchId, Progress progress) {
+        int cancelled = 0;
+        long afterId = 0;
+        while (true) {
+            long chunkAfterId = afterId;
+            List<BookingRepository.ActivityView> bookings = transactionTemplate.execute(status -> {
+                List<BookingRepository.ActivityView> locked = bookingRepository.lockByMatchAndStatus(
+                        matchId, ACTIVE_STATUSES, chunkAfterId, Limit.of(chunkSize));
+                List<Long> ids = locked.stream().map(BookingRepository.ActivityView::getId).toList();
+                if (!ids.isEmpty()) {
+                    bookingRepository.cancelPending(ids);
+                    bookingRepository.markRefundDue(ids);
+                    publishCancellations(locked);
+                }
+                return locked;
+            });
+            if (bookings == null || bookings.isEmpty()) {
+                return cancelled;
+            }
+            // A pending booking may have a PaymentIntent open; the hold manager settles it with Stripe
+            bookings.forEach(booking -> {
+                if (booking.getStatus() == Booking.BookingStatus.PENDING_PAYMENT) {
+                    seatHoldManager.settlePayment(booking.getId());
+                } else {
+                    seatHoldManager.release(booking.getId());
+                }
+            });
+            List<Long> bookingIds = bookings.stream().map(BookingRepository.ActivityView::getId).toList();
+
+            cancelled += bookingIds.size();
+            progress.bookingsCancelled.addAndGet(bookingIds.size());
+            afterId = bookingIds.get(bookingIds.size() - 1);
+        }
+    }
+
+    // One event per section and kind of cancellation rather than one per booking
+    private void publishCancellations(List<BookingRepository.ActivityView> bookings) {
+        Map<List<Object>, BookingActivityEvent> events = new LinkedHashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (BookingRepository.ActivityView booking : bookings) {
+            BookingActivityEvent.Activity activity = booking.getStatus() == Booking.BookingStatus.CONFIRMED
+                    ? BookingActivityEvent.Activity.CANCELLED_AFTER_PAYMENT
+                    : BookingActivityEvent.Activity.CANCELLED;
+            events.merge(List.of(booking.getTicketSectionId(), activity),
+                    new BookingActivityEvent(booking.getMatchId(), booking.getTicketSectionId(), activity,
+                            1, booking.getNumberOfTickets(), booking.getTotalPrice(), now),
+                    (sum, next) -> new BookingActivityEvent(sum.matchId(), sum.ticketSectionId(), activity,
+                            sum.bookings() + 1, sum.tickets() + next.tickets(), sum.amount().add(next.amount()), now));
+        }
+        events.values().forEach(eventPublisher::publishEvent);
+    }
+
+    private void refundPayments(Long matchId, Progress progress) {
+        // Caps queued refunds so a sold-out stadium never sits in memory as 60k tasks
+        Semaphore slots = new Semaphore(refundConcurrency * 2);
+        long afterId = 0;
+        while (true) {
+            List<BookingRepository.RefundView> refunds =
+                    bookingRepository.findRefundsDue(matchId, afterId, Limit.of(chunkSize));
+            if (refunds.isEmpty()) {
+                break;
+            }
+            for (BookingRepository.RefundView refund : refunds) {
+                slots.acquireUninterruptibly();
+                progress.refundsQueued.incrementAndGet();
+                refunders.execute(() -> {
+                    try {
+                        refund(refund, progress);
+                    } finally {
+                        slots.release();
+                    }
+                });
+            }
+            afterId = refunds.get(refunds.size() - 1).getId();
+        }
+        // Wait for the last refunds to finish
+        slots.acquireUninterruptibly(refundConcurrency * 2);
+        slots.release(refundConcurrency * 2);
+    }
+
+    private void refund(BookingRepository.RefundView refund, Progress progress) {
+        // Bookings are only confirmed once Stripe has taken the payment, so a paid booking without an intent
+        // is an anomaly; it stays refund-due for someone to look into rather than being marked refunded
+        if (refund.getPaymentIntentId() == null) {
+            log.error("Booking {} was paid but has no PaymentIntent; refund of {} left outstanding",
+                    refund.getId(), refund.getTotalPrice());
+            progress.refundsFailed.incrementAndGet();
+            return;
+        }
+        try {
+            // Only this booking's share, since a cart's intent also paid for other matches; keyed by booking
+            // so a retry after markRefunded failed never refunds twice
+            paymentService.refundPayment(refund.getPaymentIntentId(), refund.getTotalPrice(),
+                    "refund-booking-" + refund.getId());
+            transactionTemplate.executeWithoutResult(status -> bookingRepository.markRefunded(refund.getId()));
+            progress.refundsCompleted.incrementAndGet();
+        } catch (Exception e) {
+            log.error("Refund failed for booking {}", refund.getId(), e);
+            progress.refundsFailed.incrementAndGet();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+        refunders.shutdownNow();
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public enum Phase {
+        QUEUED,
+        CANCELLING_BOOKINGS,
+        REFUNDING,
+        COMPLETED,
+        FAILED
+    }
+
+    public record ProgressView(Phase phase, long bookingsCancelled, long refundsQueued, long refundsCompleted,
+                               long refundsFailed, LocalDateTime startedAt, LocalDateTime finishedAt, String error) {
+    }
+
+    private static final class Progress {
+        private final AtomicLong bookingsCancelled = new AtomicLong();
+        private final AtomicLong refundsQueued = new AtomicLong();
+        private final AtomicLong refundsCompleted = new AtomicLong();
+        private final AtomicLong refundsFailed = new AtomicLong();
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private volatile Phase phase = Phase.QUEUED;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+
+        private boolean isFinished() {
+            return phase == Phase.COMPLETED || phase == Phase.FAILED;
+        }
+
+        private ProgressView view() {
+            return new ProgressView(phase, bookingsCancelled.get(), refundsQueued.get(), refundsCompleted.get(),
+                    refundsFailed.get(), startedAt, finishedAt, error);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.abhinand.bookmymatch.service;
+
+import com.abhinand.bookmymatch.entity.Match;
+import com.abhinand.bookmymatch.entity.Stadium;
+import com.abhinand.bookmymatch.entity.Team;
+import com.abhinand.bookmymatch.entity.TicketSection;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Everything the catalog pages show about one match, flattened into immutable values.
+ * The summary fields (lowest price, seats left, sold out) are worked out once when the card is built.
+ * version changes every time the card is replaced; contentVersion only when it is reloaded,
+ * not when just a seat count moves. modifiedAt (epoch milliseconds) is when it was last replaced.
+ */
+public record MatchCard(Long id,
+                        long version,
+                        long contentVersion,
+                        long modifiedAt,
+                        String competition,
+                        String description,
+                        LocalDateTime matchDateTime,
+                        Match.MatchStatus status,
+                        boolean bookingClosed,
+                        TeamView homeTeam,
+                        TeamView awayTeam,
+                        StadiumView stadium,
+                        List<SectionView> ticketSections,
+                        BigDecimal lowestPrice,
+                        int seatsLeft,
+                        boolean soldOut) {
+
+    static MatchCard of(Match match, List<TicketSection> sections, long version) {
+        return build(match.getId(), version, version, match.getCompetition(), match.getDescription(),
+                match.getMatchDateTime(), match.getStatus(), match.isBookingClosed(),
+                TeamView.of(match.getHomeTeam()), TeamView.of(match.getAwayTeam()), StadiumView.of(match.getStadium()),
+                sections.stream().map(SectionView::of).sorted(SectionView.BY_PRICE).toList());
+    }
+
+    /**Same card with one section's inventory swapped in*/
+
+    MatchCard withSection(SectionView updated, long newVersion) {
+        return build(id, newVersion, contentVersion, competition, description, matchDateTime, status, bookingClosed,
+                homeTeam, awayTeam, stadium,
+                ticketSections.stream().map(section -> section.id().equals(updated.id()) ? updated : section).toList());
+    }
+
+    private static MatchCard build(Long id, long version, long contentVersion, String competition,
+                                   String description, LocalDateTime matchDateTime, Match.MatchStatus status,
+                                   boolean bookingClosed,
+                                   TeamView homeTeam, TeamView awayTeam, StadiumView stadium,
+                                   List<SectionView> sections) {
+        BigDecimal lowestPrice = sections.stream()
+                .filter(section -> !section.isSoldOut())
+                .map(SectionView::pricePerTicket)
+                .min(Comparator.naturalOrder())
+                .orElse(null);
+        int seatsLeft = sections.stream().mapToInt(SectionView::availableSeats).sum();
+        return new MatchCard(id, version, contentVersion, System.currentTimeMillis(), competition, description,
+                matchDateTime, status, bookingClosed, homeTeam, awayTeam, stadium, sections, lowestPrice, seatsLeft,
+                !sections.isEmpty() && seatsLeft <= 0);
+    }
+
+    /**Whether the two cards show exactly the same, whatever their versions*/
+
+    boolean showsSameAs(MatchCard other) {
+        return other != null && unversioned().equals(other.unversioned());
+    }
+
+    private MatchCard unversioned() {
+        return new MatchCard(id, 0, 0, 0, competition, description, matchDateTime, status, bookingClosed,
+                homeTeam, awayTeam, stadium, ticketSections, lowestPrice, seatsLeft, soldOut);
+    }
+
+    public boolean isBookable() {
+        return status == Match.MatchStatus.UPCOMING && !bookingClosed;
+    }
+
+    public record TeamView(String name, String shortName, String city, String logoUrl) {
+
+        static TeamView of(Team team) {
+            return new TeamView(team.getName(), team.getShortName(), team.getCity(), team.getLogoUrl());
+        }
+    }
+
+    public record StadiumView(String name, String city, String country, String imageUrl) {
+
+        static StadiumView of(Stadium stadium) {
+            return new StadiumView(stadium.getName(), stadium.getCity(), stadium.getCountry(), stadium.getImageUrl());
+        }
+    }
+
+    public record SectionView(Long id, String sectionName, int totalSeats, int availableSeats,
+                              BigDecimal pricePerTicket, String description, long inventoryVersion) {
+
+        static final Comparator<SectionView> BY_PRICE = Comparator.comparing(SectionView::pricePerTicket);
+
+        static SectionView of(TicketSection section) {
+            return new SectionView(section.getId(), section.getSectionName(), section.getTotalSeats(),
+                    section.getAvailableSeats(), section.getPricePerTicket(), section.getDescription(),
+                    section.getVersion() == null ? 0 : section.getVersion());
+        }
+
+        SectionView withInventory(int availableSeats, long inventoryVersion) {
+            return new SectionView(id, sectionName, totalSeats, availableSeats, pricePerTicket, description,
+                    inventoryVersion);
+        }
+
+        public boolean isSoldOut() {
+            return availableSeats <= 0;
+        }
+
+        public int getBookedSeats() {
+            return totalSeats - availableSeats;
+        }
+    }
+}
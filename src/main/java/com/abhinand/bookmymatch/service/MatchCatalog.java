@@ -0,0 +1,337 @@
+package com.abhinand.bookmymatch.service;
+
+import com.abhinand.bookmymatch.entity.Match;
+import com.abhinand.bookmymatch.entity.TicketSection;
+import com.abhinand.bookmymatch.event.CatalogChangedEvent;
+import com.abhinand.bookmymatch.event.SeatInventoryChangedEvent;
+import com.abhinand.bookmymatch.repository.MatchRepository;
+import com.abhinand.bookmymatch.repository.TicketSectionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Read model behind the public match pages: one {@link MatchCard} per match, kept in memory and
+ * patched after each committed change instead of being rebuilt from four tables per request.
+ * Seat changes only re-read the section's counter; edits to a match reload its card, and team or
+ * stadium edits reload every card. The listing of upcoming matches is loaded on first use and again
+ * once it is older than its max age, which also catches anything an event missed; it holds at most
+ * the max size soonest matches at each load. Other matches are loaded the first time their page is
+ * opened and kept in a bounded cache, and ids that turned out not to exist are remembered for a short
+ * while so they don't reach the database on every request. Sizes and hit rates are published as
+ * catalog.cards, catalog.listing.* and cache.* metrics.
+ */
+@Service
+@Slf4j
+public class MatchCatalog {
+
+    private final MatchRepository matchRepository;
+    private final TicketSectionRepository ticketSectionRepository;
+
+    // The listing: the soonest UPCOMING matches, a set the lifecycle scheduler keeps small
+    private final Map<Long, MatchCard> upcoming = new ConcurrentHashMap<>();
+    private final int listingMaxSize;
+    private final long listingMaxAgeMillis;
+    private final Counter listingHits;
+    private final Counter listingMisses;
+    private final Timer listingLoads;
+    // Started, finished and cancelled matches whose page was opened
+    private final Cache<Long, MatchCard> others;
+    private final Cache<Long, Boolean> missing;
+    private final Map<Long, Long> matchIdsBySection = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+    // Moved only once a change is visible, so a listing tag read before rendering is never newer than the page
+    private final AtomicLong listingChanges = new AtomicLong();
+    private volatile long listingChangedAt = System.currentTimeMillis();
+    // Versions restart with the process, so tags handed out by an earlier run must never match
+    private final String instance = Long.toString(System.currentTimeMillis(), 36);
+    // 0 until the listing is first loaded
+    private volatile long listingLoadedAt;
+
+    public MatchCatalog(MatchRepository matchRepository,
+                        TicketSectionRepository ticketSectionRepository,
+                        MeterRegistry meterRegistry,
+                        @Value("${catalog.cache.max-size:1000}") long maxSize,
+                        @Value("${catalog.cache.missing-ttl-seconds:60}") long missingTtlSeconds,
+                        @Value("${catalog.listing.max-size:5000}") int listingMaxSize,
+                        @Value("${catalog.listing.max-age-seconds:300}") long listingMaxAgeSeconds) {
+        this.matchRepository = matchRepository;
+        this.ticketSectionRepository = ticketSectionRepository;
+        this.listingMaxSize = Math.max(1, listingMaxSize);
+        this.listingMaxAgeMillis = Duration.ofSeconds(listingMaxAgeSeconds).toMillis();
+
+        this.others = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .evictionListener((Long matchId, MatchCard card, RemovalCause cause) -> forgetSections(card))
+                .recordStats()
+                .build();
+        this.missing = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(missingTtlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, others, "matchCards");
+        CaffeineCacheMetrics.monitor(meterRegistry, missing, "missingMatches");
+        Gauge.builder("catalog.cards", this, catalog -> catalog.upcoming.size() + catalog.others.estimatedSize())
+                .description("Match cards held by the catalog read model")
+                .register(meterRegistry);
+        // Like cache.gets: a miss for each load of the listing, a hit for each listing served without one
+        this.listingHits = Counter.builder("catalog.listing.gets").tag("result", "hit")
+                .description("Upcoming match listings served from memory")
+                .register(meterRegistry);
+        this.listingMisses = Counter.builder("catalog.listing.gets").tag("result", "miss")
+                .description("Upcoming match listings that had to be loaded")
+                .register(meterRegistry);
+        this.listingLoads = Timer.builder("catalog.listing.load")
+                .description("Time taken to load the upcoming match listing")
+                .register(meterRegistry);
+    }
+
+    public List<MatchCard> getUpcomingMatches() {
+        if (!ensureLoaded()) {
+            listingHits.increment();
+        }
+        return upcoming.values().stream()
+                .sorted(Comparator.comparing(MatchCard::matchDateTime))
+                .toList();
+    }
+
+    /**Tag of the upcoming matches listing: moves with every card change or removal*/
+
+    public String getListingVersion() {
+        ensureLoaded();
+        return instance + "-" + listingChanges.get();
+    }
+
+    /**When the listing last changed, in epoch milliseconds; kick-offs reach it as status changes*/
+
+    public long getListingLastModified() {
+        ensureLoaded();
+        return listingChangedAt;
+    }
+
+    public MatchCard getMatch(Long matchId) {
+        return findMatch(matchId).orElseThrow(() -> new IllegalArgumentException("Match not found"));
+    }
+
+    /**Served from the card alone; its version only moves once a committed seat change has been applied*/
+
+    public MatchAvailability getAvailability(Long matchId) {
+        return MatchAvailability.of(getMatch(matchId), instance);
+    }
+
+    /**Tag of the card as served; like the availability version it moves with every change to the card*/
+
+    public String getVersion(MatchCard card) {
+        return instance + "-" + card.version();
+    }
+
+    /**Match of a section whose card is held, or null*/
+
+    public Long findMatchIdBySection(Long ticketSectionId) {
+        return matchIdsBySection.get(ticketSectionId);
+    }
+
+    public Optional<MatchCard> findMatch(Long matchId) {
+        MatchCard card = upcoming.get(matchId);
+        if (card == null) {
+            card = others.getIfPresent(matchId);
+        }
+        if (card != null || missing.getIfPresent(matchId) != null) {
+            return Optional.ofNullable(card);
+        }
+        return Optional.ofNullable(reload(matchId));
+    }
+
+    // fallbackExecution: edits made outside a transaction still reach the catalog
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.matchId() != null) {
+            missing.invalidate(event.matchId());
+            reload(event.matchId());
+        } else {
+            reloadAll();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSeatInventoryChanged(SeatInventoryChangedEvent event) {
+        Long matchId = matchIdsBySection.get(event.ticketSectionId());
+        if (matchId == null) {
+            return;
+        }
+        ticketSectionRepository.findInventoryById(event.ticketSectionId()).ifPresent(inventory -> {
+            BiFunction<Long, MatchCard, MatchCard> apply = (id, card) -> {
+                for (MatchCard.SectionView section : card.ticketSections()) {
+                    // Listeners can run out of order; never go back to an older count
+                    if (section.id().equals(inventory.getId()) && inventory.getVersion() > section.inventoryVersion()) {
+                        return card.withSection(
+                                section.withInventory(inventory.getAvailableSeats(), inventory.getVersion()),
+                                versions.incrementAndGet());
+                    }
+                }
+                return card;
+            };
+            // Only a listed card that was actually replaced moves the listing's tag
+            MatchCard listed = upcoming.get(matchId);
+            if (listed != null && upcoming.computeIfPresent(matchId, apply) != listed) {
+                listingChanged();
+            }
+            others.asMap().computeIfPresent(matchId, apply);
+        });
+    }
+
+    // Only a listing that is missing or too old takes the lock; every other read sees the volatile timestamp.
+    // Returns whether this call loaded it
+    private boolean ensureLoaded() {
+        if (isListingFresh()) {
+            return false;
+        }
+        synchronized (this) {
+            if (isListingFresh()) {
+                return false;
+            }
+            listingMisses.increment();
+            listingLoads.record(() -> {
+                // Cards that changed after this point are newer than the query and are kept whatever it says
+                long loadStartVersion = versions.get();
+                List<Match> matches = findListed();
+                Set<Long> listed = matches.stream().map(Match::getId).collect(Collectors.toSet());
+                upcoming.values().stream()
+                        .filter(card -> !listed.contains(card.id()) && card.version() <= loadStartVersion)
+                        .map(MatchCard::id)
+                        .toList()
+                        .forEach(this::remove);
+                putAll(matches);
+                log.info("Match catalog listing loaded with {} upcoming matches", matches.size());
+            });
+            listingLoadedAt = System.currentTimeMillis();
+            return true;
+        }
+    }
+
+    private boolean isListingFresh() {
+        long loadedAt = listingLoadedAt;
+        return loadedAt != 0 && System.currentTimeMillis() - loadedAt < listingMaxAgeMillis;
+    }
+
+    // Matches past the cap are still served one by one, they just aren't listed until they are among the soonest
+    private List<Match> findListed() {
+        List<Match> matches = matchRepository.findUpcomingMatches();
+        if (matches.size() <= listingMaxSize) {
+            return matches;
+        }
+        log.warn("{} upcoming matches, listing only the first {}", matches.size(), listingMaxSize);
+        return matches.subList(0, listingMaxSize);
+    }
+
+    private MatchCard reload(Long matchId) {
+        return matchRepository.findWithDetailsById(matchId)
+                .map(match -> put(match, ticketSectionRepository.findByMatchIdOrderByPricePerTicketAsc(matchId)))
+                .orElseGet(() -> {
+                    remove(matchId);
+                    missing.put(matchId, Boolean.TRUE);
+                    return null;
+                });
+    }
+
+    // Before the first listing only the cards opened so far are held, so only those are refreshed
+    private void reloadAll() {
+        List<Match> matches = new ArrayList<>(listingLoadedAt != 0 ? findListed() : List.of());
+        Set<Long> held = new HashSet<>(upcoming.keySet());
+        held.addAll(others.asMap().keySet());
+        matches.forEach(match -> held.remove(match.getId()));
+        if (!held.isEmpty()) {
+            matches.addAll(matchRepository.findWithDetailsByIdIn(held));
+        }
+        putAll(matches);
+    }
+
+    private void putAll(Collection<Match> matches) {
+        if (matches.isEmpty()) {
+            return;
+        }
+        Map<Long, List<TicketSection>> sectionsByMatch = ticketSectionRepository
+                .findByMatchIdInOrderByPricePerTicketAsc(matches.stream().map(Match::getId).toList())
+                .stream()
+                .collect(Collectors.groupingBy(section -> section.getMatch().getId()));
+        matches.forEach(match -> put(match, sectionsByMatch.getOrDefault(match.getId(), List.of())));
+    }
+
+    private MatchCard put(Match match, List<TicketSection> sections) {
+        MatchCard card = MatchCard.of(match, sections, versions.incrementAndGet());
+        // A card moves between the two when its match enters or leaves UPCOMING
+        boolean isUpcoming = card.status() == Match.MatchStatus.UPCOMING;
+        Map<Long, MatchCard> target = isUpcoming ? upcoming : others.asMap();
+        // Reloads that change nothing, such as the listing's periodic one, leave every tag where it was
+        MatchCard current = target.get(match.getId());
+        if (card.showsSameAs(current)) {
+            return current;
+        }
+        MatchCard moved = (isUpcoming ? others.asMap() : upcoming).remove(match.getId());
+        if (moved != null) {
+            card = newerInventory(moved, card);
+        }
+        card.ticketSections().forEach(section -> matchIdsBySection.put(section.id(), match.getId()));
+        MatchCard merged = target.merge(match.getId(), card, MatchCatalog::newerInventory);
+        listingChanged();
+        return merged;
+    }
+
+    private void remove(Long matchId) {
+        MatchCard card = upcoming.remove(matchId);
+        if (card == null) {
+            card = others.asMap().remove(matchId);
+        }
+        if (card != null) {
+            forgetSections(card);
+            listingChanged();
+        }
+    }
+
+    private void forgetSections(MatchCard card) {
+        card.ticketSections().forEach(section -> matchIdsBySection.remove(section.id(), card.id()));
+    }
+
+    private void listingChanged() {
+        listingChangedAt = System.currentTimeMillis();
+        listingChanges.incrementAndGet();
+    }
+
+    // A reload can race with a seat update that already moved a section further on
+    private static MatchCard newerInventory(MatchCard current, MatchCard loaded) {
+        MatchCard merged = loaded;
+        for (MatchCard.SectionView section : current.ticketSections()) {
+            for (MatchCard.SectionView reloaded : loaded.ticketSections()) {
+                if (reloaded.id().equals(section.id()) && section.inventoryVersion() > reloaded.inventoryVersion()) {
+                    merged = merged.withSection(reloaded.withInventory(section.availableSeats(), section.inventoryVersion()),
+                            loaded.version());
+                }
+            }
+        }
+        return merged;
+    }
+}
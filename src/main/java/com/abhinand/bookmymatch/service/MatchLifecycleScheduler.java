@@ -0,0 +1,197 @@
+package com.abhinand.bookmymatch.service;
+
+import com.abhinand.bookmymatch.entity.Match;
+import com.abhinand.bookmymatch.event.CatalogChangedEvent;
+import com.abhinand.bookmymatch.repository.MatchRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves matches through their lifecycle when each step comes due: bookings close at the cutoff before
+ * kick-off, the match goes LIVE at kick-off and COMPLETED once it has run its length. Only the next step
+ * of each match is queued. Every applied step publishes a {@link CatalogChangedEvent}, which refreshes
+ * the catalog, its caches and the search index, and brings the match back here for its following step.
+ */
+@Service
+@Slf4j
+public class MatchLifecycleScheduler {
+
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(30);
+
+    private final MatchRepository matchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration bookingCutoff;
+    private final Duration liveDuration;
+
+    private final DelayQueue<Transition> dueTransitions = new DelayQueue<>();
+    private final Map<Long, Transition> nextTransitions = new ConcurrentHashMap<>();
+    private final Timer transitionLag;
+    private final Thread transitionWorker;
+
+    public MatchLifecycleScheduler(MatchRepository matchRepository,
+                                   TransactionTemplate transactionTemplate,
+                                   ApplicationEventPublisher eventPublisher,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${match.lifecycle.booking-cutoff-minutes:0}") long bookingCutoffMinutes,
+                                   @Value("${match.lifecycle.live-duration-minutes:150}") long liveDurationMinutes) {
+        this.matchRepository = matchRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.bookingCutoff = Duration.ofMinutes(Math.max(0, bookingCutoffMinutes));
+        this.liveDuration = Duration.ofMinutes(liveDurationMinutes);
+
+        Gauge.builder("match.lifecycle.pending", nextTransitions, Map::size)
+                .description("Matches with a lifecycle transition queued")
+                .register(meterRegistry);
+        this.transitionLag = Timer.builder("match.lifecycle.lag")
+                .description("Delay between a lifecycle transition's due time and its commit")
+                .register(meterRegistry);
+
+        this.transitionWorker = new Thread(this::runTransitionLoop, "match-lifecycle");
+        this.transitionWorker.setDaemon(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        matchRepository.findUnfinishedLifecycles().forEach(this::schedule);
+        log.info("Match lifecycle scheduler started with {} matches queued", nextTransitions.size());
+        transitionWorker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        transitionWorker.interrupt();
+    }
+
+    // Created, edited, reopened or moved on by this scheduler: queue whatever comes next
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.isEverything()) {
+            matchRepository.findUnfinishedLifecycles().forEach(this::schedule);
+            return;
+        }
+        if (event.matchId() == null) {
+            return;
+        }
+        matchRepository.findLifecycleById(event.matchId())
+                .ifPresentOrElse(this::schedule, () -> nextTransitions.remove(event.matchId()));
+    }
+
+    public int getPendingCount() {
+        return nextTransitions.size();
+    }
+
+    private void schedule(MatchRepository.LifecycleView match) {
+        Transition next = nextTransition(match);
+        if (next == null) {
+            nextTransitions.remove(match.getId());
+            return;
+        }
+        // A replaced entry stays in the queue and is skipped when it comes due
+        nextTransitions.put(match.getId(), next);
+        dueTransitions.put(next);
+    }
+
+    private Transition nextTransition(MatchRepository.LifecycleView match) {
+        LocalDateTime kickOff = match.getMatchDateTime();
+        if (match.getStatus() == Match.MatchStatus.UPCOMING) {
+            return !match.isBookingClosed() && !bookingCutoff.isZero()
+                    ? new Transition(match.getId(), Step.CLOSE_BOOKING, toMillis(kickOff.minus(bookingCutoff)))
+                    : new Transition(match.getId(), Step.KICK_OFF, toMillis(kickOff));
+        }
+        if (match.getStatus() == Match.MatchStatus.LIVE) {
+            return new Transition(match.getId(), Step.FULL_TIME, toMillis(kickOff.plus(liveDuration)));
+        }
+        return null;
+    }
+
+    private void runTransitionLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Transition transition = dueTransitions.take();
+                if (!nextTransitions.remove(transition.matchId(), transition)) {
+                    continue;
+                }
+                apply(transition);
+                transitionLag.record(System.currentTimeMillis() - transition.dueAtMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void apply(Transition transition) {
+        try {
+            Boolean applied = transactionTemplate.execute(status -> {
+                int updated = switch (transition.step()) {
+                    case CLOSE_BOOKING -> matchRepository.closeBooking(transition.matchId());
+                    case KICK_OFF -> matchRepository.transition(transition.matchId(),
+                            Match.MatchStatus.UPCOMING, Match.MatchStatus.LIVE);
+                    case FULL_TIME -> matchRepository.transition(transition.matchId(),
+                            Match.MatchStatus.LIVE, Match.MatchStatus.COMPLETED);
+                };
+                if (updated == 0) {
+                    return false;
+                }
+                eventPublisher.publishEvent(new CatalogChangedEvent(transition.matchId()));
+                return true;
+            });
+            if (Boolean.TRUE.equals(applied)) {
+                log.info("Match {}: {}", transition.matchId(), transition.step());
+            } else {
+                // Changed underneath (cancelled, reopened): queue whatever its current state calls for
+                matchRepository.findLifecycleById(transition.matchId()).ifPresent(this::schedule);
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to apply {} to match {}, retrying", transition.step(), transition.matchId(), e);
+            Transition retry = new Transition(transition.matchId(), transition.step(),
+                    System.currentTimeMillis() + RETRY_DELAY.toMillis());
+            if (nextTransitions.putIfAbsent(transition.matchId(), retry) == null) {
+                dueTransitions.put(retry);
+            }
+        }
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private enum Step {
+        CLOSE_BOOKING,
+        KICK_OFF,
+        FULL_TIME
+    }
+
+    private record Transition(Long matchId, Step step, long dueAtMillis) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAtMillis, ((Transition) other).dueAtMillis);
+        }
+    }
+}
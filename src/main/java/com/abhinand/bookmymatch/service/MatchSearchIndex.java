@@ -0,0 +1,287 @@
+package com.abhinand.bookmymatch.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index for match search. Words are indexed per team, stadium and competition rather
+ * than per match, and each of those owns a bitmap of the matches that reference it; renaming a team
+ * therefore only rewrites that team's words. A query word matches every indexed word it is a prefix of,
+ * words are ANDed, and hits come back in kick-off order from a sorted walk, so the cost stays flat
+ * as the number of matches grows.
+ */
+public final class MatchSearchIndex {
+
+    private final NavigableMap<String, Set<String>> keysByWord = new TreeMap<>();
+    private final Map<String, Set<String>> wordsByKey = new HashMap<>();
+    private final Map<String, BitSet> matchesByKey = new HashMap<>();
+
+    private final Map<Long, Integer> docsByMatch = new HashMap<>();
+    private final List<Doc> docs = new ArrayList<>();
+    private final Deque<Integer> freeDocs = new ArrayDeque<>();
+    private final NavigableSet<Doc> byKickOff = new TreeSet<>(
+            Comparator.comparingLong(Doc::kickOff).thenComparingInt(Doc::doc));
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void putTeam(Long teamId, String... texts) {
+        putWords(teamKey(teamId), texts);
+    }
+
+    public void putStadium(Long stadiumId, String... texts) {
+        putWords(stadiumKey(stadiumId), texts);
+    }
+
+    public boolean hasTeam(Long teamId) {
+        return hasWords(teamKey(teamId));
+    }
+
+    public boolean hasStadium(Long stadiumId) {
+        return hasWords(stadiumKey(stadiumId));
+    }
+
+    public void removeTeam(Long teamId) {
+        putWords(teamKey(teamId));
+    }
+
+    public void removeStadium(Long stadiumId) {
+        putWords(stadiumKey(stadiumId));
+    }
+
+    /**Adds or replaces a match; kickOff is in epoch milliseconds*/
+
+    public void putMatch(Long matchId, Long homeTeamId, Long awayTeamId, Long stadiumId,
+                         String competition, long kickOff) {
+        List<String> keys = new ArrayList<>(List.of(teamKey(homeTeamId), teamKey(awayTeamId), stadiumKey(stadiumId)));
+        lock.writeLock().lock();
+        try {
+            removeMatchLocked(matchId);
+            if (competition != null && !competition.isBlank()) {
+                String key = competitionKey(competition);
+                keys.add(key);
+                if (!wordsByKey.containsKey(key)) {
+                    putWordsLocked(key, competition);
+                }
+            }
+
+            Integer free = freeDocs.poll();
+            int doc = free == null ? docs.size() : free;
+            Doc entry = new Doc(doc, matchId, kickOff, keys.toArray(String[]::new));
+            if (free == null) {
+                docs.add(entry);
+            } else {
+                docs.set(doc, entry);
+            }
+            docsByMatch.put(matchId, doc);
+            byKickOff.add(entry);
+            for (String key : entry.keys()) {
+                matchesByKey.computeIfAbsent(key, k -> new BitSet()).set(doc);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeMatch(Long matchId) {
+        lock.writeLock().lock();
+        try {
+            removeMatchLocked(matchId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docsByMatch.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of matches kicking off within [from, to] (epoch milliseconds) whose teams, stadium or
+     * competition contain a word starting with each word of the query, earliest first.
+     */
+    public List<Long> search(String query, long from, long to, int limit) {
+        List<String> terms = words(query);
+        lock.readLock().lock();
+        try {
+            BitSet candidates = null;
+            for (String term : terms) {
+                BitSet termMatches = matchesForPrefix(term);
+                if (candidates == null) {
+                    candidates = termMatches;
+                } else {
+                    candidates.and(termMatches);
+                }
+                if (candidates.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            // Walking the kick-off order visits about limit * size / candidates entries before it has
+            // enough hits; past the break-even point picking the earliest candidates directly is cheaper
+            if (candidates != null) {
+                long count = candidates.cardinality();
+                if (count * count < (long) limit * docsByMatch.size()) {
+                    return earliestCandidates(candidates, from, to, limit);
+                }
+            }
+            return walkKickOffs(candidates, from, to, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet matchesForPrefix(String prefix) {
+        BitSet matches = new BitSet(docs.size());
+        Set<String> seenKeys = new HashSet<>();
+        for (Set<String> keys : keysByWord.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values()) {
+            for (String key : keys) {
+                BitSet keyMatches = matchesByKey.get(key);
+                if (keyMatches != null && seenKeys.add(key)) {
+                    matches.or(keyMatches);
+                }
+            }
+        }
+        return matches;
+    }
+
+    private List<Long> earliestCandidates(BitSet candidates, long from, long to, int limit) {
+        Comparator<? super Doc> order = byKickOff.comparator();
+        // Max-heap of the best hits so far; most candidates are rejected after one comparison
+        PriorityQueue<Doc> earliest = new PriorityQueue<>(limit + 1, order.reversed());
+        for (int doc = candidates.nextSetBit(0); doc >= 0; doc = candidates.nextSetBit(doc + 1)) {
+            Doc entry = docs.get(doc);
+            if (entry.kickOff() < from || entry.kickOff() > to) {
+                continue;
+            }
+            if (earliest.size() < limit) {
+                earliest.add(entry);
+            } else if (order.compare(entry, earliest.peek()) < 0) {
+                earliest.poll();
+                earliest.add(entry);
+            }
+        }
+        return earliest.stream().sorted(order).map(Doc::matchId).toList();
+    }
+
+    private List<Long> walkKickOffs(BitSet candidates, long from, long to, int limit) {
+        List<Long> hits = new ArrayList<>(limit);
+        for (Doc entry : byKickOff.tailSet(new Doc(-1, null, from, null), true)) {
+            if (entry.kickOff() > to || hits.size() >= limit) {
+                break;
+            }
+            if (candidates == null || candidates.get(entry.doc())) {
+                hits.add(entry.matchId());
+            }
+        }
+        return hits;
+    }
+
+    private void removeMatchLocked(Long matchId) {
+        Integer doc = docsByMatch.remove(matchId);
+        if (doc == null) {
+            return;
+        }
+        Doc entry = docs.get(doc);
+        byKickOff.remove(entry);
+        for (String key : entry.keys()) {
+            BitSet keyMatches = matchesByKey.get(key);
+            if (keyMatches != null) {
+                keyMatches.clear(doc);
+            }
+        }
+        docs.set(doc, null);
+        freeDocs.push(doc);
+    }
+
+    private boolean hasWords(String key) {
+        lock.readLock().lock();
+        try {
+            return wordsByKey.containsKey(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void putWords(String key, String... texts) {
+        lock.writeLock().lock();
+        try {
+            putWordsLocked(key, texts);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void putWordsLocked(String key, String... texts) {
+        Set<String> previous = wordsByKey.remove(key);
+        if (previous != null) {
+            for (String word : previous) {
+                Set<String> keys = keysByWord.get(word);
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    keysByWord.remove(word);
+                }
+            }
+        }
+
+        Set<String> words = new HashSet<>();
+        for (String text : texts) {
+            words.addAll(words(text));
+        }
+        if (words.isEmpty()) {
+            return;
+        }
+        wordsByKey.put(key, words);
+        for (String word : words) {
+            keysByWord.computeIfAbsent(word, w -> new HashSet<>()).add(key);
+        }
+    }
+
+    static List<String> words(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> words = new ArrayList<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static String teamKey(Long teamId) {
+        return "t:" + teamId;
+    }
+
+    private static String stadiumKey(Long stadiumId) {
+        return "s:" + stadiumId;
+    }
+
+    private static String competitionKey(String competition) {
+        return "c:" + String.join(" ", words(competition));
+    }
+
+    private record Doc(int doc, Long matchId, long kickOff, String[] keys) {
+    }
+}
@@ -0,0 +1,136 @@
+package com.abhinand.bookmymatch.service;
+
+import com.abhinand.bookmymatch.entity.Match;
+import com.abhinand.bookmymatch.entity.Stadium;
+import com.abhinand.bookmymatch.entity.Team;
+import com.abhinand.bookmymatch.event.CatalogChangedEvent;
+import com.abhinand.bookmymatch.repository.MatchRepository;
+import com.abhinand.bookmymatch.repository.StadiumRepository;
+import com.abhinand.bookmymatch.repository.TeamRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps the {@link MatchSearchIndex} in step with the database and answers searches from it.
+ * Only upcoming matches are indexed. The index is built on first use and then patched from
+ * catalog change events: a match edit reindexes that match, a team or stadium edit only its words.
+ */
+@Service
+@Slf4j
+public class MatchSearchService {
+
+    private static final int RESULT_LIMIT = 50;
+
+    private final MatchRepository matchRepository;
+    private final TeamRepository teamRepository;
+    private final StadiumRepository stadiumRepository;
+    private final MatchCatalog matchCatalog;
+
+    private final MatchSearchIndex index = new MatchSearchIndex();
+    private volatile boolean loaded;
+
+    public MatchSearchService(MatchRepository matchRepository,
+                              TeamRepository teamRepository,
+                              StadiumRepository stadiumRepository,
+                              MatchCatalog matchCatalog) {
+        this.matchRepository = matchRepository;
+        this.teamRepository = teamRepository;
+        this.stadiumRepository = stadiumRepository;
+        this.matchCatalog = matchCatalog;
+    }
+
+    /**Upcoming matches matching every word of the query (as a prefix), kicking off between from and to inclusive*/
+
+    public List<MatchCard> search(String query, LocalDate from, LocalDate to) {
+        if (!loaded) {
+            load();
+        }
+        LocalDateTime start = from == null ? LocalDateTime.now() : from.atStartOfDay();
+        if (start.isBefore(LocalDateTime.now())) {
+            start = LocalDateTime.now();
+        }
+        long end = to == null ? Long.MAX_VALUE : toMillis(to.plusDays(1).atStartOfDay()) - 1;
+
+        return index.search(query, toMillis(start), end, RESULT_LIMIT).stream()
+                .map(matchCatalog::findMatch)
+                .flatMap(Optional::stream)
+                .toList();
+    }
+
+    // Synchronized with load() so nothing committed during the initial build is lost
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onCatalogChanged(CatalogChangedEvent event) {
+        if (!loaded) {
+            return;
+        }
+        if (event.isEverything()) {
+            // Bulk imports only add: index whatever is new, re-putting the rest is harmless
+            teamRepository.findAll().forEach(this::indexTeam);
+            stadiumRepository.findAll().forEach(this::indexStadium);
+            matchRepository.findUpcomingSearchViews().forEach(this::indexMatch);
+            return;
+        }
+        if (event.matchId() != null) {
+            matchRepository.findSearchViewById(event.matchId())
+                    .filter(match -> match.getStatus() == Match.MatchStatus.UPCOMING)
+                    .ifPresentOrElse(match -> {
+                        // Teams and stadiums created since the build have no words yet
+                        indexMissingTeam(match.getHomeTeamId());
+                        indexMissingTeam(match.getAwayTeamId());
+                        if (!index.hasStadium(match.getStadiumId())) {
+                            stadiumRepository.findById(match.getStadiumId()).ifPresent(this::indexStadium);
+                        }
+                        indexMatch(match);
+                    }, () -> index.removeMatch(event.matchId()));
+        }
+        if (event.teamId() != null) {
+            teamRepository.findById(event.teamId())
+                    .ifPresentOrElse(this::indexTeam, () -> index.removeTeam(event.teamId()));
+        }
+        if (event.stadiumId() != null) {
+            stadiumRepository.findById(event.stadiumId())
+                    .ifPresentOrElse(this::indexStadium, () -> index.removeStadium(event.stadiumId()));
+        }
+    }
+
+    private synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        teamRepository.findAll().forEach(this::indexTeam);
+        stadiumRepository.findAll().forEach(this::indexStadium);
+        matchRepository.findUpcomingSearchViews().forEach(this::indexMatch);
+        loaded = true;
+        log.info("Match search index built with {} upcoming matches", index.size());
+    }
+
+    private void indexMatch(MatchRepository.SearchView match) {
+        index.putMatch(match.getId(), match.getHomeTeamId(), match.getAwayTeamId(), match.getStadiumId(),
+                match.getCompetition(), toMillis(match.getMatchDateTime()));
+    }
+
+    private void indexMissingTeam(Long teamId) {
+        if (!index.hasTeam(teamId)) {
+            teamRepository.findById(teamId).ifPresent(this::indexTeam);
+        }
+    }
+
+    private void indexTeam(Team team) {
+        index.putTeam(team.getId(), team.getName(), team.getShortName(), team.getCity());
+    }
+
+    private void indexStadium(Stadium stadium) {
+        index.putStadium(stadium.getId(), stadium.getName(), stadium.getCity());
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -4,17 +4,22 @@ import com.abhinand.bookmymatch.entity.Match;
 import com.abhinand.bookmymatch.entity.Stadium;
 import com.abhinand.bookmymatch.entity.Team;
 import com.abhinand.bookmymatch.entity.TicketSection;
+import com.abhinand.bookmymatch.event.CatalogChangedEvent;
+import com.abhinand.bookmymatch.event.TotalsChangedEvent;
 import com.abhinand.bookmymatch.repository.MatchRepository;
 import com.abhinand.bookmymatch.repository.StadiumRepository;
 import com.abhinand.bookmymatch.repository.TeamRepository;
 import com.abhinand.bookmymatch.repository.TicketSectionRepository;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -22,34 +27,26 @@ import java.util.List;
 @Slf4j
 public class MatchService {
 
+    private static final int BULK_FLUSH_SIZE = 500;
+
     private final MatchRepository matchRepository;
     private final StadiumRepository stadiumRepository;
     private final TeamRepository teamRepository;
     private final TicketSectionRepository ticketSectionRepository;
-
-    public List<Match> getAllMatches() {
-        return matchRepository.findAll();
-    }
-
-    public List<Match> getUpcomingMatches() {
-        try {
-            // Try the query method first
-            List<Match> matches = matchRepository.findUpcomingMatches(LocalDateTime.now());
-            log.info("Found {} upcoming matches using query", matches.size());
-            return matches;
-        } catch (Exception e) {
-            // Fallback: get all matches and filter in Java
-            log.warn("Query method failed, using fallback: {}", e.getMessage());
-            return matchRepository.findAll().stream()
-                    .filter(m -> m.getStatus() == Match.MatchStatus.UPCOMING)
-                    .filter(m -> m.getMatchDateTime().isAfter(LocalDateTime.now()))
-                    .sorted((m1, m2) -> m1.getMatchDateTime().compareTo(m2.getMatchDateTime()))
-                    .toList();
-        }
+    private final SeatAllocationService seatAllocationService;
+    private final MatchCancellationService matchCancellationService;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // before/beforeId are the kick-off and id of the last match on the previous page, null for the first page
+    public KeysetPage<Match> getAllMatches(LocalDateTime before, Long beforeId) {
+        return KeysetPage.of(before == null || beforeId == null
+                ? matchRepository.findByOrderByMatchDateTimeDescIdDesc(KeysetPage.limit())
+                : matchRepository.findBefore(before, beforeId, KeysetPage.limit()));
     }
 
     public Match getMatchById(Long id) {
-        return matchRepository.findById(id)
+        return matchRepository.findWithDetailsById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Match not found"));
     }
 
@@ -79,29 +76,59 @@ public class MatchService {
                 .build();
 
         Match savedMatch = matchRepository.save(match);
+        eventPublisher.publishEvent(new CatalogChangedEvent(savedMatch.getId()));
+        eventPublisher.publishEvent(TotalsChangedEvent.matches(1));
         log.info("Creating new match: {} vs {} at {}", homeTeam.getName(), awayTeam.getName(), stadium.getName());
 
         return savedMatch;
     }
 
     @Transactional
-    public TicketSection addTicketSection(Long matchId, String sectionName,
-                                          Integer totalSeats, BigDecimal pricePerTicket, String description) {
+    public TicketSection addTicketSection(Long matchId, String sectionName, Integer totalSeats,
+                                          BigDecimal pricePerTicket, String description, Integer rowCount) {
+        return addTicketSections(matchId,
+                List.of(new NewTicketSection(sectionName, totalSeats, pricePerTicket, description, rowCount))).get(0);
+    }
+
+    // One transaction; with sequence ids Hibernate sends the inserts as JDBC batches
+    @Transactional
+    public List<TicketSection> addTicketSections(Long matchId, List<NewTicketSection> newSections) {
         Match match = getMatchById(matchId);
 
-        TicketSection section = TicketSection.builder()
-                .match(match)
-                .sectionName(sectionName)
-                .totalSeats(totalSeats)
-                .availableSeats(totalSeats)
-                .pricePerTicket(pricePerTicket)
-                .description(description)
-                .build();
+        List<TicketSection> savedSections = new ArrayList<>(newSections.size());
+        for (int i = 0; i < newSections.size(); i++) {
+            NewTicketSection newSection = newSections.get(i);
+            if (newSection.totalSeats() == null || newSection.totalSeats() <= 0) {
+                throw new IllegalArgumentException("Total seats must be greater than 0 for section " + newSection.sectionName());
+            }
+            TicketSection section = ticketSectionRepository.save(TicketSection.builder()
+                    .match(match)
+                    .sectionName(newSection.sectionName())
+                    .totalSeats(newSection.totalSeats())
+                    .availableSeats(newSection.totalSeats())
+                    .pricePerTicket(newSection.pricePerTicket())
+                    .description(newSection.description())
+                    .build());
+            // Sections with a row count sell numbered seats; the others stay count-only
+            if (newSection.rowCount() != null && newSection.rowCount() > 0) {
+                seatAllocationService.createSeatMap(section, newSection.rowCount());
+            }
+            savedSections.add(section);
+
+            // Keep the persistence context small so flushes don't rescan every earlier row
+            if ((i + 1) % BULK_FLUSH_SIZE == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        eventPublisher.publishEvent(new CatalogChangedEvent(matchId));
+        log.info("Added {} ticket section(s) to match {}", savedSections.size(), matchId);
 
-        TicketSection savedSection = ticketSectionRepository.save(section);
-        log.info("Added ticket section '{}' to match {}", sectionName, matchId);
+        return savedSections;
+    }
 
-        return savedSection;
+    public record NewTicketSection(String sectionName, Integer totalSeats, BigDecimal pricePerTicket,
+                                   String description, Integer rowCount) {
     }
 
     public List<TicketSection> getTicketSectionsByMatch(Long matchId) {
@@ -118,12 +145,22 @@ public class MatchService {
 
         log.info("Deleting match: {}", id);
         matchRepository.deleteById(id);
+        eventPublisher.publishEvent(new CatalogChangedEvent(id));
+        eventPublisher.publishEvent(TotalsChangedEvent.matches(-1));
     }
 
     @Transactional
     public Match updateMatchStatus(Long id, Match.MatchStatus status) {
+        if (status == Match.MatchStatus.CANCELLED) {
+            // Cancelling also releases the inventory and refunds the bookings, in the background
+            matchCancellationService.cancelMatch(id);
+            return getMatchById(id);
+        }
         Match match = getMatchById(id);
         match.setStatus(status);
+        // Reopened matches are closed again by the lifecycle scheduler if their cutoff has passed
+        match.setBookingClosed(status != Match.MatchStatus.UPCOMING);
+        eventPublisher.publishEvent(new CatalogChangedEvent(id));
         return matchRepository.save(match);
     }
 }
\ No newline at end of file
@@ -1,9 +1,13 @@
 package com.abhinand.bookmymatch.service;
 
 import com.abhinand.bookmymatch.entity.Booking;
+import com.stripe.exception.InvalidRequestException;
 import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentIntent;
+import com.stripe.model.Refund;
 import com.stripe.param.PaymentIntentCreateParams;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.RefundCreateParams;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -11,7 +15,9 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -79,6 +85,60 @@ public class PaymentService {
         return paymentIntent;
     }
 
+    /**Create one Stripe Payment Intent covering every booking in a cart*/
+
+    public PaymentIntent createPaymentIntent(String cartCode, List<Booking> bookings) throws StripeException {
+
+        BigDecimal totalPrice = bookings.stream()
+                .map(Booking::getTotalPrice)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        long amountInPaise = totalPrice
+                .multiply(BigDecimal.valueOf(100))
+                .longValueExact();
+
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put("cart_code", cartCode);
+        // Stripe caps metadata values at 500 characters; the cart code is the durable reference
+        String bookingIds = bookings.stream()
+                .map(booking -> booking.getId().toString())
+                .collect(Collectors.joining(","));
+        if (bookingIds.length() <= 500) {
+            metadata.put("booking_ids", bookingIds);
+        }
+
+        Booking first = bookings.get(0);
+        if (first.getUser() != null && first.getUser().getId() != null) {
+            metadata.put("user_id", first.getUser().getId().toString());
+        }
+
+        metadata.put("test_mode", Boolean.toString(testMode));
+
+        PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
+                .setAmount(amountInPaise)
+                .setCurrency(currency.toLowerCase())
+                .setDescription("Match Ticket Booking - cart " + cartCode)
+                .putAllMetadata(metadata)
+                .setAutomaticPaymentMethods(
+                        PaymentIntentCreateParams.AutomaticPaymentMethods.builder()
+                                .setEnabled(true)
+                                .build()
+                )
+                .build();
+
+        PaymentIntent paymentIntent = PaymentIntent.create(params);
+
+        log.info(
+                "PaymentIntent created: {} | cart: {} ({} bookings) | amount: {} {}",
+                paymentIntent.getId(),
+                cartCode,
+                bookings.size(),
+                totalPrice,
+                currency.toUpperCase()
+        );
+
+        return paymentIntent;
+    }
+
     /**Retrieve a Payment Intent by ID*/
 
     public PaymentIntent retrievePaymentIntent(String paymentIntentId) throws StripeException {
@@ -92,6 +152,48 @@ public class PaymentService {
         return paymentIntent.cancel();
     }
 
+    /**
+     * Cancel a Payment Intent unless it has already been paid, and tell which of the two happened.
+     * Once this returns false the intent can no longer be charged.
+     */
+
+    public boolean cancelPaymentIntentUnlessPaid(String paymentIntentId) throws StripeException {
+        PaymentIntent paymentIntent = PaymentIntent.retrieve(paymentIntentId);
+        if ("succeeded".equals(paymentIntent.getStatus())) {
+            return true;
+        }
+        if ("canceled".equals(paymentIntent.getStatus())) {
+            return false;
+        }
+        try {
+            paymentIntent.cancel();
+            log.info("PaymentIntent cancelled: {}", paymentIntentId);
+            return false;
+        } catch (InvalidRequestException e) {
+            // Paid between the two calls
+            if ("succeeded".equals(PaymentIntent.retrieve(paymentIntentId).getStatus())) {
+                return true;
+            }
+            throw e;
+        }
+    }
+
+    /**Refund part of a Payment Intent; retries with the same key never refund twice*/
+
+    public Refund refundPayment(String paymentIntentId, BigDecimal amount, String idempotencyKey) throws StripeException {
+        long amountInPaise = amount
+                .multiply(BigDecimal.valueOf(100))
+                .longValueExact();
+        Refund refund = Refund.create(RefundCreateParams.builder()
+                        .setPaymentIntent(paymentIntentId)
+                        .setAmount(amountInPaise)
+                        .build(),
+                RequestOptions.builder().setIdempotencyKey(idempotencyKey).build());
+        log.info("Refund created: {} | payment intent: {} | amount: {} {}",
+                refund.getId(), paymentIntentId, amount, currency.toUpperCase());
+        return refund;
+    }
+
     /**Check if payment is successful*/
 
     public boolean isPaymentSuccessful(String paymentIntentId) {
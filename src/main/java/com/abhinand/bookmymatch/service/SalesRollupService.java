@@ -0,0 +1,439 @@
+package com.abhinand.bookmymatch.service;
+
+import com.abhinand.bookmymatch.entity.SalesBucket;
+import com.abhinand.bookmymatch.entity.SectionSales;
+import com.abhinand.bookmymatch.entity.TicketSection;
+import com.abhinand.bookmymatch.event.BookingActivityEvent;
+import com.abhinand.bookmymatch.repository.SalesBucketRepository;
+import com.abhinand.bookmymatch.repository.SectionSalesRepository;
+import com.abhinand.bookmymatch.repository.TicketSectionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Sales rollups per ticket section and sales curves per minute, hour and day, kept up to date from
+ * {@link BookingActivityEvent}s and never recomputed from bookings. The booking path only queues the
+ * committed event; a single flusher drains the queue every interval, adds the events up per section and
+ * bucket, and writes the batch as one transaction of additive upserts, in key order so several instances
+ * cannot deadlock. A batch that fails is retried before newer events and dropped after a few attempts.
+ * Events still queued when the process dies are lost, so the figures can fall short after a crash.
+ */
+@Service
+@Slf4j
+public class SalesRollupService {
+
+    private static final String UPSERT_SECTION = "INSERT INTO section_sales AS s (ticket_section_id, match_id, " +
+            "bookings_created, bookings_paid, bookings_cancelled, tickets_sold, tickets_refunded, revenue, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (ticket_section_id) DO UPDATE SET " +
+            "bookings_created = s.bookings_created + EXCLUDED.bookings_created, " +
+            "bookings_paid = s.bookings_paid + EXCLUDED.bookings_paid, " +
+            "bookings_cancelled = s.bookings_cancelled + EXCLUDED.bookings_cancelled, " +
+            "tickets_sold = s.tickets_sold + EXCLUDED.tickets_sold, " +
+            "tickets_refunded = s.tickets_refunded + EXCLUDED.tickets_refunded, " +
+            "revenue = s.revenue + EXCLUDED.revenue, updated_at = EXCLUDED.updated_at";
+
+    private static final String UPSERT_BUCKET = "INSERT INTO sales_buckets AS b (ticket_section_id, resolution, " +
+            "bucket_start, match_id, bookings_created, bookings_cancelled, tickets_sold, revenue) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (ticket_section_id, resolution, bucket_start) DO UPDATE SET " +
+            "bookings_created = b.bookings_created + EXCLUDED.bookings_created, " +
+            "bookings_cancelled = b.bookings_cancelled + EXCLUDED.bookings_cancelled, " +
+            "tickets_sold = b.tickets_sold + EXCLUDED.tickets_sold, revenue = b.revenue + EXCLUDED.revenue";
+
+    private static final Comparator<SalesBucket.Key> BUCKET_ORDER = Comparator
+            .comparing(SalesBucket.Key::ticketSectionId)
+            .thenComparing(SalesBucket.Key::resolution)
+            .thenComparing(SalesBucket.Key::bucketStart);
+
+    private static final int MAX_ATTEMPTS = 5;
+
+    private final SectionSalesRepository sectionSalesRepository;
+    private final SalesBucketRepository salesBucketRepository;
+    private final TicketSectionRepository ticketSectionRepository;
+    private final MatchCatalog matchCatalog;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatchEvents;
+    private final int minuteRetentionDays;
+
+    private final BlockingQueue<BookingActivityEvent> queue;
+    private final Counter flushedEvents;
+    private final Counter droppedEvents;
+    private final ScheduledExecutorService flusher;
+
+    // Only touched by the flusher thread
+    private Batch unflushed;
+    private LocalDateTime lastPurge;
+
+    public SalesRollupService(SectionSalesRepository sectionSalesRepository,
+                              SalesBucketRepository salesBucketRepository,
+                              TicketSectionRepository ticketSectionRepository,
+                              MatchCatalog matchCatalog,
+                              JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${sales.rollup.flush-interval-ms:1000}") long flushIntervalMillis,
+                              @Value("${sales.rollup.queue-capacity:100000}") int queueCapacity,
+                              @Value("${sales.rollup.max-batch-events:10000}") int maxBatchEvents,
+                              @Value("${sales.rollup.minute-retention-days:14}") int minuteRetentionDays) {
+        this.sectionSalesRepository = sectionSalesRepository;
+        this.salesBucketRepository = salesBucketRepository;
+        this.ticketSectionRepository = ticketSectionRepository;
+        this.matchCatalog = matchCatalog;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.maxBatchEvents = Math.max(1, maxBatchEvents);
+        this.minuteRetentionDays = Math.max(1, minuteRetentionDays);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+
+        Gauge.builder("sales.rollup.queued", queue, Collection::size)
+                .description("Booking activity waiting to be added to the sales rollups")
+                .register(meterRegistry);
+        this.flushedEvents = Counter.builder("sales.rollup.flushed")
+                .description("Booking activity written to the sales rollups")
+                .register(meterRegistry);
+        this.droppedEvents = Counter.builder("sales.rollup.dropped")
+                .description("Booking activity lost to a full queue or a batch that kept failing")
+                .register(meterRegistry);
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(daemonThreads("sales-rollup-flush"));
+        long interval = Math.max(10, flushIntervalMillis);
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    // Never blocks the booking that published the event
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingActivity(BookingActivityEvent event) {
+        if (!queue.offer(event)) {
+            droppedEvents.increment();
+            log.warn("Sales rollup queue full, dropped {} for section {}", event.activity(), event.ticketSectionId());
+        }
+    }
+
+    /**Every section of the match with its running totals and recent pace, and the match's curve*/
+
+    public MatchSales getMatchSales(Long matchId, SalesBucket.Resolution resolution) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, SectionSales> totals = sectionSalesRepository.findByMatchId(matchId).stream()
+                .collect(Collectors.toMap(SectionSales::getTicketSectionId, Function.identity()));
+        Map<Long, Long> lastHour = salesBucketRepository.sumTicketsBySection(matchId, SalesBucket.Resolution.MINUTE,
+                        lastHourStart(now)).stream()
+                .collect(Collectors.toMap(SalesBucketRepository.SectionTicketsView::getTicketSectionId,
+                        SalesBucketRepository.SectionTicketsView::getTicketsSold));
+        Map<Long, Long> lastDay = salesBucketRepository.sumTicketsBySection(matchId, SalesBucket.Resolution.HOUR,
+                        lastDayStart(now)).stream()
+                .collect(Collectors.toMap(SalesBucketRepository.SectionTicketsView::getTicketSectionId,
+                        SalesBucketRepository.SectionTicketsView::getTicketsSold));
+
+        List<SalesFigures> sections = new ArrayList<>();
+        for (TicketSection section : ticketSectionRepository.findByMatchIdOrderByPricePerTicketAsc(matchId)) {
+            SectionSales sales = totals.get(section.getId());
+            sections.add(sales == null
+                    ? new SalesFigures(section.getId(), section.getSectionName(), section.getTotalSeats(),
+                            section.getAvailableSeats(), 0, 0, 0, BigDecimal.ZERO, 0, 0)
+                    : new SalesFigures(section.getId(), section.getSectionName(), section.getTotalSeats(),
+                            section.getAvailableSeats(), sales.getBookingsCreated(), sales.getBookingsCancelled(),
+                            sales.getTicketsSold(), sales.getRevenue(), lastHour.getOrDefault(section.getId(), 0L),
+                            lastDay.getOrDefault(section.getId(), 0L)));
+        }
+        return new MatchSales(SalesFigures.sum(matchId, "All sections", sections), sections,
+                getCurve(matchId, resolution, now), resolution);
+    }
+
+    /**Match totals and recent pace for every upcoming match, soonest first*/
+
+    public List<MatchSalesSummary> getUpcomingSales() {
+        List<MatchCard> matches = matchCatalog.getUpcomingMatches();
+        if (matches.isEmpty()) {
+            return List.of();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> matchIds = matches.stream().map(MatchCard::id).toList();
+        Map<Long, SectionSalesRepository.MatchSalesView> totals = sectionSalesRepository.sumByMatchIds(matchIds).stream()
+                .collect(Collectors.toMap(SectionSalesRepository.MatchSalesView::getMatchId, Function.identity()));
+        Map<Long, Long> lastHour = salesBucketRepository.sumTicketsByMatch(matchIds, SalesBucket.Resolution.MINUTE,
+                        lastHourStart(now)).stream()
+                .collect(Collectors.toMap(SalesBucketRepository.MatchTicketsView::getMatchId,
+                        SalesBucketRepository.MatchTicketsView::getTicketsSold));
+        Map<Long, Long> lastDay = salesBucketRepository.sumTicketsByMatch(matchIds, SalesBucket.Resolution.HOUR,
+                        lastDayStart(now)).stream()
+                .collect(Collectors.toMap(SalesBucketRepository.MatchTicketsView::getMatchId,
+                        SalesBucketRepository.MatchTicketsView::getTicketsSold));
+
+        List<MatchSalesSummary> summaries = new ArrayList<>(matches.size());
+        for (MatchCard match : matches) {
+            int totalSeats = match.ticketSections().stream().mapToInt(MatchCard.SectionView::totalSeats).sum();
+            SectionSalesRepository.MatchSalesView sales = totals.get(match.id());
+            summaries.add(new MatchSalesSummary(match, sales == null
+                    ? new SalesFigures(match.id(), null, totalSeats, match.seatsLeft(), 0, 0, 0, BigDecimal.ZERO, 0, 0)
+                    : new SalesFigures(match.id(), null, totalSeats, match.seatsLeft(), sales.getBookingsCreated(),
+                            sales.getBookingsCancelled(), sales.getTicketsSold(), sales.getRevenue(),
+                            lastHour.getOrDefault(match.id(), 0L), lastDay.getOrDefault(match.id(), 0L))));
+        }
+        return summaries;
+    }
+
+    // Buckets without activity have no row, so the gaps are filled with zeros here
+    private List<CurvePoint> getCurve(Long matchId, SalesBucket.Resolution resolution, LocalDateTime now) {
+        LocalDateTime last = resolution.bucketOf(now);
+        LocalDateTime first = last.minus(bucketsShown(resolution) - 1, resolution.unit());
+        Map<LocalDateTime, SalesBucketRepository.CurvePointView> points = new TreeMap<>();
+        salesBucketRepository.findCurve(matchId, resolution, first)
+                .forEach(point -> points.put(point.getBucketStart(), point));
+
+        List<CurvePoint> curve = new ArrayList<>();
+        for (LocalDateTime bucket = first; !bucket.isAfter(last); bucket = bucket.plus(1, resolution.unit())) {
+            SalesBucketRepository.CurvePointView point = points.get(bucket);
+            curve.add(point == null
+                    ? new CurvePoint(bucket, 0, 0, 0, BigDecimal.ZERO)
+                    : new CurvePoint(bucket, point.getBookingsCreated(), point.getBookingsCancelled(),
+                            point.getTicketsSold(), point.getRevenue()));
+        }
+        return curve;
+    }
+
+    private static int bucketsShown(SalesBucket.Resolution resolution) {
+        return switch (resolution) {
+            case MINUTE -> 120;
+            case HOUR -> 72;
+            case DAY -> 60;
+        };
+    }
+
+    // The current, partly elapsed bucket is included
+    private static LocalDateTime lastHourStart(LocalDateTime now) {
+        return SalesBucket.Resolution.MINUTE.bucketOf(now).minusMinutes(59);
+    }
+
+    private static LocalDateTime lastDayStart(LocalDateTime now) {
+        return SalesBucket.Resolution.HOUR.bucketOf(now).minusHours(23);
+    }
+
+    private void flush() {
+        try {
+            do {
+                if (unflushed == null) {
+                    List<BookingActivityEvent> events = new ArrayList<>();
+                    queue.drainTo(events, maxBatchEvents);
+                    if (events.isEmpty()) {
+                        break;
+                    }
+                    unflushed = new Batch();
+                    events.forEach(unflushed::add);
+                }
+                unflushed.attempts++;
+                write(unflushed);
+                flushedEvents.increment(unflushed.events);
+                unflushed = null;
+            } while (!queue.isEmpty());
+            purgeMinuteBuckets();
+        } catch (RuntimeException e) {
+            if (unflushed != null && unflushed.attempts >= MAX_ATTEMPTS) {
+                log.error("Sales rollup batch of {} events failed {} times, dropping it", unflushed.events,
+                        unflushed.attempts, e);
+                droppedEvents.increment(unflushed.events);
+                unflushed = null;
+            } else {
+                log.warn("Sales rollup flush failed, retrying with the next flush", e);
+            }
+        }
+    }
+
+    private void write(Batch batch) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Map.Entry<Long, Delta>> sections = new ArrayList<>(batch.sections.entrySet());
+        List<Map.Entry<SalesBucket.Key, Delta>> buckets = new ArrayList<>(batch.buckets.entrySet());
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(UPSERT_SECTION, sections, sections.size(), (ps, entry) -> {
+                Delta delta = entry.getValue();
+                ps.setLong(1, entry.getKey());
+                ps.setLong(2, delta.matchId);
+                ps.setLong(3, delta.bookingsCreated);
+                ps.setLong(4, delta.bookingsPaid);
+                ps.setLong(5, delta.bookingsCancelled);
+                ps.setLong(6, delta.ticketsSold);
+                ps.setLong(7, delta.ticketsRefunded);
+                ps.setBigDecimal(8, delta.revenue);
+                ps.setTimestamp(9, now);
+            });
+            jdbcTemplate.batchUpdate(UPSERT_BUCKET, buckets, buckets.size(), (ps, entry) -> {
+                SalesBucket.Key key = entry.getKey();
+                Delta delta = entry.getValue();
+                ps.setLong(1, key.ticketSectionId());
+                ps.setString(2, key.resolution().name());
+                ps.setTimestamp(3, Timestamp.valueOf(key.bucketStart()));
+                ps.setLong(4, delta.matchId);
+                ps.setLong(5, delta.bookingsCreated);
+                ps.setLong(6, delta.bookingsCancelled);
+                ps.setLong(7, delta.ticketsSold);
+                ps.setBigDecimal(8, delta.revenue);
+            });
+        });
+        log.debug("Sales rollups: {} events written to {} sections and {} buckets",
+                batch.events, sections.size(), buckets.size());
+    }
+
+    // Hourly at most; hour and day buckets are few enough to keep
+    private void purgeMinuteBuckets() {
+        LocalDateTime now = LocalDateTime.now();
+        if (lastPurge != null && lastPurge.isAfter(now.minusHours(1))) {
+            return;
+        }
+        lastPurge = now;
+        Integer purged = transactionTemplate.execute(status ->
+                salesBucketRepository.deleteOlderThan(SalesBucket.Resolution.MINUTE, now.minusDays(minuteRetentionDays)));
+        if (purged != null && purged > 0) {
+            log.info("Purged {} minute sales buckets older than {} days", purged, minuteRetentionDays);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        flusher.shutdown();
+        // Whatever is still queued gets one last flush once the flusher has stopped
+        if (flusher.awaitTermination(10, TimeUnit.SECONDS)) {
+            flush();
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Sales of a section, or of a whole match. Tickets sold and revenue are net of cancellations after
+     * payment; the cancellation rate is cancelled bookings over bookings made.
+     */
+    public record SalesFigures(Long id, String name, int totalSeats, int availableSeats, long bookingsCreated,
+                               long bookingsCancelled, long ticketsSold, BigDecimal revenue,
+                               long soldLastHour, long soldLast24Hours) {
+
+        static SalesFigures sum(Long id, String name, List<SalesFigures> parts) {
+            return new SalesFigures(id, name,
+                    parts.stream().mapToInt(SalesFigures::totalSeats).sum(),
+                    parts.stream().mapToInt(SalesFigures::availableSeats).sum(),
+                    parts.stream().mapToLong(SalesFigures::bookingsCreated).sum(),
+                    parts.stream().mapToLong(SalesFigures::bookingsCancelled).sum(),
+                    parts.stream().mapToLong(SalesFigures::ticketsSold).sum(),
+                    parts.stream().map(SalesFigures::revenue).reduce(BigDecimal.ZERO, BigDecimal::add),
+                    parts.stream().mapToLong(SalesFigures::soldLastHour).sum(),
+                    parts.stream().mapToLong(SalesFigures::soldLast24Hours).sum());
+        }
+
+        public double sellThrough() {
+            return totalSeats == 0 ? 0 : (double) ticketsSold / totalSeats;
+        }
+
+        public double cancellationRate() {
+            return bookingsCreated == 0 ? 0 : (double) bookingsCancelled / bookingsCreated;
+        }
+
+        // Average over the last 24 hours
+        public double ticketsPerHour() {
+            return soldLast24Hours / 24.0;
+        }
+
+        /**Hours until the seats still free are gone at the last 24 hours' pace; null while nothing sells*/
+
+        public Double hoursToSellOut() {
+            double perHour = ticketsPerHour();
+            return perHour <= 0 ? null : availableSeats / perHour;
+        }
+    }
+
+    public record MatchSales(SalesFigures total, List<SalesFigures> sections, List<CurvePoint> curve,
+                             SalesBucket.Resolution resolution) {
+
+        // Tallest bar of the curve, for scaling; at least 1 so an empty curve draws flat
+        public long curvePeak() {
+            return Math.max(1, curve.stream().mapToLong(CurvePoint::ticketsSold).max().orElse(0));
+        }
+    }
+
+    public record MatchSalesSummary(MatchCard match, SalesFigures figures) {
+    }
+
+    public record CurvePoint(LocalDateTime bucketStart, long bookingsCreated, long bookingsCancelled,
+                             long ticketsSold, BigDecimal revenue) {
+    }
+
+    private static final class Batch {
+        private final Map<Long, Delta> sections = new TreeMap<>();
+        private final Map<SalesBucket.Key, Delta> buckets = new TreeMap<>(BUCKET_ORDER);
+        private int events;
+        private int attempts;
+
+        private void add(BookingActivityEvent event) {
+            events++;
+            sections.computeIfAbsent(event.ticketSectionId(), id -> new Delta(event.matchId())).add(event);
+            for (SalesBucket.Resolution resolution : SalesBucket.Resolution.values()) {
+                SalesBucket.Key key = new SalesBucket.Key(event.ticketSectionId(), resolution,
+                        resolution.bucketOf(event.occurredAt()));
+                buckets.computeIfAbsent(key, k -> new Delta(event.matchId())).add(event);
+            }
+        }
+    }
+
+    private static final class Delta {
+        private final Long matchId;
+        private long bookingsCreated;
+        private long bookingsPaid;
+        private long bookingsCancelled;
+        private long ticketsSold;
+        private long ticketsRefunded;
+        private BigDecimal revenue = BigDecimal.ZERO;
+
+        private Delta(Long matchId) {
+            this.matchId = matchId;
+        }
+
+        private void add(BookingActivityEvent event) {
+            switch (event.activity()) {
+                case CREATED -> bookingsCreated += event.bookings();
+                case PAID -> {
+                    bookingsPaid += event.bookings();
+                    ticketsSold += event.tickets();
+                    revenue = revenue.add(event.amount());
+                }
+                case CANCELLED -> bookingsCancelled += event.bookings();
+                case CANCELLED_AFTER_PAYMENT -> {
+                    bookingsCancelled += event.bookings();
+                    ticketsSold -= event.tickets();
+                    ticketsRefunded += event.tickets();
+                    revenue = revenue.subtract(event.amount());
+                }
+            }
+        }
+    }
+}
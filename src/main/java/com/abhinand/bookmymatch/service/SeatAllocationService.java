@@ -0,0 +1,96 @@
+package com.abhinand.bookmymatch.service;
+
+import com.abhinand.bookmymatch.entity.SectionSeatMap;
+import com.abhinand.bookmymatch.entity.TicketSection;
+import com.abhinand.bookmymatch.repository.SectionSeatMapRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Assigns and releases real seat numbers for sections that have a seat map. Must run inside the
+ * booking transaction, after the section counter has been decremented; the seat map's @Version
+ * turns concurrent allocations into optimistic-lock failures that {@link SectionRetryPolicy} retries.
+ */
+@Service
+@RequiredArgsConstructor
+public class SeatAllocationService {
+
+    private final SectionSeatMapRepository sectionSeatMapRepository;
+
+    public void createSeatMap(TicketSection ticketSection, int rowCount) {
+        SeatMap seatMap = SeatMap.create(ticketSection.getTotalSeats(), rowCount);
+        sectionSeatMapRepository.save(SectionSeatMap.builder()
+                .ticketSection(ticketSection)
+                .rowCount(seatMap.getRowCount())
+                .seatsPerRow(seatMap.getSeatsPerRow())
+                .takenSeats(seatMap.toBytes())
+                .build());
+    }
+
+    // Comma-separated seat labels, or null for sections sold by count only
+    public String allocate(Long ticketSectionId, int numberOfTickets) {
+        return allocateAll(ticketSectionId, List.of(numberOfTickets)).get(0);
+    }
+
+    // Seats for several bookings of one section with a single seat map write, in the order of the counts
+    public List<String> allocateAll(Long ticketSectionId, List<Integer> ticketCounts) {
+        Optional<SectionSeatMap> stored = sectionSeatMapRepository.findById(ticketSectionId);
+        if (stored.isEmpty()) {
+            return Collections.nCopies(ticketCounts.size(), null);
+        }
+
+        SectionSeatMap sectionSeatMap = stored.get();
+        SeatMap seatMap = load(sectionSeatMap);
+        List<String> seatNumbers = new ArrayList<>(ticketCounts.size());
+        for (int numberOfTickets : ticketCounts) {
+            int[] seats = seatMap.allocate(numberOfTickets);
+            if (seats == null) {
+                throw new IllegalStateException("This section is sold out");
+            }
+            seatNumbers.add(Arrays.stream(seats)
+                    .mapToObj(seatMap::label)
+                    .collect(Collectors.joining(",")));
+        }
+        save(sectionSeatMap, seatMap);
+        return seatNumbers;
+    }
+
+    public void release(Long ticketSectionId, String seatNumbers) {
+        if (!StringUtils.hasText(seatNumbers)) {
+            return;
+        }
+        sectionSeatMapRepository.findById(ticketSectionId).ifPresent(sectionSeatMap -> {
+            SeatMap seatMap = load(sectionSeatMap);
+            seatMap.release(Arrays.stream(seatNumbers.split(","))
+                    .mapToInt(seatMap::parseLabel)
+                    .toArray());
+            save(sectionSeatMap, seatMap);
+        });
+    }
+
+    // All seats of the match become free again, e.g. after the match is cancelled
+    public void resetSeatMaps(Long matchId) {
+        for (SectionSeatMap sectionSeatMap : sectionSeatMapRepository.findByTicketSectionMatchId(matchId)) {
+            SeatMap seatMap = SeatMap.create(sectionSeatMap.getTicketSection().getTotalSeats(), sectionSeatMap.getRowCount());
+            save(sectionSeatMap, seatMap);
+        }
+    }
+
+    private SeatMap load(SectionSeatMap sectionSeatMap) {
+        return SeatMap.of(sectionSeatMap.getRowCount(), sectionSeatMap.getSeatsPerRow(), sectionSeatMap.getTakenSeats());
+    }
+
+    private void save(SectionSeatMap sectionSeatMap, SeatMap seatMap) {
+        sectionSeatMap.setTakenSeats(seatMap.toBytes());
+        // Flush now so a lost race surfaces here, inside the retried transaction
+        sectionSeatMapRepository.saveAndFlush(sectionSeatMap);
+    }
+}
@@ -0,0 +1,234 @@
+package com.abhinand.bookmymatch.service;
+
+import com.abhinand.bookmymatch.entity.Booking;
+import com.abhinand.bookmymatch.event.BookingActivityEvent;
+import com.abhinand.bookmymatch.event.SeatInventoryChangedEvent;
+import com.abhinand.bookmymatch.repository.BookingRepository;
+import com.abhinand.bookmymatch.repository.TicketSectionRepository;
+import com.stripe.exception.StripeException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps PENDING_PAYMENT seat holds in a due-time queue and releases each one as soon as it expires,
+ * so abandoned checkouts give their seats back without scanning the bookings table.
+ * A hold with a PaymentIntent is only released once Stripe has cancelled the intent; one that turns out
+ * to be paid is confirmed instead. Cancelled bookings whose intent was paid after all are refunded.
+ */
+@Service
+@Slf4j
+public class SeatHoldManager {
+
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(30);
+
+    private final BookingRepository bookingRepository;
+    private final TicketSectionRepository ticketSectionRepository;
+    private final SeatAllocationService seatAllocationService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PaymentService paymentService;
+    private final Duration holdTtl;
+    private final Duration paymentHoldTtl;
+
+    private final DelayQueue<SeatHold> dueHolds = new DelayQueue<>();
+    private final Map<Long, SeatHold> activeHolds = new ConcurrentHashMap<>();
+    private final Timer expiryLag;
+    private final Thread expiryWorker;
+
+    public SeatHoldManager(BookingRepository bookingRepository,
+                           TicketSectionRepository ticketSectionRepository,
+                           SeatAllocationService seatAllocationService,
+                           TransactionTemplate transactionTemplate,
+                           ApplicationEventPublisher eventPublisher,
+                           PaymentService paymentService,
+                           MeterRegistry meterRegistry,
+                           @Value("${booking.hold.ttl-minutes:10}") long holdTtlMinutes,
+                           @Value("${booking.hold.payment-minutes:15}") long paymentHoldMinutes) {
+        this.bookingRepository = bookingRepository;
+        this.ticketSectionRepository = ticketSectionRepository;
+        this.seatAllocationService = seatAllocationService;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.paymentService = paymentService;
+        this.holdTtl = Duration.ofMinutes(holdTtlMinutes);
+        this.paymentHoldTtl = Duration.ofMinutes(paymentHoldMinutes);
+
+        Gauge.builder("booking.holds.active", activeHolds, Map::size)
+                .description("Seat holds waiting for payment")
+                .register(meterRegistry);
+        this.expiryLag = Timer.builder("booking.holds.expiry.lag")
+                .description("Delay between a hold's expiry time and the release of its seats")
+                .register(meterRegistry);
+
+        this.expiryWorker = new Thread(this::runExpiryLoop, "seat-hold-expiry");
+        this.expiryWorker.setDaemon(true);
+    }
+
+    public LocalDateTime newHoldExpiry() {
+        return LocalDateTime.now().plus(holdTtl);
+    }
+
+    // Time left to pay once a PaymentIntent is attached, so a card entered near the end isn't cut off
+    public LocalDateTime newPaymentHoldExpiry() {
+        return LocalDateTime.now().plus(paymentHoldTtl);
+    }
+
+    public void track(Long bookingId, LocalDateTime expiresAt) {
+        if (bookingId == null || expiresAt == null) {
+            return;
+        }
+        SeatHold hold = new SeatHold(bookingId, expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        // A replaced entry stays in the queue and is skipped when it comes due
+        activeHolds.put(bookingId, hold);
+        dueHolds.put(hold);
+    }
+
+    // Paid or cancelled: the queued entry is skipped lazily when it comes due
+    public void release(Long bookingId) {
+        activeHolds.remove(bookingId);
+    }
+
+    // Cancelled with a PaymentIntent open, or paid after the booking was cancelled: ask Stripe now
+    public void settlePayment(Long bookingId) {
+        track(bookingId, LocalDateTime.now());
+    }
+
+    public int getActiveHoldCount() {
+        return activeHolds.size();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        bookingRepository.findByStatusAndHoldExpiresAtIsNotNull(Booking.BookingStatus.PENDING_PAYMENT)
+                .forEach(hold -> track(hold.getId(), hold.getHoldExpiresAt()));
+        bookingRepository.findByStatusAndPaymentStatus(Booking.BookingStatus.CANCELLED, Booking.PaymentStatus.PROCESSING)
+                .forEach(booking -> settlePayment(booking.getId()));
+        log.info("Seat hold expiry started with {} pending holds", activeHolds.size());
+        expiryWorker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        expiryWorker.interrupt();
+    }
+
+    private void runExpiryLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                SeatHold hold = dueHolds.take();
+                if (!activeHolds.remove(hold.bookingId(), hold)) {
+                    continue;
+                }
+                expiryLag.record(System.currentTimeMillis() - hold.expiresAtMillis(), TimeUnit.MILLISECONDS);
+                expire(hold);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void expire(SeatHold hold) {
+        try {
+            Booking booking = bookingRepository.findById(hold.bookingId()).orElse(null);
+            if (booking == null) {
+                return;
+            }
+            if (booking.getPaymentStatus() == Booking.PaymentStatus.PROCESSING && booking.getPaymentIntentId() != null) {
+                settle(booking);
+            } else if (releaseHold(booking)) {
+                log.info("Seat hold expired for booking {}", booking.getId());
+            }
+        } catch (RuntimeException | StripeException e) {
+            // Seats stay held until Stripe answers
+            log.error("Failed to expire seat hold for booking {}, retrying", hold.bookingId(), e);
+            track(hold.bookingId(), LocalDateTime.now().plus(RETRY_DELAY));
+        }
+    }
+
+    private void settle(Booking booking) throws StripeException {
+        String paymentIntentId = booking.getPaymentIntentId();
+        if (booking.getStatus() == Booking.BookingStatus.PENDING_PAYMENT) {
+            // Extended since this entry was queued; the newer entry takes over
+            if (booking.getHoldExpiresAt() != null && booking.getHoldExpiresAt().isAfter(LocalDateTime.now())) {
+                return;
+            }
+            if (paymentService.cancelPaymentIntentUnlessPaid(paymentIntentId)) {
+                confirmPaid(booking);
+            } else {
+                releaseHold(booking);
+                transactionTemplate.executeWithoutResult(status -> bookingRepository.markPaymentVoided(paymentIntentId));
+                log.info("Seat hold expired for booking {}, payment intent {} cancelled", booking.getId(), paymentIntentId);
+            }
+        } else if (booking.getStatus() == Booking.BookingStatus.CANCELLED) {
+            // A cart's intent is shared: while other bookings still hold seats under it, their expiry or payment settles it
+            if (booking.getCartCode() != null
+                    && bookingRepository.existsByCartCodeAndStatus(booking.getCartCode(), Booking.BookingStatus.PENDING_PAYMENT)) {
+                return;
+            }
+            if (paymentService.cancelPaymentIntentUnlessPaid(paymentIntentId)) {
+                // Only this booking's share; the key is stable so a retry after a failed update can't refund twice
+                paymentService.refundPayment(paymentIntentId, booking.getTotalPrice(), "refund-booking-" + booking.getId());
+                transactionTemplate.executeWithoutResult(status ->
+                        bookingRepository.markCancelledPaymentRefunded(booking.getId()));
+                log.info("Payment for cancelled booking {} refunded", booking.getId());
+            } else {
+                transactionTemplate.executeWithoutResult(status -> bookingRepository.markPaymentVoided(paymentIntentId));
+            }
+        }
+    }
+
+    // Paid just before the hold ran out, but the confirmation never arrived
+    private void confirmPaid(Booking booking) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (bookingRepository.confirmPayment(booking.getId(), null, LocalDateTime.now()) == 1) {
+                eventPublisher.publishEvent(BookingActivityEvent.of(booking, BookingActivityEvent.Activity.PAID));
+                log.info("Payment confirmed for booking {} on hold expiry", booking.getId());
+            }
+        });
+    }
+
+    private boolean releaseHold(Booking booking) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (bookingRepository.expireHold(booking.getId(), LocalDateTime.now()) == 0) {
+                return false;
+            }
+            Long ticketSectionId = booking.getTicketSection().getId();
+            ticketSectionRepository.releaseSeats(ticketSectionId, booking.getNumberOfTickets());
+            seatAllocationService.release(ticketSectionId, booking.getSeatNumbers());
+            eventPublisher.publishEvent(new SeatInventoryChangedEvent(ticketSectionId));
+            eventPublisher.publishEvent(BookingActivityEvent.of(booking, BookingActivityEvent.Activity.CANCELLED));
+            return true;
+        }));
+    }
+
+    private record SeatHold(Long bookingId, long expiresAtMillis) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expiresAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(expiresAtMillis, ((SeatHold) other).expiresAtMillis);
+        }
+    }
+}
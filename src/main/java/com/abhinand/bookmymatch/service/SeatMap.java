@@ -0,0 +1,167 @@
+package com.abhinand.bookmymatch.service;
+
+import java.util.BitSet;
+
+/**
+ * In-memory view of a section's seat bitmap with a best-available allocator.
+ * Row 0 is the front row ("A"); seats are numbered from 1 within each row.
+ * All scans work a machine word at a time through {@link BitSet}, so even a 20k+ seat
+ * section is only a few hundred words to look at.
+ */
+public final class SeatMap {
+
+    private final int rowCount;
+    private final int seatsPerRow;
+    private final BitSet taken;
+    private final int[] freeInRow;
+
+    private SeatMap(int rowCount, int seatsPerRow, BitSet taken) {
+        this.rowCount = rowCount;
+        this.seatsPerRow = seatsPerRow;
+        this.taken = taken;
+        this.freeInRow = new int[rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            int rowStart = row * seatsPerRow;
+            freeInRow[row] = seatsPerRow - taken.get(rowStart, rowStart + seatsPerRow).cardinality();
+        }
+    }
+
+    public static SeatMap create(int totalSeats, int rowCount) {
+        if (rowCount <= 0 || totalSeats < rowCount) {
+            throw new IllegalArgumentException("A section needs at least one seat per row");
+        }
+        int seatsPerRow = (totalSeats + rowCount - 1) / rowCount;
+        BitSet taken = new BitSet(rowCount * seatsPerRow);
+        // The last row may be shorter; its missing seats are permanently taken
+        taken.set(totalSeats, rowCount * seatsPerRow);
+        return new SeatMap(rowCount, seatsPerRow, taken);
+    }
+
+    public static SeatMap of(int rowCount, int seatsPerRow, byte[] takenSeats) {
+        return new SeatMap(rowCount, seatsPerRow, BitSet.valueOf(takenSeats));
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getSeatsPerRow() {
+        return seatsPerRow;
+    }
+
+    public byte[] toBytes() {
+        return taken.toByteArray();
+    }
+
+    /**
+     * Takes {@code count} seats, preferring a contiguous block in the front-most row that has one,
+     * placed as close to the middle of that row as possible. When no row can seat the group together,
+     * falls back to the front-most free seats. Returns null if the section has fewer free seats.
+     */
+    public int[] allocate(int count) {
+        if (count <= 0) {
+            return new int[0];
+        }
+        for (int row = 0; row < rowCount; row++) {
+            if (freeInRow[row] < count) {
+                continue;
+            }
+            int start = bestRunStart(row, count);
+            if (start >= 0) {
+                int[] seats = new int[count];
+                for (int i = 0; i < count; i++) {
+                    seats[i] = start + i;
+                }
+                take(seats);
+                return seats;
+            }
+        }
+        return allocateScattered(count);
+    }
+
+    public void release(int[] seats) {
+        for (int seat : seats) {
+            if (seat >= 0 && seat < rowCount * seatsPerRow && taken.get(seat)) {
+                taken.clear(seat);
+                freeInRow[seat / seatsPerRow]++;
+            }
+        }
+    }
+
+    public String label(int seat) {
+        return rowName(seat / seatsPerRow) + (seat % seatsPerRow + 1);
+    }
+
+    public int parseLabel(String label) {
+        String trimmed = label.trim();
+        int split = 0;
+        while (split < trimmed.length() && Character.isLetter(trimmed.charAt(split))) {
+            split++;
+        }
+        if (split == 0 || split == trimmed.length()) {
+            throw new IllegalArgumentException("Invalid seat label: " + label);
+        }
+        int row = 0;
+        for (int i = 0; i < split; i++) {
+            row = row * 26 + (Character.toUpperCase(trimmed.charAt(i)) - 'A' + 1);
+        }
+        int seatInRow = Integer.parseInt(trimmed.substring(split));
+        return (row - 1) * seatsPerRow + (seatInRow - 1);
+    }
+
+    private int bestRunStart(int row, int count) {
+        int rowStart = row * seatsPerRow;
+        int rowEnd = rowStart + seatsPerRow;
+        double center = rowStart + seatsPerRow / 2.0;
+
+        int best = -1;
+        double bestDistance = Double.MAX_VALUE;
+        int from = taken.nextClearBit(rowStart);
+        while (from < rowEnd) {
+            int to = taken.nextSetBit(from);
+            if (to < 0 || to > rowEnd) {
+                to = rowEnd;
+            }
+            if (to - from >= count) {
+                int start = (int) Math.round(center - count / 2.0);
+                start = Math.max(from, Math.min(start, to - count));
+                double distance = Math.abs(start + count / 2.0 - center);
+                if (distance < bestDistance) {
+                    best = start;
+                    bestDistance = distance;
+                }
+            }
+            from = taken.nextClearBit(to);
+        }
+        return best;
+    }
+
+    private int[] allocateScattered(int count) {
+        int capacity = rowCount * seatsPerRow;
+        int[] seats = new int[count];
+        int found = 0;
+        for (int seat = taken.nextClearBit(0); seat < capacity && found < count; seat = taken.nextClearBit(seat + 1)) {
+            seats[found++] = seat;
+        }
+        if (found < count) {
+            return null;
+        }
+        take(seats);
+        return seats;
+    }
+
+    private void take(int[] seats) {
+        for (int seat : seats) {
+            taken.set(seat);
+            freeInRow[seat / seatsPerRow]--;
+        }
+    }
+
+    private static String rowName(int row) {
+        StringBuilder name = new StringBuilder();
+        for (int n = row + 1; n > 0; n = (n - 1) / 26) {
+            name.insert(0, (char) ('A' + (n - 1) % 26));
+        }
+        return name.toString();
+    }
+}
@@ -0,0 +1,71 @@
+package com.abhinand.bookmymatch.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Retries a ticket-section write that lost an optimistic-lock (or lock-timeout) race, with
+ * full-jitter exponential backoff and a hard attempt cap. Conflicts, retries and give-ups are
+ * counted per match and section so contended on-sales are visible in /actuator/metrics.
+ */
+@Component
+@Slf4j
+public class SectionRetryPolicy {
+
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    public SectionRetryPolicy(MeterRegistry meterRegistry,
+                              @Value("${booking.retry.max-attempts:4}") int maxAttempts,
+                              @Value("${booking.retry.base-delay-ms:10}") long baseDelayMillis,
+                              @Value("${booking.retry.max-delay-ms:200}") long maxDelayMillis) {
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public <T> T execute(Long matchId, Long ticketSectionId, Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (ConcurrencyFailureException e) {
+                counter("booking.section.conflicts", matchId, ticketSectionId).increment();
+                if (attempt >= maxAttempts) {
+                    counter("booking.section.giveups", matchId, ticketSectionId).increment();
+                    log.warn("Giving up on section {} after {} conflicting attempts", ticketSectionId, attempt);
+                    throw new IllegalStateException("This section is very busy right now, please try again", e);
+                }
+                counter("booking.section.retries", matchId, ticketSectionId).increment();
+                backOff(attempt);
+            }
+        }
+    }
+
+    private void backOff(int attempt) {
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt, 20));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Booking was interrupted", e);
+        }
+    }
+
+    private Counter counter(String name, Long matchId, Long ticketSectionId) {
+        return Counter.builder(name)
+                .tag("match", String.valueOf(matchId))
+                .tag("section", String.valueOf(ticketSectionId))
+                .register(meterRegistry);
+    }
+}
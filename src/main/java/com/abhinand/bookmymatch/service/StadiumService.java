@@ -1,9 +1,12 @@
 package com.abhinand.bookmymatch.service;
 
 import com.abhinand.bookmymatch.entity.Stadium;
+import com.abhinand.bookmymatch.event.CatalogChangedEvent;
+import com.abhinand.bookmymatch.event.TotalsChangedEvent;
 import com.abhinand.bookmymatch.repository.StadiumRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -15,6 +18,7 @@ import java.util.List;
 public class StadiumService {
     
     private final StadiumRepository stadiumRepository;
+    private final ApplicationEventPublisher eventPublisher;
     private final FileStorageService fileStorageService;
     
     @Transactional
@@ -39,6 +43,7 @@ public class StadiumService {
                 .build();
         
         log.info("Creating new stadium: {}", name);
+        eventPublisher.publishEvent(TotalsChangedEvent.stadiums(1));
         return stadiumRepository.save(stadium);
     }
     
@@ -62,6 +67,7 @@ public class StadiumService {
         }
         
         log.info("Updating stadium: {}", name);
+        eventPublisher.publishEvent(CatalogChangedEvent.stadium(id));
         return stadiumRepository.save(stadium);
     }
     
@@ -74,6 +80,10 @@ public class StadiumService {
         return stadiumRepository.findAll();
     }
     
+    public KeysetPage<Stadium> getStadiums(Long afterId) {
+        return KeysetPage.of(stadiumRepository.findByIdGreaterThanOrderByIdAsc(afterId == null ? 0 : afterId, KeysetPage.limit()));
+    }
+    
     @Transactional
     public void deleteStadium(Long id) {
         Stadium stadium = getStadiumById(id);
@@ -88,5 +98,7 @@ public class StadiumService {
         
         log.info("Deleting stadium: {}", stadium.getName());
         stadiumRepository.deleteById(id);
+        eventPublisher.publishEvent(CatalogChangedEvent.stadium(id));
+        eventPublisher.publishEvent(TotalsChangedEvent.stadiums(-1));
     }
 }
@@ -1,9 +1,12 @@
 package com.abhinand.bookmymatch.service;
 
 import com.abhinand.bookmymatch.entity.Team;
+import com.abhinand.bookmymatch.event.CatalogChangedEvent;
+import com.abhinand.bookmymatch.event.TotalsChangedEvent;
 import com.abhinand.bookmymatch.repository.TeamRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -15,6 +18,7 @@ import java.util.List;
 public class TeamService {
     
     private final TeamRepository teamRepository;
+    private final ApplicationEventPublisher eventPublisher;
     private final FileStorageService fileStorageService;
     
     @Transactional
@@ -38,6 +42,7 @@ public class TeamService {
                 .build();
         
         log.info("Creating new team: {}", name);
+        eventPublisher.publishEvent(TotalsChangedEvent.teams(1));
         return teamRepository.save(team);
     }
     
@@ -60,6 +65,7 @@ public class TeamService {
         }
         
         log.info("Updating team: {}", name);
+        eventPublisher.publishEvent(CatalogChangedEvent.team(id));
         return teamRepository.save(team);
     }
     
@@ -72,6 +78,10 @@ public class TeamService {
         return teamRepository.findAll();
     }
     
+    public KeysetPage<Team> getTeams(Long afterId) {
+        return KeysetPage.of(teamRepository.findByIdGreaterThanOrderByIdAsc(afterId == null ? 0 : afterId, KeysetPage.limit()));
+    }
+    
     @Transactional
     public void deleteTeam(Long id) {
         Team team = getTeamById(id);
@@ -82,5 +92,7 @@ public class TeamService {
         
         log.info("Deleting team: {}", team.getName());
         teamRepository.deleteById(id);
+        eventPublisher.publishEvent(CatalogChangedEvent.team(id));
+        eventPublisher.publishEvent(TotalsChangedEvent.teams(-1));
     }
 }
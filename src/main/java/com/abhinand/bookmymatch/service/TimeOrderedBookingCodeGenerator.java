@@ -0,0 +1,76 @@
+package com.abhinand.bookmymatch.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style codes: 41 bits of milliseconds since 2024-01-01, a 12-bit per-millisecond sequence
+ * and a 10-bit node id, written as 13 Crockford base32 characters (no I, L, O or U). Codes from one node
+ * are strictly increasing, so new bookings land at the right edge of the unique index.
+ */
+@Component
+@Slf4j
+public class TimeOrderedBookingCodeGenerator implements BookingCodeGenerator {
+
+    private static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int SEQUENCE_BITS = 12;
+    private static final int NODE_BITS = 10;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final int CODE_LENGTH = 13;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private final long nodeId;
+    // Timestamp and sequence packed together so one CAS claims both
+    private final AtomicLong lastState = new AtomicLong();
+
+    public TimeOrderedBookingCodeGenerator(@Value("${booking.code.node-id:-1}") long nodeId) {
+        if (nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("booking.code.node-id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeId = nodeId >= 0 ? nodeId : deriveNodeId();
+    }
+
+    @Override
+    public String nextCode() {
+        long state = nextState();
+        long value = (state << NODE_BITS) | nodeId;
+
+        char[] code = new char[CODE_LENGTH];
+        for (int i = CODE_LENGTH - 1; i >= 0; i--) {
+            code[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(code);
+    }
+
+    private long nextState() {
+        while (true) {
+            long last = lastState.get();
+            long candidate = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+            // Same millisecond, a full sequence or a clock step back: keep counting from the last value,
+            // which borrows from the next millisecond instead of waiting or going backwards
+            long next = candidate > last ? candidate : last + 1;
+            if (lastState.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+    private static long deriveNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = String.valueOf(ProcessHandle.current().pid());
+        }
+        long derived = (host.hashCode() & 0x7fffffffL) % (MAX_NODE_ID + 1);
+        log.warn("booking.code.node-id is not set, using {} derived from host {}; set it explicitly when running several instances",
+                derived, host);
+        return derived;
+    }
+}
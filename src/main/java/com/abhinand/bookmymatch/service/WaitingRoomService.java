@@ -0,0 +1,179 @@
+package com.abhinand.bookmymatch.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-match admission queue for high-demand on-sales. Everyone who arrives gets a sequence number;
+ * a token bucket moves the admission cursor forward at the configured rate, so a position is just
+ * the distance between a ticket's sequence and the cursor. Everything lives in memory.
+ */
+@Service
+@Slf4j
+public class WaitingRoomService {
+
+    public static final String TOKEN_COOKIE_PREFIX = "BMM_QUEUE_";
+
+    private final Map<Long, MatchQueue> rooms = new ConcurrentHashMap<>();
+    private final long idleTicketMillis;
+    private final int joinsPerClientPerMinute;
+
+    public WaitingRoomService(@Value("${waiting-room.idle-ticket-minutes:30}") long idleTicketMinutes,
+                              @Value("${waiting-room.joins-per-client-per-minute:10}") int joinsPerClientPerMinute) {
+        this.idleTicketMillis = idleTicketMinutes * 60_000;
+        this.joinsPerClientPerMinute = joinsPerClientPerMinute;
+    }
+
+    public void enable(Long matchId, int admitPerSecond, int burst) {
+        if (admitPerSecond <= 0) {
+            throw new IllegalArgumentException("Admission rate must be greater than 0");
+        }
+        MatchQueue queue = rooms.computeIfAbsent(matchId, id -> new MatchQueue());
+        queue.configure(admitPerSecond, Math.max(burst, 1));
+        log.info("Waiting room enabled for match {} at {} users/s", matchId, admitPerSecond);
+    }
+
+    public void disable(Long matchId) {
+        if (rooms.remove(matchId) != null) {
+            log.info("Waiting room disabled for match {}", matchId);
+        }
+    }
+
+    public boolean isActive(Long matchId) {
+        return matchId != null && rooms.containsKey(matchId);
+    }
+
+    /**
+     * A new ticket at the back of the queue, or null when the match has no waiting room. Each client address
+     * gets a few tickets a minute, so dropping the cookie can't buy more places in the queue.
+     */
+    public QueueStatus join(Long matchId, String clientAddress) {
+        MatchQueue queue = rooms.get(matchId);
+        if (queue == null) {
+            return null;
+        }
+        if (queue.joinsThisMinute.merge(clientAddress, 1, Integer::sum) > joinsPerClientPerMinute) {
+            throw new IllegalStateException("Too many people are joining the queue from your network, please try again in a minute");
+        }
+        String token = UUID.randomUUID().toString();
+        long sequence = queue.enqueue(token);
+        return queue.statusOf(token, sequence);
+    }
+
+    // Unknown token or no room for this match: null
+    public QueueStatus status(Long matchId, String token) {
+        MatchQueue queue = rooms.get(matchId);
+        if (queue == null || token == null) {
+            return null;
+        }
+        Ticket ticket = queue.tickets.get(token);
+        if (ticket == null) {
+            return null;
+        }
+        ticket.lastSeenMillis = System.currentTimeMillis();
+        return queue.statusOf(token, ticket.sequence);
+    }
+
+    public boolean isAdmitted(Long matchId, String token) {
+        QueueStatus status = status(matchId, token);
+        return status != null && status.admitted();
+    }
+
+    public Map<Long, RoomView> getRooms() {
+        Map<Long, RoomView> views = new ConcurrentHashMap<>();
+        rooms.forEach((matchId, queue) -> views.put(matchId, new RoomView(
+                queue.admitPerSecond, queue.waiting(), queue.tickets.size())));
+        return views;
+    }
+
+    @Scheduled(fixedRate = 200)
+    public void admit() {
+        long now = System.nanoTime();
+        rooms.values().forEach(queue -> queue.refill(now));
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void purgeIdleTickets() {
+        long cutoff = System.currentTimeMillis() - idleTicketMillis;
+        rooms.values().forEach(queue -> {
+            queue.tickets.values().removeIf(ticket -> ticket.lastSeenMillis < cutoff);
+            queue.joinsThisMinute.clear();
+        });
+    }
+
+    public record QueueStatus(String token, long position, boolean admitted, int retryAfterSeconds) {
+    }
+
+    public record RoomView(int admitPerSecond, long waiting, int tickets) {
+    }
+
+    private static final class Ticket {
+        private final long sequence;
+        private volatile long lastSeenMillis = System.currentTimeMillis();
+
+        private Ticket(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+
+    private static final class MatchQueue {
+
+        private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+        // Tickets issued per client address since the last purge
+        private final Map<String, Integer> joinsThisMinute = new ConcurrentHashMap<>();
+        private final AtomicLong lastSequence = new AtomicLong();
+        private volatile long admittedThrough;
+
+        // Token bucket state, only touched by the scheduler thread and configure()
+        private volatile int admitPerSecond;
+        private volatile int burst;
+        private double availableTokens;
+        private long lastRefillNanos = System.nanoTime();
+
+        private synchronized void configure(int admitPerSecond, int burst) {
+            this.admitPerSecond = admitPerSecond;
+            this.burst = burst;
+            this.availableTokens = Math.min(availableTokens, burst);
+        }
+
+        private long enqueue(String token) {
+            long sequence = lastSequence.incrementAndGet();
+            tickets.put(token, new Ticket(sequence));
+            return sequence;
+        }
+
+        private long waiting() {
+            return Math.max(0, lastSequence.get() - admittedThrough);
+        }
+
+        private synchronized void refill(long nowNanos) {
+            double elapsedSeconds = (nowNanos - lastRefillNanos) / 1_000_000_000.0;
+            lastRefillNanos = nowNanos;
+            availableTokens = Math.min(burst, availableTokens + elapsedSeconds * admitPerSecond);
+
+            long admittable = Math.min((long) availableTokens, waiting());
+            if (admittable > 0) {
+                availableTokens -= admittable;
+                admittedThrough += admittable;
+            }
+        }
+
+        private QueueStatus statusOf(String token, long sequence) {
+            long position = sequence - admittedThrough;
+            if (position <= 0) {
+                return new QueueStatus(token, 0, true, 0);
+            }
+            // Far-back clients poll less often; the estimate is refreshed on every poll anyway
+            long secondsToWait = position / Math.max(admitPerSecond, 1);
+            int retryAfter = (int) Math.max(2, Math.min(30, secondsToWait / 2));
+            return new QueueStatus(token, position, false, retryAfter);
+        }
+    }
+}
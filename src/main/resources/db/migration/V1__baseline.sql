@@ -0,0 +1,159 @@
+-- Schema as Hibernate's ddl-auto=update left it. Every statement is guarded so this also runs over a
+-- database that update created (baseline-on-migrate with baseline version 0), filling in anything
+-- that database is missing.
+
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS stadiums_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS teams_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS matches_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS ticket_sections_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS bookings_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS users (
+    id                   bigint       NOT NULL,
+    username             varchar(255) NOT NULL UNIQUE,
+    password             varchar(255) NOT NULL,
+    email                varchar(255) NOT NULL UNIQUE,
+    full_name            varchar(255) NOT NULL,
+    phone_number         varchar(255),
+    role                 varchar(255) NOT NULL CHECK (role IN ('ROLE_USER', 'ROLE_ADMIN')),
+    enabled              boolean      NOT NULL,
+    must_change_password boolean      NOT NULL,
+    created_at           timestamp(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS stadiums (
+    id          bigint        NOT NULL,
+    name        varchar(255)  NOT NULL UNIQUE,
+    city        varchar(255)  NOT NULL,
+    country     varchar(255)  NOT NULL,
+    capacity    integer       NOT NULL,
+    description varchar(1000),
+    image_url   varchar(255),
+    created_at  timestamp(6)  NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS teams (
+    id          bigint        NOT NULL,
+    name        varchar(255)  NOT NULL UNIQUE,
+    short_name  varchar(255)  NOT NULL,
+    city        varchar(255)  NOT NULL,
+    description varchar(1000),
+    logo_url    varchar(255),
+    created_at  timestamp(6)  NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS matches (
+    id              bigint        NOT NULL,
+    home_team_id    bigint        NOT NULL,
+    away_team_id    bigint        NOT NULL,
+    stadium_id      bigint        NOT NULL,
+    match_date_time timestamp(6)  NOT NULL,
+    status          varchar(255)  NOT NULL CHECK (status IN ('UPCOMING', 'LIVE', 'COMPLETED', 'CANCELLED')),
+    booking_closed  boolean       DEFAULT false NOT NULL,
+    competition     varchar(255),
+    description     varchar(1000),
+    created_at      timestamp(6)  NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS ticket_sections (
+    id               bigint        NOT NULL,
+    match_id         bigint        NOT NULL,
+    section_name     varchar(255)  NOT NULL,
+    total_seats      integer       NOT NULL,
+    available_seats  integer       NOT NULL,
+    price_per_ticket numeric(10,2) NOT NULL,
+    description      varchar(500),
+    version          bigint        DEFAULT 0 NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS section_seat_maps (
+    ticket_section_id bigint  NOT NULL,
+    row_count         integer NOT NULL,
+    seats_per_row     integer NOT NULL,
+    taken_seats       bytea   NOT NULL,
+    version           bigint  DEFAULT 0 NOT NULL,
+    PRIMARY KEY (ticket_section_id)
+);
+
+CREATE TABLE IF NOT EXISTS bookings (
+    id                bigint        NOT NULL,
+    booking_code      varchar(255)  NOT NULL UNIQUE,
+    cart_code         varchar(255),
+    user_id           bigint        NOT NULL,
+    match_id          bigint        NOT NULL,
+    ticket_section_id bigint        NOT NULL,
+    number_of_tickets integer       NOT NULL,
+    seat_numbers      varchar(2000),
+    total_price       numeric(10,2) NOT NULL,
+    status            varchar(255)  NOT NULL
+        CHECK (status IN ('PENDING_PAYMENT', 'CONFIRMED', 'CANCELLED', 'REFUNDED')),
+    payment_status    varchar(255)  NOT NULL
+        CHECK (payment_status IN ('PENDING', 'PROCESSING', 'COMPLETED', 'FAILED', 'REFUNDED')),
+    payment_intent_id varchar(255),
+    payment_method    varchar(255),
+    booked_at         timestamp(6)  NOT NULL,
+    paid_at           timestamp(6),
+    hold_expires_at   timestamp(6),
+    PRIMARY KEY (id)
+);
+
+-- Columns added since the first release, for databases created before them
+ALTER TABLE matches ADD COLUMN IF NOT EXISTS booking_closed boolean DEFAULT false NOT NULL;
+ALTER TABLE ticket_sections ADD COLUMN IF NOT EXISTS version bigint DEFAULT 0 NOT NULL;
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS cart_code varchar(255);
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS seat_numbers varchar(2000);
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS hold_expires_at timestamp(6);
+
+-- update named foreign keys after a hash of their columns; look them up by column instead
+CREATE FUNCTION pg_temp.ensure_foreign_key(source text, source_column text, target text) RETURNS void AS $$
+BEGIN
+    IF NOT EXISTS (SELECT 1
+                   FROM pg_constraint c
+                   JOIN pg_attribute a ON a.attrelid = c.conrelid AND a.attnum = ANY (c.conkey)
+                   WHERE c.contype = 'f' AND c.conrelid = source::regclass AND a.attname = source_column) THEN
+        EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I FOREIGN KEY (%I) REFERENCES %I',
+                       source, 'fk_' || source || '_' || source_column, source_column, target);
+    END IF;
+END
+$$ LANGUAGE plpgsql;
+
+SELECT pg_temp.ensure_foreign_key('matches', 'home_team_id', 'teams');
+SELECT pg_temp.ensure_foreign_key('matches', 'away_team_id', 'teams');
+SELECT pg_temp.ensure_foreign_key('matches', 'stadium_id', 'stadiums');
+SELECT pg_temp.ensure_foreign_key('ticket_sections', 'match_id', 'matches');
+SELECT pg_temp.ensure_foreign_key('section_seat_maps', 'ticket_section_id', 'ticket_sections');
+SELECT pg_temp.ensure_foreign_key('bookings', 'user_id', 'users');
+SELECT pg_temp.ensure_foreign_key('bookings', 'match_id', 'matches');
+SELECT pg_temp.ensure_foreign_key('bookings', 'ticket_section_id', 'ticket_sections');
+
+CREATE INDEX IF NOT EXISTS idx_matches_date_time_id ON matches (match_date_time, id);
+CREATE INDEX IF NOT EXISTS idx_bookings_booked_at_id ON bookings (booked_at, id);
+CREATE INDEX IF NOT EXISTS idx_bookings_user_booked_at_id ON bookings (user_id, booked_at, id);
+
+-- Databases created while ids were IDENTITY columns have sequences that start at 1;
+-- move each past the table's highest id (the allocation block starts after the sequence value)
+CREATE FUNCTION pg_temp.align_sequence(sequence_name text, table_name text) RETURNS void AS $$
+DECLARE
+    max_id bigint;
+BEGIN
+    EXECUTE format('SELECT MAX(id) FROM %I', table_name) INTO max_id;
+    -- last_value is null until the sequence is first used
+    IF max_id > (SELECT COALESCE(last_value, 0) FROM pg_sequences
+                 WHERE schemaname = current_schema() AND sequencename = sequence_name) THEN
+        PERFORM setval(sequence_name, max_id);
+    END IF;
+END
+$$ LANGUAGE plpgsql;
+
+SELECT pg_temp.align_sequence('users_seq', 'users');
+SELECT pg_temp.align_sequence('stadiums_seq', 'stadiums');
+SELECT pg_temp.align_sequence('teams_seq', 'teams');
+SELECT pg_temp.align_sequence('matches_seq', 'matches');
+SELECT pg_temp.align_sequence('ticket_sections_seq', 'ticket_sections');
+SELECT pg_temp.align_sequence('bookings_seq', 'bookings');
@@ -0,0 +1,34 @@
+-- Indexes for the hot read paths. CONCURRENTLY keeps bookings writable while they build; Flyway runs
+-- this script outside a transaction for it.
+
+-- Upcoming listing, catalog load and lifecycle rebuild. Finished matches pile up forever, so only the
+-- unfinished ones are indexed; status = 'UPCOMING' is implied by the predicate and read in kick-off order
+DROP INDEX CONCURRENTLY IF EXISTS idx_matches_status_date_time;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_matches_unfinished_date_time
+    ON matches (match_date_time) WHERE status IN ('UPCOMING', 'LIVE');
+
+-- A team's matches: home OR away becomes a BitmapOr over the two
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_matches_home_team_date_time ON matches (home_team_id, match_date_time);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_matches_away_team_date_time ON matches (away_team_id, match_date_time);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_matches_stadium_date_time ON matches (stadium_id, match_date_time);
+
+-- A match's sections cheapest first (catalog cards, match page)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_ticket_sections_match_price ON ticket_sections (match_id, price_per_ticket);
+
+-- A match's bookings newest first, and the keyset walks of a match's bookings by id during cancellation
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_bookings_match_booked_at ON bookings (match_id, booked_at);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_bookings_match_id ON bookings (match_id, id) INCLUDE (status);
+
+-- Refunds still owed after a cancellation: a handful of rows out of every booking ever made
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_bookings_refunds_due ON bookings (match_id, id) INCLUDE (payment_intent_id)
+    WHERE status = 'REFUNDED' AND payment_status = 'COMPLETED';
+
+-- Seat holds reloaded at startup
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_bookings_pending_holds ON bookings (hold_expires_at) INCLUDE (id)
+    WHERE status = 'PENDING_PAYMENT' AND hold_expires_at IS NOT NULL;
+
+-- Cart checkout and payment; most bookings have no cart
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_bookings_cart_code ON bookings (cart_code) WHERE cart_code IS NOT NULL;
+
+-- Foreign key without a leading index elsewhere: deleting a section would scan bookings
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_bookings_ticket_section ON bookings (ticket_section_id);
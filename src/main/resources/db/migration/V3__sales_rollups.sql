@@ -0,0 +1,38 @@
+-- Sales rollups, added to in batches from booking activity and never recomputed from bookings.
+-- Tickets sold and revenue are net: paying adds them, cancelling a paid booking takes them back.
+
+-- Running totals per ticket section; a match's figures are the sum of its sections
+CREATE TABLE IF NOT EXISTS section_sales (
+    ticket_section_id  bigint        NOT NULL REFERENCES ticket_sections ON DELETE CASCADE,
+    match_id           bigint        NOT NULL REFERENCES matches ON DELETE CASCADE,
+    bookings_created   bigint        DEFAULT 0 NOT NULL,
+    bookings_paid      bigint        DEFAULT 0 NOT NULL,
+    bookings_cancelled bigint        DEFAULT 0 NOT NULL,
+    tickets_sold       bigint        DEFAULT 0 NOT NULL,
+    tickets_refunded   bigint        DEFAULT 0 NOT NULL,
+    revenue            numeric(14,2) DEFAULT 0 NOT NULL,
+    updated_at         timestamp(6)  NOT NULL,
+    PRIMARY KEY (ticket_section_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_section_sales_match ON section_sales (match_id);
+
+-- Sales curves: the same figures per minute, hour and day the activity happened in. Only buckets with
+-- activity have a row; minute buckets are purged after a retention period, hours and days are kept
+CREATE TABLE IF NOT EXISTS sales_buckets (
+    ticket_section_id  bigint        NOT NULL REFERENCES ticket_sections ON DELETE CASCADE,
+    resolution         varchar(6)    NOT NULL CHECK (resolution IN ('MINUTE', 'HOUR', 'DAY')),
+    bucket_start       timestamp(6)  NOT NULL,
+    match_id           bigint        NOT NULL REFERENCES matches ON DELETE CASCADE,
+    bookings_created   integer       DEFAULT 0 NOT NULL,
+    bookings_cancelled integer       DEFAULT 0 NOT NULL,
+    tickets_sold       integer       DEFAULT 0 NOT NULL,
+    revenue            numeric(14,2) DEFAULT 0 NOT NULL,
+    PRIMARY KEY (ticket_section_id, resolution, bucket_start)
+);
+
+-- A match's curve at one resolution, oldest bucket first
+CREATE INDEX IF NOT EXISTS idx_sales_buckets_match ON sales_buckets (match_id, resolution, bucket_start);
+
+-- Minute retention purge
+CREATE INDEX IF NOT EXISTS idx_sales_buckets_minute_start ON sales_buckets (bucket_start) WHERE resolution = 'MINUTE';
@@ -0,0 +1,4 @@
+-- Bookings cancelled while their PaymentIntent was open, reloaded at startup to be settled with Stripe.
+-- CONCURRENTLY keeps bookings writable while it builds; Flyway runs this script outside a transaction for it.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_bookings_unsettled_payments ON bookings (id)
+    WHERE status = 'CANCELLED' AND payment_status = 'PROCESSING';
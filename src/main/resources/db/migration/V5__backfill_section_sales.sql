@@ -0,0 +1,26 @@
+-- One-time backfill of section_sales from the bookings themselves. Rollups only counted activity from V3 on,
+-- so bookings made before then were missing, and holds that expired were never counted as cancelled.
+-- Each section's totals are replaced by what its bookings add up to, using the same rules as the events:
+-- paid means paid_at is set, and a paid booking that was cancelled gives its tickets and revenue back.
+-- Sales curves (sales_buckets) are not rebuilt and only show activity since V3.
+INSERT INTO section_sales (ticket_section_id, match_id, bookings_created, bookings_paid, bookings_cancelled,
+                           tickets_sold, tickets_refunded, revenue, updated_at)
+SELECT b.ticket_section_id,
+       b.match_id,
+       count(*),
+       count(*) FILTER (WHERE b.paid_at IS NOT NULL),
+       count(*) FILTER (WHERE b.status IN ('CANCELLED', 'REFUNDED')),
+       coalesce(sum(b.number_of_tickets) FILTER (WHERE b.status = 'CONFIRMED'), 0),
+       coalesce(sum(b.number_of_tickets) FILTER (WHERE b.paid_at IS NOT NULL AND b.status IN ('CANCELLED', 'REFUNDED')), 0),
+       coalesce(sum(b.total_price) FILTER (WHERE b.status = 'CONFIRMED'), 0),
+       now()
+FROM bookings b
+GROUP BY b.ticket_section_id, b.match_id
+ON CONFLICT (ticket_section_id) DO UPDATE SET
+    bookings_created = EXCLUDED.bookings_created,
+    bookings_paid = EXCLUDED.bookings_paid,
+    bookings_cancelled = EXCLUDED.bookings_cancelled,
+    tickets_sold = EXCLUDED.tickets_sold,
+    tickets_refunded = EXCLUDED.tickets_refunded,
+    revenue = EXCLUDED.revenue,
+    updated_at = EXCLUDED.updated_at;
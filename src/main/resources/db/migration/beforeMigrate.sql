@@ -0,0 +1,21 @@
+-- Flyway callback, run before every migrate. A CREATE INDEX CONCURRENTLY that fails or is interrupted leaves
+-- an INVALID index behind, and once the failed migration is cleared with flyway repair, the IF NOT EXISTS of
+-- the rerun would skip it, so the index would never be built. Such leftovers are dropped here and the pending
+-- script builds them again. Migrations hold Flyway's lock, so no build of ours can still be in progress;
+-- a plain DROP is used because callbacks run in a transaction.
+DO $$
+DECLARE
+    invalid_index record;
+BEGIN
+    FOR invalid_index IN
+        SELECT n.nspname AS schema_name, c.relname AS index_name
+        FROM pg_index i
+        JOIN pg_class c ON c.oid = i.indexrelid
+        JOIN pg_namespace n ON n.oid = c.relnamespace
+        WHERE NOT i.indisvalid AND n.nspname = current_schema() AND c.relname LIKE 'idx\_%'
+    LOOP
+        RAISE NOTICE 'Dropping invalid index %.% left by an interrupted build', invalid_index.schema_name, invalid_index.index_name;
+        EXECUTE format('DROP INDEX %I.%I', invalid_index.schema_name, invalid_index.index_name);
+    END LOOP;
+END
+$$;
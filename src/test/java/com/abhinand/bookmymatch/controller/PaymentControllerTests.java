@@ -0,0 +1,100 @@
+package com.abhinand.bookmymatch.controller;
+
+import com.abhinand.bookmymatch.entity.Booking;
+import com.abhinand.bookmymatch.service.BookingService;
+import com.abhinand.bookmymatch.service.PaymentService;
+import com.stripe.exception.ApiConnectionException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.ui.ExtendedModelMap;
+import org.springframework.web.servlet.mvc.support.RedirectAttributesModelMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaymentControllerTests {
+
+    private final PaymentService paymentService = mock(PaymentService.class);
+    private final BookingService bookingService = mock(BookingService.class);
+    private final PaymentController paymentController = new PaymentController(paymentService, bookingService);
+
+    private final Booking booking = Booking.builder()
+            .id(7L)
+            .bookingCode("BK7")
+            .paymentIntentId("pi_7")
+            .build();
+
+    @Test
+    void successPageConfirmsNothingUntilStripeHasTakenThePayment() {
+        when(bookingService.getOwnBookingById(7L)).thenReturn(booking);
+        RedirectAttributesModelMap redirect = new RedirectAttributesModelMap();
+
+        String view = paymentController.paymentSuccess(7L, new ExtendedModelMap(), redirect);
+
+        assertThat(view).isEqualTo("redirect:/booking/my-tickets");
+        assertThat(redirect.getFlashAttributes().get("error")).isEqualTo("This booking has not been paid for yet");
+        verify(bookingService, never()).confirmPayment(anyLong(), any());
+    }
+
+    @Test
+    void successPageConfirmsAPaidBooking() {
+        when(bookingService.getOwnBookingById(7L)).thenReturn(booking);
+        when(paymentService.isPaymentSuccessful("pi_7")).thenReturn(true);
+        when(bookingService.confirmPayment(7L, null)).thenReturn(booking);
+
+        String view = paymentController.paymentSuccess(7L, new ExtendedModelMap(), new RedirectAttributesModelMap());
+
+        assertThat(view).isEqualTo("payment/success");
+        verify(bookingService).confirmPayment(7L, null);
+    }
+
+    @Test
+    void someoneElsesBookingIsNeitherShownNorConfirmed() {
+        when(bookingService.getOwnBookingById(7L)).thenThrow(new IllegalArgumentException("Booking not found"));
+        RedirectAttributesModelMap redirect = new RedirectAttributesModelMap();
+
+        assertThat(paymentController.paymentSuccess(7L, new ExtendedModelMap(), redirect))
+                .isEqualTo("redirect:/booking/my-tickets");
+        assertThat(redirect.getFlashAttributes().get("error")).isEqualTo("Booking not found");
+        assertThat(paymentController.confirmPayment(7L, "pi_7").getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        verify(bookingService, never()).confirmPayment(anyLong(), any());
+    }
+
+    @Test
+    void stripeErrorsOnThePaymentPageAreShownInsteadOfConfirming() throws Exception {
+        when(bookingService.getOwnBookingById(7L)).thenReturn(booking);
+        when(paymentService.retrievePaymentIntent("pi_7")).thenThrow(new ApiConnectionException("Stripe is down"));
+        RedirectAttributesModelMap redirect = new RedirectAttributesModelMap();
+
+        String view = paymentController.paymentPage(7L, new ExtendedModelMap(), redirect);
+
+        assertThat(view).isEqualTo("redirect:/booking/my-tickets");
+        assertThat(redirect.getFlashAttributes().get("error")).isEqualTo("Payment could not be started, please try again");
+        verify(bookingService, never()).confirmPayment(anyLong(), any());
+    }
+
+    @Test
+    void confirmEndpointRejectsIntentsThatAreUnpaidOrNotTheBookings() {
+        when(bookingService.getOwnBookingById(7L)).thenReturn(booking);
+        when(paymentService.isPaymentSuccessful("pi_other")).thenReturn(true);
+
+        assertThat(paymentController.confirmPayment(7L, "pi_7").getStatusCode()).isEqualTo(HttpStatus.PAYMENT_REQUIRED);
+        assertThat(paymentController.confirmPayment(7L, "pi_other").getStatusCode()).isEqualTo(HttpStatus.PAYMENT_REQUIRED);
+        verify(bookingService, never()).confirmPayment(anyLong(), any());
+    }
+
+    @Test
+    void confirmEndpointReportsAHoldThatExpiredBeforeThePayment() {
+        when(bookingService.getOwnBookingById(7L)).thenReturn(booking);
+        when(paymentService.isPaymentSuccessful("pi_7")).thenReturn(true);
+        when(bookingService.confirmPayment(7L, "card"))
+                .thenThrow(new IllegalStateException("Your seat hold has expired, please book again"));
+
+        assertThat(paymentController.confirmPayment(7L, "pi_7").getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+    }
+}
@@ -0,0 +1,108 @@
+package com.abhinand.bookmymatch.controller;
+
+import com.abhinand.bookmymatch.service.UserService;
+import com.abhinand.bookmymatch.service.WaitingRoomService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Joins a waiting room through a running server, the way fans arrive behind the reverse proxy: every
+ * request comes from the proxy's address and names the client in X-Forwarded-For.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "waiting-room.joins-per-client-per-minute=3")
+class WaitingRoomControllerTests {
+
+    private static final Pattern SESSION_COOKIE = Pattern.compile("JSESSIONID=([^;]+)");
+    private static final Pattern CSRF_FIELD = Pattern.compile("name=\"_csrf\" value=\"([^\"]+)\"");
+
+    private static final long MATCH_ID = 424242L;
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private WaitingRoomService waitingRoomService;
+    @Autowired
+    private UserService userService;
+
+    private final HttpClient client = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NEVER).build();
+
+    @BeforeEach
+    void openWaitingRoom() {
+        waitingRoomService.enable(MATCH_ID, 1, 1);
+    }
+
+    @Test
+    void clientsBehindOneProxyAddressEachHaveTheirOwnJoinBudget() throws Exception {
+        String session = signIn("queue-fan");
+
+        // The first client uses up its budget; the proxy (loopback here) sends the next one on
+        for (int i = 0; i < 3; i++) {
+            assertThat(turnedAway(join(session, "203.0.113.10"))).isFalse();
+        }
+        assertThat(turnedAway(join(session, "203.0.113.10"))).isTrue();
+
+        HttpResponse<String> other = join(session, "203.0.113.20");
+        assertThat(turnedAway(other)).isFalse();
+        assertThat(other.headers().allValues("Set-Cookie"))
+                .anyMatch(cookie -> cookie.startsWith(WaitingRoomService.TOKEN_COOKIE_PREFIX + MATCH_ID + "="));
+    }
+
+    // Too many joins from one client send it back to the match list
+    private boolean turnedAway(HttpResponse<String> response) {
+        String location = response.headers().firstValue("Location").orElse("");
+        return location.equals("/matches") || location.equals(url("/matches"));
+    }
+
+    // A new ticket each time: the request carries the session but not the queue cookie
+    private HttpResponse<String> join(String session, String forwardedFor) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url("/queue/" + MATCH_ID)))
+                .header("Cookie", "JSESSIONID=" + session);
+        if (forwardedFor != null) {
+            request.header("X-Forwarded-For", forwardedFor);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String signIn(String username) throws IOException, InterruptedException {
+        userService.registerUser(username, "password", "Queue Fan", username + "@example.com", null);
+
+        HttpResponse<String> loginPage = client.send(HttpRequest.newBuilder(URI.create(url("/login"))).build(),
+                HttpResponse.BodyHandlers.ofString());
+        String form = "username=" + username + "&password=password&_csrf="
+                + URLEncoder.encode(find(CSRF_FIELD, loginPage.body()), StandardCharsets.UTF_8);
+        HttpResponse<String> login = client.send(HttpRequest.newBuilder(URI.create(url("/login")))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .header("Cookie", "JSESSIONID=" + find(SESSION_COOKIE, String.join(";", loginPage.headers().allValues("Set-Cookie"))))
+                        .POST(HttpRequest.BodyPublishers.ofString(form))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertThat(login.headers().firstValue("Location")).isPresent().get().asString().doesNotContain("error");
+        return find(SESSION_COOKIE, String.join(";", login.headers().allValues("Set-Cookie")));
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + port + path;
+    }
+
+    private static String find(Pattern pattern, String text) {
+        Matcher matcher = pattern.matcher(text);
+        assertThat(matcher.find()).as("%s in %s", pattern, text).isTrue();
+        return matcher.group(1);
+    }
+}
@@ -0,0 +1,184 @@
+package com.abhinand.bookmymatch.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the hot queries are served by the indexes in db/migration against a real PostgreSQL.
+ * Runs only when PLAN_TEST_DB_URL points at one (PLAN_TEST_DB_USERNAME / PLAN_TEST_DB_PASSWORD optional);
+ * migrations are applied to a scratch schema seeded with a few seasons of data, dropped afterwards.
+ */
+@EnabledIfEnvironmentVariable(named = "PLAN_TEST_DB_URL", matches = ".+")
+class QueryPlanTests {
+
+    private static final String SCHEMA = "query_plan_check";
+
+    private static Flyway flyway;
+    private static SingleConnectionDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void migrateAndSeed() {
+        String url = System.getenv("PLAN_TEST_DB_URL");
+        String username = System.getenv().getOrDefault("PLAN_TEST_DB_USERNAME", "postgres");
+        String password = System.getenv().getOrDefault("PLAN_TEST_DB_PASSWORD", "");
+
+        flyway = Flyway.configure()
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .dataSource(url, username, password)
+                .schemas(SCHEMA)
+                .cleanDisabled(false)
+                .load();
+        flyway.clean();
+        flyway.migrate();
+
+        dataSource = new SingleConnectionDataSource(url, username, password, true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("SET search_path TO " + SCHEMA);
+        seed();
+    }
+
+    @AfterAll
+    static void dropSchema() {
+        if (dataSource != null) {
+            dataSource.destroy();
+        }
+        if (flyway != null) {
+            flyway.clean();
+        }
+    }
+
+    // Mostly finished matches, as on a site that has been selling for a while
+    private static void seed() {
+        jdbcTemplate.update("INSERT INTO users (id, username, password, email, full_name, role, enabled, " +
+                "must_change_password, created_at) SELECT g, 'user' || g, 'x', 'user' || g || '@example.com', " +
+                "'User ' || g, 'ROLE_USER', true, false, now() FROM generate_series(1, 2000) g");
+        jdbcTemplate.update("INSERT INTO teams (id, name, short_name, city, created_at) " +
+                "SELECT g, 'Team ' || g, 'T' || g, 'City', now() FROM generate_series(1, 20) g");
+        jdbcTemplate.update("INSERT INTO stadiums (id, name, city, country, capacity, created_at) " +
+                "SELECT g, 'Stadium ' || g, 'City', 'Country', 40000, now() FROM generate_series(1, 10) g");
+        jdbcTemplate.update("INSERT INTO matches (id, home_team_id, away_team_id, stadium_id, match_date_time, " +
+                "status, booking_closed, created_at) SELECT g, 1 + g % 20, 1 + (g + 7) % 20, 1 + g % 10, " +
+                "now() - interval '1 day' * (4800 - g), " +
+                "CASE WHEN g <= 4800 THEN 'COMPLETED' WHEN g <= 4850 THEN 'CANCELLED' ELSE 'UPCOMING' END, " +
+                "g <= 4850, now() FROM generate_series(1, 5000) g");
+        jdbcTemplate.update("INSERT INTO ticket_sections (id, match_id, section_name, total_seats, available_seats, " +
+                "price_per_ticket) SELECT g, 1 + (g - 1) / 4, 'Section ' || g % 4, 1000, 500, 500 + 250 * (g % 4) " +
+                "FROM generate_series(1, 20000) g");
+        jdbcTemplate.update("INSERT INTO bookings (id, booking_code, cart_code, user_id, match_id, ticket_section_id, " +
+                "number_of_tickets, total_price, status, payment_status, payment_intent_id, booked_at, hold_expires_at) " +
+                "SELECT g, 'BK' || g, CASE WHEN g % 50 = 0 THEN 'CART' || g / 100 END, 1 + g % 2000, " +
+                "1 + (g - 1) / 20, 1 + (g - 1) / 5, 2, 1000, " +
+                "CASE WHEN g % 1000 = 0 THEN 'PENDING_PAYMENT' WHEN g % 500 = 1 THEN 'REFUNDED' ELSE 'CONFIRMED' END, " +
+                "CASE WHEN g % 1000 = 0 THEN 'PENDING' WHEN g % 1000 = 1 THEN 'REFUNDED' ELSE 'COMPLETED' END, " +
+                "'pi_' || g, now() - interval '1 minute' * (100000 - g), " +
+                "CASE WHEN g % 1000 = 0 THEN now() + interval '10 minutes' END FROM generate_series(1, 100000) g");
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void upcomingMatchesReadTheUnfinishedIndexInKickOffOrder() {
+        String plan = explain("SELECT m.* FROM matches m WHERE m.status = 'UPCOMING' ORDER BY m.match_date_time");
+
+        assertThat(plan).contains("idx_matches_unfinished_date_time").doesNotContain("Sort");
+    }
+
+    @Test
+    void upcomingMatchesWithTeamsAndStadiumUseTheUnfinishedIndex() {
+        String plan = explain("SELECT m.*, h.*, a.*, s.* FROM matches m " +
+                "JOIN teams h ON h.id = m.home_team_id JOIN teams a ON a.id = m.away_team_id " +
+                "JOIN stadiums s ON s.id = m.stadium_id " +
+                "WHERE m.status = 'UPCOMING' ORDER BY m.match_date_time");
+
+        assertThat(plan).contains("idx_matches_unfinished_date_time").doesNotContain("Seq Scan on matches");
+    }
+
+    @Test
+    void myTicketsSeekTheUserIndexNewestFirst() {
+        String firstPage = explain("SELECT b.* FROM bookings b WHERE b.user_id = 42 " +
+                "ORDER BY b.booked_at DESC, b.id DESC LIMIT 20");
+        String nextPage = explain("SELECT b.* FROM bookings b WHERE b.user_id = 42 " +
+                "AND (b.booked_at, b.id) < (now() - interval '30 days', 50000) " +
+                "ORDER BY b.booked_at DESC, b.id DESC LIMIT 20");
+
+        assertThat(firstPage).contains("idx_bookings_user_booked_at_id").doesNotContain("Sort");
+        assertThat(nextPage).contains("idx_bookings_user_booked_at_id").doesNotContain("Sort");
+    }
+
+    @Test
+    void adminListingsSeekTheirIndexesNewestFirst() {
+        String bookings = explain("SELECT b.* FROM bookings b " +
+                "WHERE (b.booked_at, b.id) < (now() - interval '30 days', 50000) " +
+                "ORDER BY b.booked_at DESC, b.id DESC LIMIT 20");
+        String matches = explain("SELECT m.* FROM matches m WHERE (m.match_date_time, m.id) < (now(), 4000) " +
+                "ORDER BY m.match_date_time DESC, m.id DESC LIMIT 20");
+
+        assertThat(bookings).contains("idx_bookings_booked_at_id").doesNotContain("Sort");
+        assertThat(matches).contains("idx_matches_date_time_id").doesNotContain("Sort");
+    }
+
+    @Test
+    void matchBookingsReadTheMatchIndexNewestFirst() {
+        String plan = explain("SELECT b.* FROM bookings b WHERE b.match_id = 1234 ORDER BY b.booked_at DESC");
+
+        assertThat(plan).contains("idx_bookings_match_booked_at").doesNotContain("Sort");
+    }
+
+    @Test
+    void sectionsOfAMatchComeCheapestFirstFromTheIndex() {
+        String plan = explain("SELECT t.* FROM ticket_sections t WHERE t.match_id = 1234 ORDER BY t.price_per_ticket");
+
+        assertThat(plan).contains("idx_ticket_sections_match_price").doesNotContain("Sort");
+    }
+
+    @Test
+    void teamMatchesCombineTheHomeAndAwayIndexes() {
+        String plan = explain("SELECT m.* FROM matches m WHERE m.home_team_id = 3 OR m.away_team_id = 3 " +
+                "ORDER BY m.match_date_time DESC");
+
+        assertThat(plan).contains("BitmapOr", "idx_matches_home_team_date_time", "idx_matches_away_team_date_time")
+                .doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void stadiumMatchesReadTheStadiumIndex() {
+        String plan = explain("SELECT m.* FROM matches m WHERE m.stadium_id = 3 ORDER BY m.match_date_time DESC");
+
+        assertThat(plan).contains("idx_matches_stadium_date_time").doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void cancellationWalksAMatchsBookingsById() {
+        String bookings = explain("SELECT b.id, b.match_id, b.ticket_section_id, b.status, b.number_of_tickets, " +
+                "b.total_price FROM bookings b WHERE b.match_id = 1234 " +
+                "AND b.status IN ('PENDING_PAYMENT', 'CONFIRMED') AND b.id > 0 ORDER BY b.id LIMIT 500 FOR UPDATE");
+        String refunds = explain("SELECT b.id, b.payment_intent_id FROM bookings b WHERE b.match_id = 1234 " +
+                "AND b.status = 'REFUNDED' AND b.payment_status = 'COMPLETED' AND b.id > 0 ORDER BY b.id LIMIT 500");
+
+        assertThat(bookings).contains("idx_bookings_match_id").doesNotContain("Sort");
+        assertThat(refunds).contains("idx_bookings_refunds_due").doesNotContain("Sort");
+    }
+
+    @Test
+    void pendingHoldsAndCartsUseTheirPartialIndexes() {
+        String holds = explain("SELECT b.id, b.hold_expires_at FROM bookings b " +
+                "WHERE b.status = 'PENDING_PAYMENT' AND b.hold_expires_at IS NOT NULL");
+        String cart = explain("SELECT b.* FROM bookings b WHERE b.cart_code = 'CART7' ORDER BY b.id");
+
+        assertThat(holds).contains("idx_bookings_pending_holds");
+        assertThat(cart).contains("idx_bookings_cart_code");
+    }
+
+    private static String explain(String sql) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN (COSTS OFF) " + sql, String.class));
+    }
+}
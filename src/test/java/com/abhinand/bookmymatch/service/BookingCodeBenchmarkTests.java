@@ -0,0 +1,90 @@
+package com.abhinand.bookmymatch.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares time-ordered booking codes with the random UUIDs they replaced: how fast they are made, and
+ * where new codes land in the unique index on bookings.booking_code. Runs only when BENCHMARK_TESTS is set.
+ */
+@EnabledIfEnvironmentVariable(named = "BENCHMARK_TESTS", matches = ".+")
+class BookingCodeBenchmarkTests {
+
+    private static final Logger log = LoggerFactory.getLogger(BookingCodeBenchmarkTests.class);
+
+    private static final int CODES = 2_000_000;
+    private static final int EXISTING_KEYS = 100_000;
+    private static final int NEW_KEYS = 50_000;
+    // Roughly what one B-tree leaf page holds for keys this size
+    private static final int KEYS_PER_PAGE = 256;
+
+    private final TimeOrderedBookingCodeGenerator generator = new TimeOrderedBookingCodeGenerator(1);
+
+    @Test
+    void timeOrderedCodesAreMadeFasterThanRandomUuids() {
+        long timeOrdered = codesPerSecond(generator::nextCode);
+        long uuids = codesPerSecond(() -> UUID.randomUUID().toString().toUpperCase());
+
+        log.info("Codes per second: time-ordered {}, UUID {}", timeOrdered, uuids);
+        assertThat(timeOrdered).isGreaterThan(uuids);
+    }
+
+    @Test
+    void newTimeOrderedCodesLandOnTheRightMostIndexPage() {
+        double timeOrdered = rightEdgeShare(generator::nextCode);
+        double uuids = rightEdgeShare(() -> UUID.randomUUID().toString().toUpperCase());
+
+        log.info("Inserts landing in the right-most {} keys: time-ordered {}%, UUID {}%", KEYS_PER_PAGE,
+                Math.round(timeOrdered * 100), Math.round(uuids * 100));
+        assertThat(timeOrdered).isEqualTo(1.0);
+        assertThat(uuids).isLessThan(0.1);
+    }
+
+    private static long codesPerSecond(Supplier<String> codes) {
+        // Warm-up, then one timed run; the length sum keeps the codes from being optimised away
+        long length = 0;
+        for (int i = 0; i < CODES / 4; i++) {
+            length += codes.get().length();
+        }
+        long started = System.nanoTime();
+        for (int i = 0; i < CODES; i++) {
+            length += codes.get().length();
+        }
+        long elapsed = System.nanoTime() - started;
+        assertThat(length).isPositive();
+        return CODES * TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    // Share of new keys that sort after all but the last page's worth of keys already in the index
+    private static double rightEdgeShare(Supplier<String> codes) {
+        TreeSet<String> index = new TreeSet<>();
+        for (int i = 0; i < EXISTING_KEYS; i++) {
+            index.add(codes.get());
+        }
+
+        int onLastPage = 0;
+        for (int i = 0; i < NEW_KEYS; i++) {
+            String code = codes.get();
+            Iterator<String> largest = index.descendingIterator();
+            String lastPageStart = null;
+            for (int k = 0; k < KEYS_PER_PAGE && largest.hasNext(); k++) {
+                lastPageStart = largest.next();
+            }
+            if (code.compareTo(lastPageStart) > 0) {
+                onLastPage++;
+            }
+            index.add(code);
+        }
+        return (double) onLastPage / NEW_KEYS;
+    }
+}
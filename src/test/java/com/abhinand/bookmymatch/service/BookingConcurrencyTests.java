@@ -0,0 +1,295 @@
+package com.abhinand.bookmymatch.service;
+
+import com.abhinand.bookmymatch.entity.Booking;
+import com.abhinand.bookmymatch.entity.Match;
+import com.abhinand.bookmymatch.entity.TicketSection;
+import com.abhinand.bookmymatch.repository.BookingRepository;
+import com.abhinand.bookmymatch.repository.TicketSectionRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Races thousands of bookings for one ticket section against a real PostgreSQL: the conditional seat
+ * UPDATE must never oversell, and must get through them faster than locking the row to read and write it.
+ * Runs only when CONCURRENCY_TEST_DB_URL points at one (CONCURRENCY_TEST_DB_USERNAME / CONCURRENCY_TEST_DB_PASSWORD
+ * optional); migrations are applied to a scratch schema, cleaned on the next run.
+ */
+@EnabledIfEnvironmentVariable(named = "CONCURRENCY_TEST_DB_URL", matches = ".+")
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BookingConcurrencyTests {
+
+    private static final Logger log = LoggerFactory.getLogger(BookingConcurrencyTests.class);
+
+    private static final String SCHEMA = "booking_concurrency_check";
+    private static final String USERNAME = "concurrency-fan";
+    private static final int THREADS = 32;
+    private static final int SEATS = 1000;
+    private static final int ATTEMPTS = 3000;
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private GroupCommitBookingEngine groupCommitBookingEngine;
+    @Autowired
+    private MatchService matchService;
+    @Autowired
+    private TeamService teamService;
+    @Autowired
+    private StadiumService stadiumService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private TicketSectionRepository ticketSectionRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long homeTeamId;
+    private Long awayTeamId;
+    private Long stadiumId;
+    private Match match;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        String url = System.getenv("CONCURRENCY_TEST_DB_URL");
+        registry.add("spring.datasource.url", () -> url + (url.contains("?") ? "&" : "?") + "currentSchema=" + SCHEMA);
+        registry.add("spring.datasource.username",
+                () -> System.getenv().getOrDefault("CONCURRENCY_TEST_DB_USERNAME", "postgres"));
+        registry.add("spring.datasource.password",
+                () -> System.getenv().getOrDefault("CONCURRENCY_TEST_DB_PASSWORD", ""));
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> THREADS);
+        registry.add("spring.flyway.schemas", () -> SCHEMA);
+        registry.add("spring.flyway.clean-disabled", () -> false);
+        registry.add("admin.initial.username", () -> "admin");
+        registry.add("admin.initial.password", () -> "admin-password");
+    }
+
+    @TestConfiguration
+    static class ScratchSchema {
+
+        // Starts from an empty schema even when an earlier run was killed halfway
+        @Bean
+        FlywayMigrationStrategy cleanMigrate() {
+            return flyway -> {
+                flyway.clean();
+                flyway.migrate();
+            };
+        }
+    }
+
+    @BeforeAll
+    void seed() {
+        userService.registerUser(USERNAME, "password", "Concurrency Fan", "fan@example.com", null);
+        homeTeamId = teamService.createTeam("Home XI", "HOM", "City", null, null).getId();
+        awayTeamId = teamService.createTeam("Away XI", "AWY", "City", null, null).getId();
+        stadiumId = stadiumService.createStadium("Test Ground", "City", "Country", 50000, null, null).getId();
+        match = matchService.createMatch(homeTeamId, awayTeamId, stadiumId, LocalDateTime.now().plusDays(30), "Friendly", null);
+    }
+
+    @Test
+    void parallelBookingsNeverOversell() throws Exception {
+        TicketSection section = addSection("Race", SEATS);
+        AtomicInteger soldOut = new AtomicInteger();
+
+        List<Booking> booked = race(ATTEMPTS, () -> {
+            try {
+                return bookingService.createBooking(match.getId(), section.getId(), 1);
+            } catch (IllegalStateException e) {
+                assertThat(e.getMessage()).contains("sold out");
+                soldOut.incrementAndGet();
+                return null;
+            }
+        });
+
+        assertThat(booked).hasSize(SEATS);
+        assertThat(soldOut).hasValue(ATTEMPTS - SEATS);
+        assertThat(ticketSectionRepository.findAvailableSeatsById(section.getId())).isZero();
+        assertThat(bookingRepository.findByMatchIdOrderByBookedAtDesc(match.getId()))
+                .filteredOn(booking -> booking.getTicketSection().getId().equals(section.getId()))
+                .hasSize(SEATS);
+    }
+
+    @Test
+    void groupCommitNeverOversellsNumberedSeats() throws Exception {
+        TicketSection section = matchService.addTicketSection(match.getId(), "Group commit", SEATS,
+                BigDecimal.valueOf(500), null, 20);
+        Long userId = userService.getUserByUsername(USERNAME).getId();
+        AtomicInteger soldOut = new AtomicInteger();
+
+        // Submitted directly, so the test doesn't depend on booking.group-commit.enabled
+        List<Booking> booked = race(ATTEMPTS, () -> {
+            try {
+                return groupCommitBookingEngine.submit(userId, match.getId(), section.getId(), 1);
+            } catch (IllegalStateException e) {
+                assertThat(e.getMessage()).contains("sold out");
+                soldOut.incrementAndGet();
+                return null;
+            }
+        });
+
+        assertThat(booked).hasSize(SEATS);
+        assertThat(soldOut).hasValue(ATTEMPTS - SEATS);
+        assertThat(booked).extracting(Booking::getSeatNumbers).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(ticketSectionRepository.findAvailableSeatsById(section.getId())).isZero();
+        // The section's writer retires once it has been idle for a second
+        awaitUntil(() -> groupCommitBookingEngine.getActiveLaneCount() == 0, Duration.ofSeconds(10));
+    }
+
+    @Test
+    void groupCommitOutpacesPerRequestTransactions() throws Exception {
+        TicketSection perRequest = addSection("Per request", ATTEMPTS);
+        TicketSection grouped = addSection("Grouped", ATTEMPTS);
+
+        // booking.group-commit.enabled is off, so createBooking takes the transaction-per-request path
+        long perRequestNanos = timed(() -> race(ATTEMPTS, () ->
+                bookingService.createBooking(match.getId(), perRequest.getId(), 1)));
+        // The same lookups createBooking does before handing a request to the engine
+        long groupedNanos = timed(() -> race(ATTEMPTS, () -> {
+            Long userId = userService.getCurrentUser().getId();
+            matchService.getMatchById(match.getId());
+            return groupCommitBookingEngine.submit(userId, match.getId(), grouped.getId(), 1);
+        }));
+
+        assertThat(ticketSectionRepository.findAvailableSeatsById(perRequest.getId())).isZero();
+        assertThat(ticketSectionRepository.findAvailableSeatsById(grouped.getId())).isZero();
+        log.info("{} bookings: transaction per request {}/s, group commit {}/s", ATTEMPTS,
+                perSecond(perRequestNanos), perSecond(groupedNanos));
+        assertThat(groupedNanos).isLessThan(perRequestNanos);
+    }
+
+    @Test
+    void groupCommitTurnsAwayBookingsOnceTheMatchIsNoLongerUpcoming() {
+        Match finished = matchService.createMatch(homeTeamId, awayTeamId, stadiumId,
+                LocalDateTime.now().plusDays(31), "Friendly", null);
+        TicketSection section = matchService.addTicketSection(finished.getId(), "Closed", 10,
+                BigDecimal.valueOf(500), null, null);
+        matchService.updateMatchStatus(finished.getId(), Match.MatchStatus.COMPLETED);
+        Long userId = userService.getUserByUsername(USERNAME).getId();
+
+        assertThatThrownBy(() -> groupCommitBookingEngine.submit(userId, finished.getId(), section.getId(), 1))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("This match is not available for booking");
+        assertThat(ticketSectionRepository.findAvailableSeatsById(section.getId())).isEqualTo(10);
+    }
+
+    @Test
+    void conditionalUpdateOutpacesReadModifyWrite() throws Exception {
+        TicketSection locked = addSection("Read-modify-write", ATTEMPTS);
+        TicketSection conditional = addSection("Conditional", ATTEMPTS);
+
+        // What createBooking did before: lock the row, check the count in Java, write it back
+        long lockedNanos = timed(() -> race(ATTEMPTS, () -> transactionTemplate.execute(status -> {
+            TicketSection section = entityManager.find(TicketSection.class, locked.getId(), LockModeType.PESSIMISTIC_WRITE);
+            if (section.getAvailableSeats() < 1) {
+                return null;
+            }
+            section.setAvailableSeats(section.getAvailableSeats() - 1);
+            return section;
+        })));
+        long conditionalNanos = timed(() -> race(ATTEMPTS, () -> transactionTemplate.execute(status ->
+                ticketSectionRepository.reserveSeats(conditional.getId(), 1) == 1 ? conditional : null)));
+
+        assertThat(ticketSectionRepository.findAvailableSeatsById(locked.getId())).isZero();
+        assertThat(ticketSectionRepository.findAvailableSeatsById(conditional.getId())).isZero();
+        log.info("{} reservations: read-modify-write {}/s, conditional update {}/s", ATTEMPTS,
+                perSecond(lockedNanos), perSecond(conditionalNanos));
+        assertThat(conditionalNanos).isLessThan(lockedNanos);
+    }
+
+    private TicketSection addSection(String name, int seats) {
+        return matchService.addTicketSection(match.getId(), name, seats, BigDecimal.valueOf(500), null, null);
+    }
+
+    // Every attempt is released at once from its own pool thread, signed in as the test user
+    private <T> List<T> race(int attempts, Attempt<T> attempt) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<T>> futures = new ArrayList<>(attempts);
+            for (int i = 0; i < attempts; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                            USERNAME, null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+                    try {
+                        return attempt.run();
+                    } finally {
+                        SecurityContextHolder.clearContext();
+                    }
+                }));
+            }
+            start.countDown();
+
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                T result = future.get(2, TimeUnit.MINUTES);
+                if (result != null) {
+                    results.add(result);
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void awaitUntil(BooleanSupplier condition, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("still waiting after %s", timeout).isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+
+    private static long timed(Attempt<?> work) throws Exception {
+        long started = System.nanoTime();
+        work.run();
+        return System.nanoTime() - started;
+    }
+
+    private static long perSecond(long nanos) {
+        return ATTEMPTS * TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    @FunctionalInterface
+    private interface Attempt<T> {
+        T run() throws Exception;
+    }
+}
@@ -0,0 +1,161 @@
+package com.abhinand.bookmymatch.service;
+
+import com.abhinand.bookmymatch.entity.Match;
+import com.abhinand.bookmymatch.entity.TicketSection;
+import com.abhinand.bookmymatch.repository.TicketSectionRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Adds ticket sections in bulk against a real PostgreSQL: checks that the inserts go out as JDBC batches
+ * rather than one statement per row, and times 100k rows batched and row by row. Runs only when
+ * BATCH_TEST_DB_URL points at one (BATCH_TEST_DB_USERNAME / BATCH_TEST_DB_PASSWORD optional); migrations are
+ * applied to a scratch schema, cleaned on the next run.
+ */
+@EnabledIfEnvironmentVariable(named = "BATCH_TEST_DB_URL", matches = ".+")
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BulkInsertBatchingTests {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkInsertBatchingTests.class);
+
+    private static final String SCHEMA = "bulk_insert_check";
+    private static final int SECTIONS = 1000;
+    private static final int BULK_SECTIONS = 100_000;
+
+    @Autowired
+    private MatchService matchService;
+    @Autowired
+    private TeamService teamService;
+    @Autowired
+    private StadiumService stadiumService;
+    @Autowired
+    private TicketSectionRepository ticketSectionRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Match match;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        String url = System.getenv("BATCH_TEST_DB_URL");
+        // As recommended for production: the driver turns each batch into multi-row inserts
+        registry.add("spring.datasource.url", () -> url + (url.contains("?") ? "&" : "?") + "currentSchema=" + SCHEMA
+                + "&reWriteBatchedInserts=true");
+        registry.add("spring.datasource.username",
+                () -> System.getenv().getOrDefault("BATCH_TEST_DB_USERNAME", "postgres"));
+        registry.add("spring.datasource.password",
+                () -> System.getenv().getOrDefault("BATCH_TEST_DB_PASSWORD", ""));
+        registry.add("spring.jpa.properties.hibernate.generate_statistics", () -> true);
+        registry.add("spring.flyway.schemas", () -> SCHEMA);
+        registry.add("spring.flyway.clean-disabled", () -> false);
+        registry.add("admin.initial.username", () -> "admin");
+        registry.add("admin.initial.password", () -> "admin-password");
+    }
+
+    @TestConfiguration
+    static class ScratchSchema {
+
+        // Starts from an empty schema even when an earlier run was killed halfway
+        @Bean
+        FlywayMigrationStrategy cleanMigrate() {
+            return flyway -> {
+                flyway.clean();
+                flyway.migrate();
+            };
+        }
+    }
+
+    @BeforeAll
+    void seed() {
+        Long home = teamService.createTeam("Home XI", "HOM", "City", null, null).getId();
+        Long away = teamService.createTeam("Away XI", "AWY", "City", null, null).getId();
+        Long stadium = stadiumService.createStadium("Test Ground", "City", "Country", 50000, null, null).getId();
+        match = matchService.createMatch(home, away, stadium, LocalDateTime.now().plusDays(30), "Friendly", null);
+    }
+
+    @Test
+    void bulkSectionsAreInsertedInBatches() {
+        List<MatchService.NewTicketSection> newSections = sections(SECTIONS);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<TicketSection> saved = matchService.addTicketSections(match.getId(), newSections);
+
+        assertThat(saved).extracting(TicketSection::getId).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(SECTIONS);
+        // One insert statement per batch of 50 and one sequence call per 50 ids; row-by-row would be over a thousand.
+        // The slack covers the match lookup and whatever the background jobs run meanwhile
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(100);
+        assertThat(ticketSectionRepository.findByMatchIdOrderByPricePerTicketAsc(match.getId())).hasSize(SECTIONS);
+    }
+
+    @Test
+    void batchingSpeedsUpAHundredThousandRowInsert() {
+        // The first large insert is several times slower whichever way it is sent (JIT, table and index
+        // growth), so both ways run once untimed
+        timedInsert(BULK_SECTIONS, 1);
+        timedInsert(BULK_SECTIONS, null);
+
+        long batchedNanos = timedInsert(BULK_SECTIONS, null);
+        long rowByRowNanos = timedInsert(BULK_SECTIONS, 1);
+
+        log.info("{} sections: batched {} ms, row by row {} ms", BULK_SECTIONS,
+                TimeUnit.NANOSECONDS.toMillis(batchedNanos), TimeUnit.NANOSECONDS.toMillis(rowByRowNanos));
+        assertThat(batchedNanos).isLessThan(rowByRowNanos);
+    }
+
+    // Times only the inserts: the transaction is rolled back, so the catalog never reloads the card
+    private long timedInsert(int count, Integer jdbcBatchSize) {
+        List<MatchService.NewTicketSection> newSections = sections(count);
+        return transactionTemplate.execute(status -> {
+            // null keeps hibernate.jdbc.batch_size; 1 sends every insert on its own
+            entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+            long before = ticketSectionRepository.count();
+
+            long started = System.nanoTime();
+            matchService.addTicketSections(match.getId(), newSections);
+            entityManager.flush();
+            long elapsed = System.nanoTime() - started;
+
+            assertThat(ticketSectionRepository.count()).isEqualTo(before + count);
+            status.setRollbackOnly();
+            return elapsed;
+        });
+    }
+
+    private static List<MatchService.NewTicketSection> sections(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new MatchService.NewTicketSection("Block " + i, 100, BigDecimal.valueOf(500), null, null))
+                .toList();
+    }
+}
@@ -0,0 +1,139 @@
+package com.abhinand.bookmymatch.service;
+
+import com.abhinand.bookmymatch.entity.Match;
+import com.abhinand.bookmymatch.entity.TicketSection;
+import com.abhinand.bookmymatch.repository.MatchRepository;
+import com.abhinand.bookmymatch.repository.TicketSectionRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Times what the match pages read: a card rebuilt from the database on every request, as the pages did
+ * before the catalog, against the same card served by MatchCatalog. Runs only when BENCHMARK_TESTS is set
+ * and CATALOG_BENCHMARK_DB_URL points at a PostgreSQL (CATALOG_BENCHMARK_DB_USERNAME /
+ * CATALOG_BENCHMARK_DB_PASSWORD optional); migrations are applied to a scratch schema, cleaned on the next run.
+ */
+@EnabledIfEnvironmentVariable(named = "BENCHMARK_TESTS", matches = ".+")
+@EnabledIfEnvironmentVariable(named = "CATALOG_BENCHMARK_DB_URL", matches = ".+")
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class CatalogReadBenchmarkTests {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogReadBenchmarkTests.class);
+
+    private static final String SCHEMA = "catalog_benchmark";
+    private static final int MATCHES = 40;
+    private static final int SECTIONS_PER_MATCH = 6;
+
+    @Autowired
+    private MatchService matchService;
+    @Autowired
+    private TeamService teamService;
+    @Autowired
+    private StadiumService stadiumService;
+    @Autowired
+    private MatchRepository matchRepository;
+    @Autowired
+    private TicketSectionRepository ticketSectionRepository;
+    @Autowired
+    private MatchCatalog matchCatalog;
+
+    private final List<Long> matchIds = new ArrayList<>();
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        String url = System.getenv("CATALOG_BENCHMARK_DB_URL");
+        registry.add("spring.datasource.url", () -> url + (url.contains("?") ? "&" : "?") + "currentSchema=" + SCHEMA);
+        registry.add("spring.datasource.username",
+                () -> System.getenv().getOrDefault("CATALOG_BENCHMARK_DB_USERNAME", "postgres"));
+        registry.add("spring.datasource.password",
+                () -> System.getenv().getOrDefault("CATALOG_BENCHMARK_DB_PASSWORD", ""));
+        registry.add("spring.flyway.schemas", () -> SCHEMA);
+        registry.add("spring.flyway.clean-disabled", () -> false);
+        registry.add("admin.initial.username", () -> "admin");
+        registry.add("admin.initial.password", () -> "admin-password");
+    }
+
+    @TestConfiguration
+    static class ScratchSchema {
+
+        // Starts from an empty schema even when an earlier run was killed halfway
+        @Bean
+        FlywayMigrationStrategy cleanMigrate() {
+            return flyway -> {
+                flyway.clean();
+                flyway.migrate();
+            };
+        }
+    }
+
+    @BeforeAll
+    void seed() {
+        Long home = teamService.createTeam("Home XI", "HOM", "City", null, null).getId();
+        Long away = teamService.createTeam("Away XI", "AWY", "City", null, null).getId();
+        Long stadium = stadiumService.createStadium("Test Ground", "City", "Country", 50000, null, null).getId();
+        for (int i = 0; i < MATCHES; i++) {
+            Match match = matchService.createMatch(home, away, stadium, LocalDateTime.now().plusDays(1 + i),
+                    "League", null);
+            matchService.addTicketSections(match.getId(), IntStream.range(0, SECTIONS_PER_MATCH)
+                    .mapToObj(s -> new MatchService.NewTicketSection("Block " + s, 1000,
+                            BigDecimal.valueOf(500 + 100L * s), null, null))
+                    .toList());
+            matchIds.add(match.getId());
+        }
+    }
+
+    @Test
+    void matchPageIsServedFasterFromTheCatalog() {
+        AtomicInteger next = new AtomicInteger();
+        Latency rebuilt = Latency.measure(500, 3000, () -> {
+            Long matchId = matchIds.get(next.getAndIncrement() % MATCHES);
+            MatchCard.of(matchRepository.findWithDetailsById(matchId).orElseThrow(),
+                    ticketSectionRepository.findByMatchIdOrderByPricePerTicketAsc(matchId), 0);
+        });
+        Latency catalog = Latency.measure(20_000, 20_000,
+                () -> matchCatalog.getMatch(matchIds.get(next.getAndIncrement() % MATCHES)));
+
+        log.info("Match card: rebuilt per request {}; catalog {}", rebuilt, catalog);
+        assertThat(catalog.percentileNanos(99)).isLessThan(rebuilt.percentileNanos(50));
+    }
+
+    @Test
+    void listingIsServedFasterFromTheCatalog() {
+        Latency rebuilt = Latency.measure(200, 1000, () -> {
+            List<Match> matches = matchRepository.findUpcomingMatches();
+            Map<Long, List<TicketSection>> sections = ticketSectionRepository
+                    .findByMatchIdInOrderByPricePerTicketAsc(matches.stream().map(Match::getId).toList())
+                    .stream()
+                    .collect(Collectors.groupingBy(section -> section.getMatch().getId()));
+            matches.forEach(match -> MatchCard.of(match, sections.getOrDefault(match.getId(), List.of()), 0));
+        });
+        Latency catalog = Latency.measure(20_000, 20_000, matchCatalog::getUpcomingMatches);
+
+        assertThat(matchCatalog.getUpcomingMatches()).hasSize(MATCHES);
+        log.info("Listing of {} matches: rebuilt per request {}; catalog {}", MATCHES, rebuilt, catalog);
+        assertThat(catalog.percentileNanos(99)).isLessThan(rebuilt.percentileNanos(50));
+    }
+}
@@ -0,0 +1,88 @@
+package com.abhinand.bookmymatch.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvReaderTests {
+
+    @Test
+    void splitsPlainRecordsOnCommasAndLineBreaks() throws IOException {
+        assertThat(records("name,city\nKerala Blasters,Kochi\r\nMohun Bagan,Kolkata"))
+                .containsExactly(List.of("name", "city"), List.of("Kerala Blasters", "Kochi"),
+                        List.of("Mohun Bagan", "Kolkata"));
+    }
+
+    @Test
+    void keepsEmptyFieldsIncludingTrailingOnes() throws IOException {
+        assertThat(records("a,,c,\n,\n")).containsExactly(List.of("a", "", "c", ""), List.of("", ""));
+    }
+
+    @Test
+    void quotedFieldsHoldCommasDoubledQuotesAndLineBreaks() throws IOException {
+        assertThat(records("\"Stand, North\",\"The \"\"Kop\"\"\",\"first\r\nsecond\"\nnext,row"))
+                .containsExactly(List.of("Stand, North", "The \"Kop\"", "first\r\nsecond"), List.of("next", "row"));
+    }
+
+    @Test
+    void textAfterAClosingQuoteIsKeptAndQuotesInsideAFieldAreLiteral() throws IOException {
+        assertThat(records("\"abc\"def,ab\"c\"")).containsExactly(List.of("abcdef", "ab\"c\""));
+    }
+
+    @Test
+    void skipsBlankLinesAndALeadingByteOrderMark() throws IOException {
+        assertThat(records("\uFEFFname\n\n\r\nKochi\n\n")).containsExactly(List.of("name"), List.of("Kochi"));
+        assertThat(records("")).isEmpty();
+        assertThat(records("\n\r\n")).isEmpty();
+    }
+
+    @Test
+    void reportsTheLineEachRecordStartsOn() throws IOException {
+        CatalogImportService.CsvReader csv = reader("header\n\n\"two\nlines\"\r\nlast\r\r\nafter");
+        List<Long> lines = new ArrayList<>();
+        while (csv.next() != null) {
+            lines.add(csv.recordLine());
+        }
+
+        // A lone \r inside quotes or between records counts as a line break as well
+        assertThat(lines).containsExactly(1L, 3L, 5L, 7L);
+    }
+
+    @Test
+    void rejectsAnUnterminatedQuote() throws IOException {
+        CatalogImportService.CsvReader csv = reader("ok\n\"never closed,\nmore");
+        csv.next();
+
+        assertThatThrownBy(csv::next)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Line 2: closing quote missing");
+    }
+
+    @Test
+    void rejectsRecordsLongerThanTheLimit() {
+        String huge = "\"" + "x".repeat(70 * 1024);
+
+        assertThatThrownBy(() -> reader(huge).next())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("is a closing quote missing?");
+    }
+
+    private static List<List<String>> records(String csv) throws IOException {
+        CatalogImportService.CsvReader reader = reader(csv);
+        List<List<String>> records = new ArrayList<>();
+        for (List<String> record = reader.next(); record != null; record = reader.next()) {
+            records.add(record);
+        }
+        return records;
+    }
+
+    private static CatalogImportService.CsvReader reader(String csv) {
+        return new CatalogImportService.CsvReader(new StringReader(csv));
+    }
+}
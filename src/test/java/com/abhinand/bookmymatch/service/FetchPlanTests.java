@@ -0,0 +1,213 @@
+package com.abhinand.bookmymatch.service;
+
+import com.abhinand.bookmymatch.entity.Booking;
+import com.abhinand.bookmymatch.entity.Match;
+import com.abhinand.bookmymatch.entity.TicketSection;
+import com.abhinand.bookmymatch.repository.MatchRepository;
+import com.abhinand.bookmymatch.repository.TicketSectionRepository;
+import org.hibernate.LazyInitializationException;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Counts the statements behind each match and booking view against a real PostgreSQL, touching every
+ * association its template renders outside a transaction as the views do with open-in-view off.
+ * Runs only when FETCH_PLAN_TEST_DB_URL points at one (FETCH_PLAN_TEST_DB_USERNAME / FETCH_PLAN_TEST_DB_PASSWORD
+ * optional); migrations are applied to a scratch schema, cleaned on the next run.
+ */
+@EnabledIfEnvironmentVariable(named = "FETCH_PLAN_TEST_DB_URL", matches = ".+")
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class FetchPlanTests {
+
+    private static final String SCHEMA = "fetch_plan_check";
+    private static final String USERNAME = "fetch-plan-fan";
+    private static final int MATCHES = 10;
+    private static final int BOOKINGS_PER_MATCH = 20;
+
+    // Statements prepared by the calling thread, so background jobs don't skew the counts
+    private static final ThreadLocal<int[]> STATEMENTS = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private MatchService matchService;
+    @Autowired
+    private TeamService teamService;
+    @Autowired
+    private StadiumService stadiumService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private MatchRepository matchRepository;
+    @Autowired
+    private TicketSectionRepository ticketSectionRepository;
+
+    private final List<Match> matches = new ArrayList<>();
+    private final List<TicketSection> sections = new ArrayList<>();
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        String url = System.getenv("FETCH_PLAN_TEST_DB_URL");
+        registry.add("spring.datasource.url", () -> url + (url.contains("?") ? "&" : "?") + "currentSchema=" + SCHEMA);
+        registry.add("spring.datasource.username",
+                () -> System.getenv().getOrDefault("FETCH_PLAN_TEST_DB_USERNAME", "postgres"));
+        registry.add("spring.datasource.password",
+                () -> System.getenv().getOrDefault("FETCH_PLAN_TEST_DB_PASSWORD", ""));
+        registry.add("spring.flyway.schemas", () -> SCHEMA);
+        registry.add("spring.flyway.clean-disabled", () -> false);
+        registry.add("admin.initial.username", () -> "admin");
+        registry.add("admin.initial.password", () -> "admin-password");
+    }
+
+    @TestConfiguration
+    static class ScratchSchema {
+
+        // Starts from an empty schema even when an earlier run was killed halfway
+        @Bean
+        FlywayMigrationStrategy cleanMigrate() {
+            return flyway -> {
+                flyway.clean();
+                flyway.migrate();
+            };
+        }
+
+        @Bean
+        HibernatePropertiesCustomizer statementCounter() {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, (StatementInspector) sql -> {
+                STATEMENTS.get()[0]++;
+                return sql;
+            });
+        }
+    }
+
+    @BeforeAll
+    void seed() {
+        userService.registerUser(USERNAME, "password", "Fetch Plan Fan", "fan@example.com", null);
+        Long home = teamService.createTeam("Home XI", "HOM", "City", null, null).getId();
+        Long away = teamService.createTeam("Away XI", "AWY", "City", null, null).getId();
+        Long stadium = stadiumService.createStadium("Test Ground", "City", "Country", 50000, null, null).getId();
+        for (int i = 0; i < MATCHES; i++) {
+            Match match = matchService.createMatch(home, away, stadium, LocalDateTime.now().plusDays(30 + i), "Friendly", null);
+            matches.add(match);
+            sections.add(matchService.addTicketSection(match.getId(), "Stand", 1000, BigDecimal.valueOf(500), null, null));
+        }
+
+        signIn();
+        try {
+            for (int i = 0; i < MATCHES; i++) {
+                for (int j = 0; j < BOOKINGS_PER_MATCH; j++) {
+                    bookingService.createBooking(matches.get(i).getId(), sections.get(i).getId(), 1);
+                }
+            }
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    @BeforeEach
+    void signIn() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                USERNAME, null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+    }
+
+    @AfterEach
+    void signOut() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void upcomingMatchesComeWithTeamsAndStadiumsInOneQuery() {
+        // What the match catalog loads its cards from
+        List<Match> upcoming = statements(1, () -> matchRepository.findUpcomingMatches());
+
+        assertThat(upcoming).hasSize(MATCHES);
+        upcoming.forEach(FetchPlanTests::renderMatch);
+    }
+
+    @Test
+    void matchPagesLoadTheirDetailsInOneQuery() {
+        renderMatch(statements(1, () -> matchService.getMatchById(matches.get(3).getId())));
+        statements(1, () -> matchService.getAllMatches(null, null)).items().forEach(FetchPlanTests::renderMatch);
+    }
+
+    @Test
+    void myTicketsReadTheUserAndThenOnePageOfBookings() {
+        KeysetPage<Booking> page = statements(2, () -> bookingService.getUserBookings(null, null));
+
+        assertThat(page.items()).hasSize(KeysetPage.SIZE);
+        page.items().forEach(FetchPlanTests::renderBooking);
+
+        Booking last = page.last();
+        statements(2, () -> bookingService.getUserBookings(last.getBookedAt(), last.getId()))
+                .items().forEach(FetchPlanTests::renderBooking);
+    }
+
+    @Test
+    void ticketAndAdminBookingViewsLoadEverythingTheyRenderInOneQuery() {
+        String bookingCode = bookingService.getUserBookings(null, null).items().get(0).getBookingCode();
+
+        renderBooking(statements(1, () -> bookingService.getBookingByCode(bookingCode)));
+        // The admin list shows teams, section and customer, but no stadium
+        statements(1, () -> bookingService.getAllBookings(null, null)).items().forEach(booking -> {
+            assertThat(booking.getMatch().getHomeTeam().getName()).isEqualTo("Home XI");
+            assertThat(booking.getMatch().getAwayTeam().getName()).isEqualTo("Away XI");
+            assertThat(booking.getTicketSection().getSectionName()).isEqualTo("Stand");
+            assertThat(booking.getUser().getFullName()).isEqualTo("Fetch Plan Fan");
+        });
+    }
+
+    @Test
+    void associationsLeftOutOfAFetchPlanFailInsteadOfQueryingLater() {
+        TicketSection section = ticketSectionRepository.findById(sections.get(0).getId()).orElseThrow();
+
+        assertThatThrownBy(() -> section.getMatch().getHomeTeam().getName())
+                .isInstanceOf(LazyInitializationException.class);
+    }
+
+    // Runs a view's lookup and checks how many statements it took
+    private static <T> T statements(int expected, Supplier<T> view) {
+        STATEMENTS.get()[0] = 0;
+        T result = view.get();
+        assertThat(STATEMENTS.get()[0]).as("statements").isEqualTo(expected);
+        return result;
+    }
+
+    // Everything below is read outside any session, as the templates do
+    private static void renderMatch(Match match) {
+        assertThat(match.getHomeTeam().getName()).isEqualTo("Home XI");
+        assertThat(match.getAwayTeam().getShortName()).isEqualTo("AWY");
+        assertThat(match.getStadium().getName()).isEqualTo("Test Ground");
+    }
+
+    private static void renderBooking(Booking booking) {
+        renderMatch(booking.getMatch());
+        assertThat(booking.getTicketSection().getSectionName()).isEqualTo("Stand");
+    }
+}
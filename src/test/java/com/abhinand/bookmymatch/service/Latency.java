@@ -0,0 +1,42 @@
+package com.abhinand.bookmymatch.service;
+
+import java.util.Arrays;
+
+/**
+ * Per-call timings for the benchmark tests: the call is first run enough times for the JIT to compile it,
+ * then timed once per sample. The benchmarks only run when BENCHMARK_TESTS is set, since their limits
+ * assume a machine that isn't busy with anything else.
+ */
+final class Latency {
+
+    private final long[] sortedNanos;
+
+    private Latency(long[] sortedNanos) {
+        this.sortedNanos = sortedNanos;
+    }
+
+    static Latency measure(int warmUps, int samples, Runnable call) {
+        for (int i = 0; i < warmUps; i++) {
+            call.run();
+        }
+        long[] nanos = new long[samples];
+        for (int i = 0; i < samples; i++) {
+            long started = System.nanoTime();
+            call.run();
+            nanos[i] = System.nanoTime() - started;
+        }
+        Arrays.sort(nanos);
+        return new Latency(nanos);
+    }
+
+    long percentileNanos(double percentile) {
+        int index = (int) Math.ceil(percentile / 100 * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, Math.min(sortedNanos.length - 1, index))];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("p50 %.1f us, p99 %.1f us, max %.1f us", percentileNanos(50) / 1000.0,
+                percentileNanos(99) / 1000.0, sortedNanos[sortedNanos.length - 1] / 1000.0);
+    }
+}
@@ -0,0 +1,85 @@
+package com.abhinand.bookmymatch.service;
+
+import com.abhinand.bookmymatch.repository.BookingRepository;
+import com.abhinand.bookmymatch.repository.MatchRepository;
+import com.abhinand.bookmymatch.repository.TicketSectionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MatchCancellationServiceTests {
+
+    private static final long MATCH_ID = 1L;
+
+    private final MatchRepository matchRepository = mock(MatchRepository.class);
+    private final BookingRepository bookingRepository = mock(BookingRepository.class);
+    private final PaymentService paymentService = mock(PaymentService.class);
+
+    @Test
+    void aPaidBookingWithoutAnIntentIsLeftOutstandingInsteadOfMarkedRefunded() throws Exception {
+        BookingRepository.RefundView refund = mock(BookingRepository.RefundView.class);
+        when(refund.getId()).thenReturn(7L);
+        when(refund.getTotalPrice()).thenReturn(BigDecimal.valueOf(500));
+        when(bookingRepository.findRefundsDue(eq(MATCH_ID), anyLong(), any())).thenReturn(List.of(refund), List.of());
+        MatchCancellationService service = service(60);
+
+        MatchCancellationService.ProgressView progress = cancelAndWait(service);
+
+        assertThat(progress.phase()).isEqualTo(MatchCancellationService.Phase.COMPLETED);
+        assertThat(progress.refundsFailed()).isEqualTo(1);
+        assertThat(progress.refundsCompleted()).isZero();
+        verify(paymentService, never()).refundPayment(any(), any(), any());
+        verify(bookingRepository, never()).markRefunded(anyLong());
+        service.shutdown();
+    }
+
+    @Test
+    void finishedCancellationsArePurgedOnceTheirRetentionHasPassed() throws Exception {
+        MatchCancellationService keeping = service(60);
+        cancelAndWait(keeping);
+        keeping.purgeFinishedCancellations();
+        assertThat(keeping.getProgress(MATCH_ID)).isNotNull();
+        keeping.shutdown();
+
+        MatchCancellationService purging = service(0);
+        cancelAndWait(purging);
+        purging.purgeFinishedCancellations();
+        assertThat(purging.getProgress(MATCH_ID)).isNull();
+        assertThat(purging.getAllProgress()).isEmpty();
+        purging.shutdown();
+    }
+
+    private MatchCancellationService.ProgressView cancelAndWait(MatchCancellationService service)
+            throws InterruptedException {
+        when(matchRepository.existsById(MATCH_ID)).thenReturn(true);
+        service.cancelMatch(MATCH_ID);
+        long deadline = System.currentTimeMillis() + 5000;
+        MatchCancellationService.ProgressView progress = service.getProgress(MATCH_ID);
+        while (progress.finishedAt() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            progress = service.getProgress(MATCH_ID);
+        }
+        assertThat(progress.finishedAt()).as("cancellation finished").isNotNull();
+        return progress;
+    }
+
+    private MatchCancellationService service(long progressRetentionMinutes) {
+        return new MatchCancellationService(matchRepository, bookingRepository, mock(TicketSectionRepository.class),
+                mock(SeatAllocationService.class), mock(SeatHoldManager.class), paymentService,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), mock(ApplicationEventPublisher.class),
+                500, 2, progressRetentionMinutes);
+    }
+}
@@ -0,0 +1,150 @@
+package com.abhinand.bookmymatch.service;
+
+import com.abhinand.bookmymatch.entity.Match;
+import com.abhinand.bookmymatch.entity.Stadium;
+import com.abhinand.bookmymatch.entity.Team;
+import com.abhinand.bookmymatch.entity.TicketSection;
+import com.abhinand.bookmymatch.event.CatalogChangedEvent;
+import com.abhinand.bookmymatch.event.SeatInventoryChangedEvent;
+import com.abhinand.bookmymatch.repository.MatchRepository;
+import com.abhinand.bookmymatch.repository.TicketSectionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MatchCatalogTests {
+
+    private final MatchRepository matchRepository = mock(MatchRepository.class);
+    private final TicketSectionRepository ticketSectionRepository = mock(TicketSectionRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private MatchCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        when(matchRepository.findUpcomingMatches()).thenReturn(List.of(match(1L, Match.MatchStatus.UPCOMING)));
+        when(ticketSectionRepository.findByMatchIdInOrderByPricePerTicketAsc(any())).thenReturn(List.of());
+        when(ticketSectionRepository.findByMatchIdOrderByPricePerTicketAsc(any())).thenReturn(List.of());
+        catalog = new MatchCatalog(matchRepository, ticketSectionRepository, meterRegistry, 10, 60, 100, 300);
+    }
+
+    @Test
+    void unknownMatchIdsOnlyReachTheDatabaseOnce() {
+        when(matchRepository.findWithDetailsById(99L)).thenReturn(Optional.empty());
+
+        assertThat(catalog.findMatch(99L)).isEmpty();
+        assertThat(catalog.findMatch(99L)).isEmpty();
+        verify(matchRepository, times(1)).findWithDetailsById(99L);
+
+        // Creating the match announces it, so it shows up at once
+        when(matchRepository.findWithDetailsById(99L)).thenReturn(Optional.of(match(99L, Match.MatchStatus.UPCOMING)));
+        catalog.onCatalogChanged(new CatalogChangedEvent(99L));
+        assertThat(catalog.findMatch(99L)).isPresent();
+    }
+
+    @Test
+    void listingIsLoadedOnceAndLeavesOutStartedMatches() {
+        assertThat(catalog.getUpcomingMatches()).extracting(MatchCard::id).containsExactly(1L);
+        catalog.getUpcomingMatches();
+        verify(matchRepository, times(1)).findUpcomingMatches();
+        assertThat(meterRegistry.get("catalog.listing.gets").tag("result", "hit").counter().count()).isEqualTo(1);
+
+        when(matchRepository.findWithDetailsById(1L)).thenReturn(Optional.of(match(1L, Match.MatchStatus.LIVE)));
+        catalog.onCatalogChanged(new CatalogChangedEvent(1L));
+
+        assertThat(catalog.getUpcomingMatches()).isEmpty();
+        // Still served from memory once it has moved out of the listing
+        assertThat(catalog.getMatch(1L).status()).isEqualTo(Match.MatchStatus.LIVE);
+        verify(matchRepository, times(1)).findWithDetailsById(1L);
+        assertThat(meterRegistry.get("catalog.cards").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void listingIsReloadedOnceTooOldAndHoldsOnlyTheSoonestMatches() {
+        MatchCatalog capped = new MatchCatalog(matchRepository, ticketSectionRepository, meterRegistry, 10, 60, 1, 0);
+        when(matchRepository.findUpcomingMatches()).thenReturn(
+                List.of(match(1L, Match.MatchStatus.UPCOMING), match(2L, Match.MatchStatus.UPCOMING)));
+
+        assertThat(capped.getUpcomingMatches()).extracting(MatchCard::id).containsExactly(1L);
+        // With no max age every read reloads; a reload that finds nothing new keeps the tag
+        String version = capped.getListingVersion();
+        assertThat(capped.getListingVersion()).isEqualTo(version);
+
+        // Kicked off without the catalog hearing of it: the next load drops the card
+        when(matchRepository.findUpcomingMatches()).thenReturn(List.of(match(2L, Match.MatchStatus.UPCOMING)));
+        assertThat(capped.getUpcomingMatches()).extracting(MatchCard::id).containsExactly(2L);
+        verify(matchRepository, times(4)).findUpcomingMatches();
+        assertThat(meterRegistry.get("catalog.listing.gets").tag("result", "miss").counter().count()).isEqualTo(4);
+        assertThat(meterRegistry.get("catalog.listing.load").timer().count()).isEqualTo(4);
+    }
+
+    @Test
+    void listingTagOnlyMovesWhenAListedCardChanges() {
+        when(ticketSectionRepository.findByMatchIdInOrderByPricePerTicketAsc(any()))
+                .thenReturn(List.of(section(100L, 1L)));
+        when(matchRepository.findWithDetailsById(2L)).thenReturn(Optional.of(match(2L, Match.MatchStatus.LIVE)));
+        when(ticketSectionRepository.findByMatchIdOrderByPricePerTicketAsc(2L)).thenReturn(List.of(section(200L, 2L)));
+        catalog.getUpcomingMatches();
+        catalog.getMatch(2L);
+        String version = catalog.getListingVersion();
+
+        TicketSectionRepository.InventoryView started = inventory(200L, 40, 1L);
+        TicketSectionRepository.InventoryView unchanged = inventory(100L, 50, 0L);
+        TicketSectionRepository.InventoryView sold = inventory(100L, 49, 1L);
+
+        // A started match's seats, and a counter the card already holds, leave the listing as it was
+        when(ticketSectionRepository.findInventoryById(200L)).thenReturn(Optional.of(started));
+        catalog.onSeatInventoryChanged(new SeatInventoryChangedEvent(200L));
+        when(ticketSectionRepository.findInventoryById(100L)).thenReturn(Optional.of(unchanged));
+        catalog.onSeatInventoryChanged(new SeatInventoryChangedEvent(100L));
+        assertThat(catalog.getListingVersion()).isEqualTo(version);
+        assertThat(catalog.getMatch(2L).ticketSections().get(0).availableSeats()).isEqualTo(40);
+
+        when(ticketSectionRepository.findInventoryById(100L)).thenReturn(Optional.of(sold));
+        catalog.onSeatInventoryChanged(new SeatInventoryChangedEvent(100L));
+        assertThat(catalog.getListingVersion()).isNotEqualTo(version);
+    }
+
+    private static TicketSection section(Long id, Long matchId) {
+        return TicketSection.builder()
+                .id(id)
+                .match(Match.builder().id(matchId).build())
+                .sectionName("Block " + id)
+                .totalSeats(50)
+                .availableSeats(50)
+                .pricePerTicket(BigDecimal.valueOf(500))
+                .version(0L)
+                .build();
+    }
+
+    private static TicketSectionRepository.InventoryView inventory(Long id, int availableSeats, long version) {
+        TicketSectionRepository.InventoryView inventory = mock(TicketSectionRepository.InventoryView.class);
+        when(inventory.getId()).thenReturn(id);
+        when(inventory.getAvailableSeats()).thenReturn(availableSeats);
+        when(inventory.getVersion()).thenReturn(version);
+        return inventory;
+    }
+
+    private static Match match(Long id, Match.MatchStatus status) {
+        return Match.builder()
+                .id(id)
+                .homeTeam(Team.builder().id(1L).name("Home XI").shortName("HOM").build())
+                .awayTeam(Team.builder().id(2L).name("Away XI").shortName("AWY").build())
+                .stadium(Stadium.builder().id(10L).name("Ground").city("City").build())
+                .matchDateTime(LocalDateTime.now().plusDays(1))
+                .status(status)
+                .build();
+    }
+}
@@ -0,0 +1,84 @@
+package com.abhinand.bookmymatch.service;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Times searches over 100,000 indexed matches, 400 teams and 200 stadiums, each query with an open
+ * kick-off range and with a 30-day one, as MatchSearchService asks for the first 50 hits.
+ * Runs only when BENCHMARK_TESTS is set.
+ */
+@EnabledIfEnvironmentVariable(named = "BENCHMARK_TESTS", matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class MatchSearchBenchmarkTests {
+
+    private static final Logger log = LoggerFactory.getLogger(MatchSearchBenchmarkTests.class);
+
+    private static final int MATCHES = 100_000;
+    private static final int TEAMS = 400;
+    private static final int STADIUMS = 200;
+    private static final int LIMIT = 50;
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private static final List<String> CITIES = List.of("Mumbai", "Kolkata", "Kochi", "Chennai", "Bengaluru",
+            "Hyderabad", "Pune", "Goa", "Delhi", "Jamshedpur", "Shillong", "Guwahati", "Bhubaneswar", "Ludhiana",
+            "Manchester", "Madrid", "Milan", "Munich", "Marseille", "Lisbon", "Porto", "Glasgow", "Liverpool",
+            "London", "Paris", "Lyon", "Turin", "Rome", "Naples", "Seville", "Valencia", "Bilbao", "Dortmund",
+            "Hamburg", "Amsterdam", "Rotterdam", "Brussels", "Vienna", "Prague", "Istanbul");
+    private static final List<String> SUFFIXES = List.of("United", "City", "Rovers", "Athletic", "Wanderers",
+            "Rangers", "Albion", "Town", "Stars", "Blasters");
+    private static final List<String> GROUNDS = List.of("Stadium", "Arena", "Park", "Ground", "Field");
+    private static final List<String> COMPETITIONS = List.of("Indian Super League", "Durand Cup", "Super Cup",
+            "Premier League", "Champions League", "Europa League", "Conference League", "FA Cup",
+            "League Cup", "Friendly");
+
+    private final MatchSearchIndex index = new MatchSearchIndex();
+
+    @BeforeAll
+    void indexMatches() {
+        for (int team = 0; team < TEAMS; team++) {
+            String city = CITIES.get(team % CITIES.size());
+            index.putTeam((long) team, city + " " + SUFFIXES.get(team / CITIES.size() % SUFFIXES.size()),
+                    city.substring(0, 3).toUpperCase() + team, city);
+        }
+        for (int stadium = 0; stadium < STADIUMS; stadium++) {
+            String city = CITIES.get(stadium % CITIES.size());
+            index.putStadium((long) stadium, city + " " + GROUNDS.get(stadium / CITIES.size() % GROUNDS.size()), city);
+        }
+        // A year of fixtures, kicking off at random
+        Random random = new Random(42);
+        for (long match = 0; match < MATCHES; match++) {
+            long home = random.nextInt(TEAMS);
+            long away = (home + 1 + random.nextInt(TEAMS - 1)) % TEAMS;
+            index.putMatch(match, home, away, (long) random.nextInt(STADIUMS),
+                    COMPETITIONS.get(random.nextInt(COMPETITIONS.size())), (long) (random.nextDouble() * 365 * DAY));
+        }
+        assertThat(index.size()).isEqualTo(MATCHES);
+    }
+
+    // From a single team to the broadest prefixes, which OR the most postings together
+    @ParameterizedTest
+    @ValueSource(strings = {"", "mumbai", "mum", "kochi blasters", "liverpool united cup", "m", "stadium park",
+            "league", "city arena", "lon rov", "zzz"})
+    void searchStaysSubMillisecondAtAHundredThousandMatches(String query) {
+        Latency open = Latency.measure(20_000, 10_000, () -> index.search(query, 0, Long.MAX_VALUE, LIMIT));
+        Latency month = Latency.measure(20_000, 10_000, () -> index.search(query, 100 * DAY, 130 * DAY, LIMIT));
+
+        log.info("\"{}\": open range {} ({} hits); 30 days {} ({} hits)", query,
+                open, index.search(query, 0, Long.MAX_VALUE, LIMIT).size(),
+                month, index.search(query, 100 * DAY, 130 * DAY, LIMIT).size());
+        assertThat(open.percentileNanos(99)).isLessThan(TimeUnit.MILLISECONDS.toNanos(1));
+        assertThat(month.percentileNanos(99)).isLessThan(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,117 @@
+package com.abhinand.bookmymatch.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MatchSearchIndexTests {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private MatchSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new MatchSearchIndex();
+        index.putTeam(1L, "Mumbai City FC", "MCFC", "Mumbai");
+        index.putTeam(2L, "Kerala Blasters", "KBFC", "Kochi");
+        index.putTeam(3L, "Mohun Bagan", "MBSG", "Kolkata");
+        index.putStadium(10L, "Mumbai Football Arena", "Mumbai");
+        index.putStadium(11L, "Salt Lake Stadium", "Kolkata");
+
+        index.putMatch(100L, 1L, 2L, 10L, "Indian Super League", 3 * DAY);
+        index.putMatch(101L, 3L, 1L, 11L, "Indian Super League", DAY);
+        index.putMatch(102L, 2L, 3L, 11L, "Durand Cup", 2 * DAY);
+    }
+
+    @Test
+    void tokenizerLowercasesAndSplitsOnAnythingButLettersAndDigits() {
+        assertThat(MatchSearchIndex.words("  Mumbai City-FC, 2024/25 ")).containsExactly("mumbai", "city", "fc", "2024", "25");
+        assertThat(MatchSearchIndex.words("São Paulo – Atlético")).containsExactly("são", "paulo", "atlético");
+        assertThat(MatchSearchIndex.words("KERALA")).containsExactly("kerala");
+        assertThat(MatchSearchIndex.words("  ")).isEmpty();
+        assertThat(MatchSearchIndex.words("--")).isEmpty();
+        assertThat(MatchSearchIndex.words(null)).isEmpty();
+    }
+
+    @Test
+    void queryWordsArePrefixesAndAreAllRequired() {
+        assertThat(search("mum")).containsExactly(101L, 100L);
+        assertThat(search("Mumbai kerala")).containsExactly(100L);
+        assertThat(search("kolkata cup")).containsExactly(102L);
+        assertThat(search("mumbai durand")).isEmpty();
+        assertThat(search("chennai")).isEmpty();
+    }
+
+    @Test
+    void emptyQueryListsEverythingInKickOffOrder() {
+        assertThat(search("")).containsExactly(101L, 102L, 100L);
+        assertThat(search(" , ")).containsExactly(101L, 102L, 100L);
+    }
+
+    @Test
+    void kickOffRangeIsInclusive() {
+        assertThat(index.search("", DAY, 2 * DAY, 10)).containsExactly(101L, 102L);
+        assertThat(index.search("kerala", 2 * DAY + 1, Long.MAX_VALUE, 10)).containsExactly(100L);
+    }
+
+    @Test
+    void renamingATeamOnlyChangesItsOwnWords() {
+        index.putTeam(2L, "Chennaiyin FC", "CFC", "Chennai");
+
+        assertThat(search("kerala")).isEmpty();
+        assertThat(search("chennai")).containsExactly(102L, 100L);
+        assertThat(search("mumbai")).containsExactly(101L, 100L);
+    }
+
+    @Test
+    void removedAndMovedMatchesAreReindexed() {
+        index.removeMatch(101L);
+        index.putMatch(100L, 1L, 2L, 10L, "Indian Super League", DAY / 2);
+
+        assertThat(search("")).containsExactly(100L, 102L);
+        assertThat(index.size()).isEqualTo(2);
+
+        // A freed slot is reused without bringing back the old match's keys
+        index.putMatch(103L, 2L, 1L, 10L, null, 4 * DAY);
+        assertThat(search("bagan")).containsExactly(102L);
+        assertThat(search("blasters")).containsExactly(100L, 102L, 103L);
+    }
+
+    @Test
+    void removedTeamsNoLongerMatch() {
+        index.removeTeam(3L);
+
+        assertThat(index.hasTeam(3L)).isFalse();
+        assertThat(search("bagan")).isEmpty();
+        assertThat(search("salt")).containsExactly(101L, 102L);
+    }
+
+    @Test
+    void rareAndCommonTermsReturnTheSameEarliestHits() {
+        MatchSearchIndex large = new MatchSearchIndex();
+        large.putTeam(1L, "Common United");
+        large.putTeam(2L, "Rare Rovers");
+        large.putTeam(3L, "Other Athletic");
+        large.putStadium(10L, "Ground");
+        // Every 50th match involves the rare team, so that query picks its few candidates directly
+        // while the common one walks the kick-off order
+        LongStream.range(0, 5000).forEach(i ->
+                large.putMatch(i, 1L, i % 50 == 0 ? 2L : 3L, 10L, null, (5000 - i) * DAY));
+
+        List<Long> rare = large.search("rare", 0, Long.MAX_VALUE, 10);
+        List<Long> common = large.search("common", 0, Long.MAX_VALUE, 10);
+
+        assertThat(rare).containsExactly(4950L, 4900L, 4850L, 4800L, 4750L, 4700L, 4650L, 4600L, 4550L, 4500L);
+        assertThat(common).containsExactly(4999L, 4998L, 4997L, 4996L, 4995L, 4994L, 4993L, 4992L, 4991L, 4990L);
+        assertThat(large.search("rare", 0, 100 * DAY, 3)).containsExactly(4950L, 4900L);
+    }
+
+    private List<Long> search(String query) {
+        return index.search(query, 0, Long.MAX_VALUE, 10);
+    }
+}
@@ -0,0 +1,72 @@
+package com.abhinand.bookmymatch.service;
+
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Times a booking's seat allocation in a 25,000-seat section at several fill levels: loading the stored
+ * bitmap and finding 4 seats together, as SeatAllocationService does for every booking.
+ * Runs only when BENCHMARK_TESTS is set.
+ */
+@EnabledIfEnvironmentVariable(named = "BENCHMARK_TESTS", matches = ".+")
+class SeatMapBenchmarkTests {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatMapBenchmarkTests.class);
+
+    private static final int SEATS = 25_000;
+    private static final int ROWS = 100;
+    private static final int GROUP = 4;
+
+    // Sold front to back in groups of 1-6, as allocate itself fills a section
+    @ParameterizedTest
+    @ValueSource(ints = {0, 50, 90, 99})
+    void allocationStaysSubMillisecondAsGroupsFillTheSection(int fillPercent) {
+        SeatMap seatMap = SeatMap.create(SEATS, ROWS);
+        Random random = new Random(fillPercent);
+        int target = SEATS * fillPercent / 100;
+        for (int sold = 0; sold < target; ) {
+            int[] seats = seatMap.allocate(Math.min(1 + random.nextInt(6), target - sold));
+            sold += seats.length;
+        }
+
+        assertSubMillisecond("grouped", fillPercent, seatMap.toBytes(), seatMap.getSeatsPerRow());
+    }
+
+    // Single seats taken at random, as cancellations leave a section: few rows still seat a group together
+    @ParameterizedTest
+    @ValueSource(ints = {0, 50, 90, 99})
+    void allocationStaysSubMillisecondWhenFreeSeatsAreScattered(int fillPercent) {
+        SeatMap empty = SeatMap.create(SEATS, ROWS);
+        BitSet taken = BitSet.valueOf(empty.toBytes());
+        Random random = new Random(fillPercent);
+        for (int sold = 0; sold < SEATS * fillPercent / 100; ) {
+            int seat = random.nextInt(SEATS);
+            if (!taken.get(seat)) {
+                taken.set(seat);
+                sold++;
+            }
+        }
+
+        assertSubMillisecond("scattered", fillPercent, taken.toByteArray(), empty.getSeatsPerRow());
+    }
+
+    private static void assertSubMillisecond(String layout, int fillPercent, byte[] takenSeats, int seatsPerRow) {
+        Latency latency = Latency.measure(20_000, 20_000, () -> {
+            if (SeatMap.of(ROWS, seatsPerRow, takenSeats).allocate(GROUP).length != GROUP) {
+                throw new AssertionError("No seats allocated");
+            }
+        });
+
+        log.info("{} seats, {} {}% full: load and allocate {} seats {}", SEATS, layout, fillPercent, GROUP, latency);
+        assertThat(latency.percentileNanos(99)).isLessThan(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,111 @@
+package com.abhinand.bookmymatch.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SeatMapTests {
+
+    @Test
+    void groupsSitTogetherInTheMiddleOfTheFrontRow() {
+        SeatMap seatMap = SeatMap.create(30, 3);
+
+        assertThat(labels(seatMap, seatMap.allocate(2))).containsExactly("A5", "A6");
+        assertThat(labels(seatMap, seatMap.allocate(3))).containsExactly("A2", "A3", "A4");
+    }
+
+    @Test
+    void movesBackARowWhenTheFrontRowCannotSeatTheGroup() {
+        SeatMap seatMap = SeatMap.create(30, 3);
+        // A2-A9, leaving A1 and A10 apart
+        seatMap.allocate(8);
+
+        assertThat(labels(seatMap, seatMap.allocate(3))).containsExactly("B5", "B6", "B7");
+        assertThat(labels(seatMap, seatMap.allocate(2))).containsExactly("B3", "B4");
+    }
+
+    @Test
+    void splitsTheGroupOverTheFrontMostSeatsWhenNoRowHasRoom() {
+        SeatMap seatMap = SeatMap.create(8, 2);
+        int[] middleOfEachRow = {1, 2, 5, 6};
+        take(seatMap, middleOfEachRow);
+
+        assertThat(labels(seatMap, seatMap.allocate(3))).containsExactly("A1", "A4", "B1");
+    }
+
+    @Test
+    void shortLastRowSeatsAreNeverSold() {
+        SeatMap seatMap = SeatMap.create(10, 3);
+
+        assertThat(seatMap.getSeatsPerRow()).isEqualTo(4);
+        assertThat(seatMap.allocate(10)).hasSize(10).doesNotHaveDuplicates();
+        assertThat(seatMap.allocate(1)).isNull();
+    }
+
+    @Test
+    void returnsNullWithoutTakingAnythingWhenTooFewSeatsAreLeft() {
+        SeatMap seatMap = SeatMap.create(4, 1);
+        seatMap.allocate(3);
+
+        assertThat(seatMap.allocate(2)).isNull();
+        assertThat(labels(seatMap, seatMap.allocate(1))).containsExactly("A1");
+    }
+
+    @Test
+    void releasedSeatsCanBeSoldAgain() {
+        SeatMap seatMap = SeatMap.create(4, 1);
+        int[] seats = seatMap.allocate(4);
+
+        seatMap.release(new int[]{seats[0], seats[0], 99});
+
+        assertThat(seatMap.allocate(1)).containsExactly(seats[0]);
+        assertThat(seatMap.allocate(1)).isNull();
+    }
+
+    @Test
+    void survivesTheRoundTripThroughItsStoredBytes() {
+        SeatMap seatMap = SeatMap.create(25, 5);
+        int[] sold = seatMap.allocate(7);
+
+        SeatMap loaded = SeatMap.of(seatMap.getRowCount(), seatMap.getSeatsPerRow(), seatMap.toBytes());
+
+        int[] rest = loaded.allocate(25 - 7);
+        assertThat(rest).hasSize(25 - 7).doesNotContain(sold);
+        assertThat(loaded.allocate(1)).isNull();
+    }
+
+    @Test
+    void labelsAndParsesSeatsBeyondRowZ() {
+        SeatMap seatMap = SeatMap.create(30 * 10, 30);
+
+        assertThat(seatMap.label(0)).isEqualTo("A1");
+        assertThat(seatMap.label(25 * 10 + 9)).isEqualTo("Z10");
+        assertThat(seatMap.label(26 * 10)).isEqualTo("AA1");
+        IntStream.range(0, 300).forEach(seat -> assertThat(seatMap.parseLabel(seatMap.label(seat))).isEqualTo(seat));
+        assertThat(seatMap.parseLabel(" ab3 ")).isEqualTo(27 * 10 + 2);
+    }
+
+    @Test
+    void rejectsMalformedLabelsAndSections() {
+        SeatMap seatMap = SeatMap.create(10, 1);
+
+        assertThatThrownBy(() -> seatMap.parseLabel("12")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> seatMap.parseLabel("B")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> SeatMap.create(2, 3)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> SeatMap.create(10, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // Marks seats taken by allocating the whole map and giving the others back
+    private static void take(SeatMap seatMap, int[] seats) {
+        int[] all = seatMap.allocate(seatMap.getRowCount() * seatMap.getSeatsPerRow());
+        seatMap.release(Arrays.stream(all).filter(seat -> Arrays.stream(seats).noneMatch(s -> s == seat)).toArray());
+    }
+
+    private static String[] labels(SeatMap seatMap, int[] seats) {
+        return Arrays.stream(seats).mapToObj(seatMap::label).toArray(String[]::new);
+    }
+}
@@ -0,0 +1,91 @@
+package com.abhinand.bookmymatch.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SectionRetryPolicyTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SectionRetryPolicy retryPolicy = new SectionRetryPolicy(meterRegistry, 3, 0, 0);
+
+    @Test
+    void returnsTheFirstResultWithoutCountingAnything() {
+        assertThat(retryPolicy.execute(1L, 2L, () -> "booked")).isEqualTo("booked");
+        assertThat(meterRegistry.getMeters()).isEmpty();
+    }
+
+    @Test
+    void retriesLostRacesUntilAnAttemptSucceeds() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = retryPolicy.execute(1L, 2L, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new ObjectOptimisticLockingFailureException("TicketSection", 2L);
+            }
+            if (attempts.get() == 2) {
+                throw new CannotAcquireLockException("lock timeout");
+            }
+            return "booked";
+        });
+
+        assertThat(result).isEqualTo("booked");
+        assertThat(attempts).hasValue(3);
+        assertThat(count("booking.section.conflicts")).isEqualTo(2);
+        assertThat(count("booking.section.retries")).isEqualTo(2);
+        assertThat(count("booking.section.giveups")).isZero();
+    }
+
+    @Test
+    void givesUpAfterTheAttemptCap() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> retryPolicy.execute(1L, 2L, () -> {
+            attempts.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException("TicketSection", 2L);
+        }))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("very busy")
+                .hasCauseInstanceOf(ObjectOptimisticLockingFailureException.class);
+
+        assertThat(attempts).hasValue(3);
+        assertThat(count("booking.section.conflicts")).isEqualTo(3);
+        assertThat(count("booking.section.retries")).isEqualTo(2);
+        assertThat(count("booking.section.giveups")).isEqualTo(1);
+    }
+
+    @Test
+    void otherFailuresAreNotRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> retryPolicy.execute(1L, 2L, () -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("This section is sold out");
+        })).hasMessage("This section is sold out");
+
+        assertThat(attempts).hasValue(1);
+        assertThat(meterRegistry.getMeters()).isEmpty();
+    }
+
+    @Test
+    void countsPerMatchAndSection() {
+        assertThatThrownBy(() -> retryPolicy.execute(7L, 8L, () -> {
+            throw new ObjectOptimisticLockingFailureException("TicketSection", 8L);
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(meterRegistry.get("booking.section.giveups").tag("match", "7").tag("section", "8").counter().count())
+                .isEqualTo(1);
+    }
+
+    private double count(String name) {
+        return meterRegistry.find(name).tag("match", "1").tag("section", "2").counters().stream()
+                .mapToDouble(counter -> counter.count())
+                .sum();
+    }
+}
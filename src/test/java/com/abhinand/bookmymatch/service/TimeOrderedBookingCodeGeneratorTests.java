@@ -0,0 +1,106 @@
+package com.abhinand.bookmymatch.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimeOrderedBookingCodeGeneratorTests {
+
+    private static final String ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+
+    @Test
+    void codesAreThirteenCrockfordCharacters() {
+        String code = new TimeOrderedBookingCodeGenerator(5).nextCode();
+
+        assertThat(code).hasSize(13).matches("[0-9A-HJKMNP-TV-Z]+");
+    }
+
+    @Test
+    void codesCarryTheNodeIdAndTheCurrentTime() {
+        long before = System.currentTimeMillis();
+        long value = decode(new TimeOrderedBookingCodeGenerator(1023).nextCode());
+        long after = System.currentTimeMillis();
+
+        long millis = (value >>> 22) + Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+        assertThat(value & 1023).isEqualTo(1023);
+        assertThat(millis).isBetween(before, after);
+    }
+
+    @Test
+    void codesFromOneNodeKeepIncreasingPastTheSequenceLimit() {
+        TimeOrderedBookingCodeGenerator generator = new TimeOrderedBookingCodeGenerator(7);
+
+        // Far more than the 4096 codes a millisecond holds
+        String previous = generator.nextCode();
+        for (int i = 0; i < 50_000; i++) {
+            String next = generator.nextCode();
+            assertThat(next).isGreaterThan(previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    void concurrentCallersNeverGetTheSameCode() throws Exception {
+        TimeOrderedBookingCodeGenerator generator = new TimeOrderedBookingCodeGenerator(3);
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        codes.add(generator.nextCode());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(codes).hasSize(80_000);
+    }
+
+    @Test
+    void nodesIssuingInTheSameMillisecondNeverCollide() {
+        String first = new TimeOrderedBookingCodeGenerator(1).nextCode();
+        String second = new TimeOrderedBookingCodeGenerator(2).nextCode();
+
+        assertThat(decode(first) & 1023).isEqualTo(1);
+        assertThat(decode(second) & 1023).isEqualTo(2);
+        assertThat(first).isNotEqualTo(second);
+    }
+
+    @Test
+    void rejectsNodeIdsThatDoNotFitTenBits() {
+        assertThatThrownBy(() -> new TimeOrderedBookingCodeGenerator(1024))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void derivesANodeIdWhenNoneIsConfigured() {
+        long nodeId = decode(new TimeOrderedBookingCodeGenerator(-1).nextCode()) & 1023;
+
+        assertThat(nodeId).isBetween(0L, 1023L);
+    }
+
+    private static long decode(String code) {
+        long value = 0;
+        for (char c : code.toCharArray()) {
+            value = (value << 5) | ALPHABET.indexOf(c);
+        }
+        return value;
+    }
+}
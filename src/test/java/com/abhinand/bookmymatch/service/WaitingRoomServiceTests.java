@@ -0,0 +1,64 @@
+package com.abhinand.bookmymatch.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WaitingRoomServiceTests {
+
+    private final WaitingRoomService waitingRoomService = new WaitingRoomService(30, 3);
+
+    @Test
+    void joiningWithoutARoomGivesNoTicket() {
+        assertThat(waitingRoomService.join(1L, "10.0.0.1")).isNull();
+        assertThat(waitingRoomService.isActive(1L)).isFalse();
+    }
+
+    @Test
+    void ticketsQueueInArrivalOrderUntilAdmitted() throws InterruptedException {
+        waitingRoomService.enable(1L, 1, 1);
+        WaitingRoomService.QueueStatus first = waitingRoomService.join(1L, "10.0.0.1");
+        WaitingRoomService.QueueStatus second = waitingRoomService.join(1L, "10.0.0.2");
+
+        assertThat(first.position()).isEqualTo(1);
+        assertThat(second.position()).isEqualTo(2);
+        assertThat(waitingRoomService.isAdmitted(1L, first.token())).isFalse();
+
+        // One token a second, burst of one
+        waitingRoomService.admit();
+        Thread.sleep(1100);
+        waitingRoomService.admit();
+
+        assertThat(waitingRoomService.isAdmitted(1L, first.token())).isTrue();
+        assertThat(waitingRoomService.status(1L, second.token()).position()).isEqualTo(1);
+        assertThat(waitingRoomService.isAdmitted(1L, "forged")).isFalse();
+    }
+
+    @Test
+    void oneClientCanOnlyTakeAFewTicketsAMinute() {
+        waitingRoomService.enable(1L, 10, 10);
+        for (int i = 0; i < 3; i++) {
+            waitingRoomService.join(1L, "10.0.0.1");
+        }
+
+        assertThatThrownBy(() -> waitingRoomService.join(1L, "10.0.0.1"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Too many");
+        assertThat(waitingRoomService.join(1L, "10.0.0.2")).isNotNull();
+
+        waitingRoomService.purgeIdleTickets();
+        assertThat(waitingRoomService.join(1L, "10.0.0.1")).isNotNull();
+    }
+
+    @Test
+    void eachMatchHasItsOwnJoinBudget() {
+        waitingRoomService.enable(1L, 10, 10);
+        waitingRoomService.enable(2L, 10, 10);
+        for (int i = 0; i < 3; i++) {
+            waitingRoomService.join(1L, "10.0.0.1");
+        }
+
+        assertThat(waitingRoomService.join(2L, "10.0.0.1")).isNotNull();
+    }
+}